@@ -45,10 +45,11 @@ export const sendMessage = async (message, model, conversationId) => {
   }
 }
 
-export const getChatHistory = async (userId) => {
+// 游标分页：返回 { items, nextCursor, hasMore }，把 nextCursor 传回即可加载更早的记录
+export const getChatHistory = async (userId, cursor = null, limit = 50) => {
   try {
     const response = await axios.get(`${API_BASE_URL}/chat/history`, {
-      params: { userId }
+      params: { userId, cursor, limit }
     })
     return response.data
   } catch (error) {
@@ -56,11 +57,23 @@ export const getChatHistory = async (userId) => {
   }
 }
 
-// TODO: 当前前端没有按 sessionId 加载历史记录的需求，如无必要可移除该接口
-export const getChatHistoryBySession = async (userId, sessionId) => {
+// 会话列表：读取 chat_session 摘要表，最近活跃的在前，返回 { items, nextCursor, hasMore }
+export const getChatSessions = async (userId, cursor = null, limit = 50) => {
+  try {
+    const response = await axios.get(`${API_BASE_URL}/chat/sessions`, {
+      params: { userId, cursor, limit }
+    })
+    return response.data
+  } catch (error) {
+    throw new Error(error.response?.data || '获取会话列表失败')
+  }
+}
+
+// 打开会话时按需加载该会话的消息（从新到旧分页）
+export const getChatHistoryBySession = async (userId, sessionId, cursor = null, limit = 50) => {
   try {
     const response = await axios.get(`${API_BASE_URL}/chat/history/${sessionId}`, {
-      params: { userId }
+      params: { userId, cursor, limit }
     })
     return response.data
   } catch (error) {
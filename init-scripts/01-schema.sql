@@ -1,6 +1,7 @@
 -- ============================================
 -- Spring AI Chat Memory 表（Spring AI 框架要求）
 -- ============================================
+-- 按月 RANGE 分区，过期分区由 ChatRetentionService 整块删除，未来月份分区由其从 pmax 自动拆出
 CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
  `conversation_id` VARCHAR(36) NOT NULL,
  `content` TEXT NOT NULL,
@@ -8,6 +9,10 @@ CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
  `timestamp` TIMESTAMP NOT NULL,
 
  INDEX `SPRING_AI_CHAT_MEMORY_CONVERSATION_ID_TIMESTAMP_IDX` (`conversation_id`, `timestamp`)
+)
+PARTITION BY RANGE (UNIX_TIMESTAMP(`timestamp`)) (
+ PARTITION `p_init` VALUES LESS THAN (UNIX_TIMESTAMP('2026-10-01 00:00:00')),
+ PARTITION `pmax` VALUES LESS THAN MAXVALUE
 );
 
 -- ============================================
@@ -30,15 +35,48 @@ CREATE TABLE IF NOT EXISTS `user` (
 
 -- 聊天记录表
 CREATE TABLE IF NOT EXISTS `chat_record` (
-    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `id` BIGINT AUTO_INCREMENT COMMENT '主键ID',
     `user_id` VARCHAR(64) NOT NULL COMMENT '用户ID',
     `session_id` VARCHAR(64) NOT NULL COMMENT '会话ID',
     `role` VARCHAR(20) NOT NULL COMMENT '角色：user/assistant/system',
     `content` TEXT NOT NULL COMMENT '消息内容',
     `model` VARCHAR(50) COMMENT '使用的模型',
     `tokens` INT COMMENT '消耗的token数',
-    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    INDEX `idx_user_id` (`user_id`),
+    `create_time` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`, `create_time`) COMMENT '分区表的主键必须包含分区列',
+    INDEX `idx_user_session_time` (`user_id`, `session_id`, `create_time`, `id`) COMMENT '历史记录游标分页',
     INDEX `idx_session_id` (`session_id`),
     INDEX `idx_create_time` (`create_time`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='聊天记录表';
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='聊天记录表（按月分区）'
+PARTITION BY RANGE (UNIX_TIMESTAMP(`create_time`)) (
+    PARTITION `p_init` VALUES LESS THAN (UNIX_TIMESTAMP('2026-10-01 00:00:00')),
+    PARTITION `pmax` VALUES LESS THAN MAXVALUE
+);
+
+-- 会话摘要表（随聊天记录写入维护，会话列表直接读取）
+CREATE TABLE IF NOT EXISTS `chat_session` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `user_id` VARCHAR(64) NOT NULL COMMENT '用户ID',
+    `session_id` VARCHAR(64) NOT NULL COMMENT '会话ID',
+    `title` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '会话标题（第一条用户消息）',
+    `last_message` VARCHAR(255) NOT NULL DEFAULT '' COMMENT '最后一条消息预览',
+    `message_count` INT NOT NULL DEFAULT 0 COMMENT '消息数',
+    `last_model` VARCHAR(50) COMMENT '最后使用的模型',
+    `total_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '累计消耗的token数',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '最后一条消息时间',
+    UNIQUE KEY `uk_user_session` (`user_id`, `session_id`),
+    INDEX `idx_user_update_time` (`user_id`, `update_time`, `id`) COMMENT '会话列表游标分页',
+    INDEX `idx_session_id` (`session_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='会话摘要表';
+
+-- 聊天记录删除任务（兼作已删除会话的墓碑，查询据此过滤，完成超过保留期后由过期清理删除）
+CREATE TABLE IF NOT EXISTS `chat_record_purge` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `scope` VARCHAR(20) NOT NULL COMMENT '删除范围：session/user',
+    `target_id` VARCHAR(64) NOT NULL COMMENT '会话ID或用户ID',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '登记时间',
+    `finish_time` TIMESTAMP NULL COMMENT '聊天记录删除完成时间，为空表示待执行',
+    UNIQUE KEY `uk_scope_target` (`scope`, `target_id`),
+    INDEX `idx_finish_time` (`finish_time`) COMMENT '启动时恢复未完成的任务、过期清理'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='聊天记录删除任务表';
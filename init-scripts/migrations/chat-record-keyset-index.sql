@@ -0,0 +1,9 @@
+-- ============================================
+-- 已有数据库升级：聊天记录游标分页索引
+-- 新部署由 01-schema.sql 直接建好，无需执行
+-- （migrations 目录不会被 MySQL 镜像的 docker-entrypoint-initdb.d 自动执行）
+-- ============================================
+ALTER TABLE `chat_record`
+    ADD INDEX `idx_user_session_time` (`user_id`, `session_id`, `create_time`, `id`) COMMENT '历史记录游标分页',
+    DROP INDEX `idx_user_id`,
+    ALGORITHM = INPLACE, LOCK = NONE;
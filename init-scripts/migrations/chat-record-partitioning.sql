@@ -0,0 +1,30 @@
+-- ============================================
+-- 已有数据库升级：chat_record 与 SPRING_AI_CHAT_MEMORY 改为按月 RANGE 分区
+-- 新部署由 01-schema.sql 直接建好，无需执行
+-- （migrations 目录不会被 MySQL 镜像的 docker-entrypoint-initdb.d 自动执行）
+-- 分区改造需要重建表（COPY 算法，期间阻塞写入），请在停写窗口执行；
+-- 历史数据全部落在 p_init 中，之后的月份分区由 ChatRetentionService 从 pmax 自动拆出
+-- ============================================
+
+-- 分区表的主键与唯一键必须包含分区列
+ALTER TABLE `chat_record`
+    MODIFY `create_time` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (`id`, `create_time`);
+
+-- 分区边界必须是常量，先算出本月 1 日的时间戳再拼接 DDL
+SET @p_init_bound = UNIX_TIMESTAMP(DATE_FORMAT(NOW(), '%Y-%m-01'));
+
+SET @ddl = CONCAT('ALTER TABLE `chat_record` PARTITION BY RANGE (UNIX_TIMESTAMP(`create_time`)) (',
+                  'PARTITION `p_init` VALUES LESS THAN (', @p_init_bound, '), ',
+                  'PARTITION `pmax` VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = CONCAT('ALTER TABLE `SPRING_AI_CHAT_MEMORY` PARTITION BY RANGE (UNIX_TIMESTAMP(`timestamp`)) (',
+                  'PARTITION `p_init` VALUES LESS THAN (', @p_init_bound, '), ',
+                  'PARTITION `pmax` VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,16 @@
+-- ============================================
+-- 已有数据库升级：聊天记录删除任务表 chat_record_purge
+-- 新部署由 01-schema.sql 直接建好，无需执行
+-- （migrations 目录不会被 MySQL 镜像的 docker-entrypoint-initdb.d 自动执行）
+-- 需在部署新版本之前执行：历史、导出查询会关联该表
+-- ============================================
+-- 聊天记录删除任务（兼作已删除会话的墓碑，查询据此过滤，完成超过保留期后由过期清理删除）
+CREATE TABLE IF NOT EXISTS `chat_record_purge` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `scope` VARCHAR(20) NOT NULL COMMENT '删除范围：session/user',
+    `target_id` VARCHAR(64) NOT NULL COMMENT '会话ID或用户ID',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '登记时间',
+    `finish_time` TIMESTAMP NULL COMMENT '聊天记录删除完成时间，为空表示待执行',
+    UNIQUE KEY `uk_scope_target` (`scope`, `target_id`),
+    INDEX `idx_finish_time` (`finish_time`) COMMENT '启动时恢复未完成的任务、过期清理'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='聊天记录删除任务表';
@@ -0,0 +1,50 @@
+-- ============================================
+-- 已有数据库升级：会话摘要表 chat_session，并由已有聊天记录回填
+-- 新部署由 01-schema.sql 直接建好，无需执行
+-- （migrations 目录不会被 MySQL 镜像的 docker-entrypoint-initdb.d 自动执行）
+-- 建议在应用停写时执行，否则回填期间写入的消息会被重复计数
+-- ============================================
+CREATE TABLE IF NOT EXISTS `chat_session` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    `user_id` VARCHAR(64) NOT NULL COMMENT '用户ID',
+    `session_id` VARCHAR(64) NOT NULL COMMENT '会话ID',
+    `title` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '会话标题（第一条用户消息）',
+    `last_message` VARCHAR(255) NOT NULL DEFAULT '' COMMENT '最后一条消息预览',
+    `message_count` INT NOT NULL DEFAULT 0 COMMENT '消息数',
+    `last_model` VARCHAR(50) COMMENT '最后使用的模型',
+    `total_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '累计消耗的token数',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '最后一条消息时间',
+    UNIQUE KEY `uk_user_session` (`user_id`, `session_id`),
+    INDEX `idx_user_update_time` (`user_id`, `update_time`, `id`) COMMENT '会话列表游标分页',
+    INDEX `idx_session_id` (`session_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='会话摘要表';
+
+-- 回填：子查询均走 idx_user_session_time (user_id, session_id, create_time, id)
+INSERT INTO `chat_session` (user_id, session_id, title, last_message, message_count, last_model, total_tokens,
+                            create_time, update_time)
+SELECT r.user_id,
+       r.session_id,
+       COALESCE((SELECT LEFT(f.content, 100) FROM chat_record f
+                 WHERE f.user_id = r.user_id AND f.session_id = r.session_id AND f.role = 'user'
+                 ORDER BY f.create_time, f.id LIMIT 1), ''),
+       (SELECT LEFT(l.content, 255) FROM chat_record l
+        WHERE l.user_id = r.user_id AND l.session_id = r.session_id
+        ORDER BY l.create_time DESC, l.id DESC LIMIT 1),
+       COUNT(*),
+       (SELECT m.model FROM chat_record m
+        WHERE m.user_id = r.user_id AND m.session_id = r.session_id AND m.model IS NOT NULL
+        ORDER BY m.create_time DESC, m.id DESC LIMIT 1),
+       COALESCE(SUM(r.tokens), 0),
+       MIN(r.create_time),
+       MAX(r.create_time)
+FROM chat_record r
+GROUP BY r.user_id, r.session_id
+ON DUPLICATE KEY UPDATE
+    title = VALUES(title),
+    last_message = VALUES(last_message),
+    message_count = VALUES(message_count),
+    last_model = VALUES(last_model),
+    total_tokens = VALUES(total_tokens),
+    create_time = VALUES(create_time),
+    update_time = VALUES(update_time);
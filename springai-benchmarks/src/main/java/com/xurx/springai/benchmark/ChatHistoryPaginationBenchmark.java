@@ -0,0 +1,212 @@
+package com.xurx.springai.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天历史查询对比：全量查询 / OFFSET 分页 / 游标分页
+ * 需要一个可写的 MySQL 库，首次运行会在 chat_record 表中灌入 rows 条数据（其中 heavy 用户占 heavyRows 条），之后复用
+ * <p>
+ * 运行：mvn compile exec:exec -Djmh.include=ChatHistoryPaginationBenchmark
+ * -Djmh.jvm.args="-Dbench.jdbc.url=jdbc:mysql://localhost:3306/springai_bench -Dbench.jdbc.username=root -Dbench.jdbc.password=..."
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatHistoryPaginationBenchmark {
+
+    private static final String HEAVY_USER = "heavy-user";
+    private static final String COLUMNS = "id, user_id, session_id, role, content, model, tokens, create_time";
+    private static final int PAGE_SIZE = 50;
+    private static final int SESSIONS_PER_USER = 20;
+
+    @Param({"2000000"})
+    private int rows;
+
+    @Param({"100000"})
+    private int heavyRows;
+
+    private Connection connection;
+    private String heavySession;
+    private Timestamp deepCursorTime;
+    private long deepCursorId;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/springai_bench")
+                        + "?rewriteBatchedStatements=true",
+                System.getProperty("bench.jdbc.username", "root"),
+                System.getProperty("bench.jdbc.password", ""));
+        createTable();
+        seedIfNeeded();
+
+        heavySession = HEAVY_USER + "-s0";
+        // 取会话中间位置作为深翻页游标
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT create_time, id FROM chat_record WHERE user_id = ? AND session_id = ? "
+                        + "ORDER BY create_time DESC, id DESC LIMIT 1 OFFSET ?")) {
+            statement.setString(1, HEAVY_USER);
+            statement.setString(2, heavySession);
+            statement.setInt(3, heavyRows / SESSIONS_PER_USER / 2);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                deepCursorTime = resultSet.getTimestamp(1);
+                deepCursorId = resultSet.getLong(2);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * 旧接口：一次返回用户全部记录并按 create_time 排序
+     */
+    @Benchmark
+    public void legacyFullHistory(Blackhole blackhole) throws SQLException {
+        query("SELECT " + COLUMNS + " FROM chat_record WHERE user_id = ? ORDER BY create_time ASC",
+                blackhole, HEAVY_USER);
+    }
+
+    /**
+     * OFFSET 分页翻到会话中部：需要先扫描并丢弃 offset 行
+     */
+    @Benchmark
+    public void offsetDeepPage(Blackhole blackhole) throws SQLException {
+        query("SELECT " + COLUMNS + " FROM chat_record WHERE user_id = ? AND session_id = ? "
+                        + "ORDER BY create_time DESC, id DESC LIMIT " + PAGE_SIZE + " OFFSET " + heavyRows / SESSIONS_PER_USER / 2,
+                blackhole, HEAVY_USER, heavySession);
+    }
+
+    /**
+     * 游标分页：会话第一页
+     */
+    @Benchmark
+    public void keysetFirstPage(Blackhole blackhole) throws SQLException {
+        query("SELECT " + COLUMNS + " FROM chat_record WHERE user_id = ? AND session_id = ? "
+                        + "ORDER BY create_time DESC, id DESC LIMIT " + (PAGE_SIZE + 1),
+                blackhole, HEAVY_USER, heavySession);
+    }
+
+    /**
+     * 游标分页：从会话中部继续往前翻，耗时与第一页相同
+     */
+    @Benchmark
+    public void keysetDeepPage(Blackhole blackhole) throws SQLException {
+        query("SELECT " + COLUMNS + " FROM chat_record WHERE user_id = ? AND session_id = ? "
+                        + "AND (create_time < ? OR (create_time = ? AND id < ?)) "
+                        + "ORDER BY create_time DESC, id DESC LIMIT " + (PAGE_SIZE + 1),
+                blackhole, HEAVY_USER, heavySession, deepCursorTime, deepCursorTime, deepCursorId);
+    }
+
+    private void query(String sql, Blackhole blackhole, Object... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    blackhole.consume(resultSet.getLong(1));
+                    blackhole.consume(resultSet.getString(5));
+                }
+            }
+        }
+    }
+
+    private void createTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS `chat_record` (
+                        `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        `user_id` VARCHAR(64) NOT NULL,
+                        `session_id` VARCHAR(64) NOT NULL,
+                        `role` VARCHAR(20) NOT NULL,
+                        `content` TEXT NOT NULL,
+                        `model` VARCHAR(50),
+                        `tokens` INT,
+                        `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        INDEX `idx_user_session_time` (`user_id`, `session_id`, `create_time`, `id`),
+                        INDEX `idx_session_id` (`session_id`),
+                        INDEX `idx_create_time` (`create_time`)
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4""");
+        }
+    }
+
+    private void seedIfNeeded() throws SQLException {
+        long existing;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM chat_record")) {
+            resultSet.next();
+            existing = resultSet.getLong(1);
+        }
+        if (existing >= rows) {
+            return;
+        }
+
+        int users = Math.max(1, (rows - heavyRows) / 200);
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO chat_record (user_id, session_id, role, content, model, tokens, create_time) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (long i = existing; i < rows; i++) {
+                String userId = i < heavyRows ? HEAVY_USER : "user-" + (i % users);
+                statement.setString(1, userId);
+                statement.setString(2, userId + "-s" + (i % SESSIONS_PER_USER));
+                statement.setString(3, i % 2 == 0 ? "user" : "assistant");
+                statement.setString(4, "这是第 " + i + " 条模拟聊天消息，用于分页查询压测。".repeat(4));
+                statement.setString(5, "qwen");
+                statement.setInt(6, 120);
+                statement.setTimestamp(7, Timestamp.valueOf(start.plusSeconds(i * 10)));
+                statement.addBatch();
+                if (i % 5000 == 4999) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE chat_record");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChatHistoryPaginationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-chat-history-pagination.json")
+                .jvmArgsAppend(
+                        "-Dbench.jdbc.url=" + System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/springai_bench"),
+                        "-Dbench.jdbc.username=" + System.getProperty("bench.jdbc.username", "root"),
+                        "-Dbench.jdbc.password=" + System.getProperty("bench.jdbc.password", ""))
+                .build();
+        new Runner(options).run();
+    }
+}
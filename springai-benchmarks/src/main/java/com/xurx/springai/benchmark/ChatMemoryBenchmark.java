@@ -0,0 +1,129 @@
+package com.xurx.springai.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xurx.springai.configuration.ChatMemoryProperties;
+import com.xurx.springai.memory.TieredChatMemoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.jdbc.MysqlChatMemoryRepositoryDialect;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每轮对话的会话记忆开销：直接使用 JdbcChatMemoryRepository / 分层存储（进程内 LRU + 异步写库）
+ * 一轮 = 读取会话历史拼接提示词 + 写回本轮问答，与 ConversationMemoryAdvisor 的调用方式一致
+ * 需要一个可写的 MySQL 库，首次运行会创建 SPRING_AI_CHAT_MEMORY 表，每次运行前清空 bench- 开头的会话
+ * <p>
+ * 运行：mvn compile exec:exec -Djmh.include=ChatMemoryBenchmark
+ * -Djmh.jvm.args="-Dbench.jdbc.url=jdbc:mysql://localhost:3306/springai_bench -Dbench.jdbc.username=root -Dbench.jdbc.password=..."
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ChatMemoryBenchmark {
+
+    @Param({"jdbc", "tiered"})
+    private String repository;
+
+    /**
+     * 同时活跃的会话数
+     */
+    @Param({"1000"})
+    private int conversations;
+
+    @Param({"10"})
+    private int maxMessages;
+
+    private TieredChatMemoryRepository tiered;
+    private ChatMemory chatMemory;
+
+    @State(Scope.Thread)
+    public static class Conversation {
+        private int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/springai_bench")
+                        + "?rewriteBatchedStatements=true",
+                System.getProperty("bench.jdbc.username", "root"),
+                System.getProperty("bench.jdbc.password", ""));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
+                    `conversation_id` VARCHAR(36) NOT NULL,
+                    `content` TEXT NOT NULL,
+                    `type` VARCHAR(10) NOT NULL,
+                    `timestamp` TIMESTAMP NOT NULL,
+                    INDEX `SPRING_AI_CHAT_MEMORY_CONVERSATION_ID_TIMESTAMP_IDX` (`conversation_id`, `timestamp`)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4""");
+        jdbcTemplate.update("DELETE FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id LIKE 'bench-%'");
+
+        ChatMemoryRepository jdbc = JdbcChatMemoryRepository.builder()
+                .jdbcTemplate(jdbcTemplate)
+                .dialect(new MysqlChatMemoryRepositoryDialect())
+                .build();
+        ChatMemoryRepository memoryRepository = jdbc;
+        if ("tiered".equals(repository)) {
+            tiered = new TieredChatMemoryRepository(jdbc, new ChatMemoryProperties(), null,
+                    new ObjectMapper(), new SimpleMeterRegistry());
+            tiered.init();
+            memoryRepository = tiered;
+        }
+        chatMemory = MessageWindowChatMemory.builder()
+                .chatMemoryRepository(memoryRepository)
+                .maxMessages(maxMessages)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (tiered != null) {
+            tiered.close();
+        }
+    }
+
+    @Benchmark
+    public void turn(Conversation conversation, Blackhole blackhole) {
+        String conversationId = "bench-" + Thread.currentThread().threadId() + "-" + conversation.next++ % conversations;
+        blackhole.consume(chatMemory.get(conversationId));
+        chatMemory.add(conversationId, List.of(
+                new UserMessage("这是一条模拟的用户问题，用于会话记忆压测。"),
+                new AssistantMessage("这是一条模拟的助手回答，长度与真实回复接近。".repeat(8))));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChatMemoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-chat-memory.json")
+                .jvmArgsAppend(
+                        "-Dbench.jdbc.url=" + System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/springai_bench"),
+                        "-Dbench.jdbc.username=" + System.getProperty("bench.jdbc.username", "root"),
+                        "-Dbench.jdbc.password=" + System.getProperty("bench.jdbc.password", ""))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,163 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatRecordMapper 的行映射开销：会话历史一页记录经 MyBatis 映射为 ChatRecord / 手写 JDBC 映射
+ * 两者执行同一条 SQL、每次调用都准备语句（与 MyBatis 默认的 SIMPLE 执行器一致），
+ * 差值为 MyBatis 动态 SQL、参数绑定与结果集映射（resultMap、类型处理器、反射赋值）的开销
+ * 使用 H2 内存库（MySQL 模式）避免网络与磁盘干扰，映射语句直接加载 springai 的 mapper/ChatRecordMapper.xml
+ * <p>
+ * 运行：mvn compile exec:exec -Djmh.include=ChatRecordMappingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatRecordMappingBenchmark {
+
+    private static final String USER_ID = "bench-user";
+    private static final String SESSION_ID = "bench-session";
+    private static final String PAGE_SQL = "SELECT id, user_id, session_id, role, content, model, tokens, create_time "
+            + "FROM chat_record WHERE user_id = ? AND session_id = ? "
+            + "AND NOT EXISTS (SELECT 1 FROM chat_record_purge p WHERE p.scope = 'session' AND p.target_id = chat_record.session_id) "
+            + "ORDER BY create_time DESC, id DESC LIMIT ?";
+
+    @Param({"20", "200"})
+    private int pageSize;
+
+    private SqlSession sqlSession;
+    private ChatRecordMapper mapper;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:chat-record-mapping;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+
+        Configuration configuration = new Configuration(new Environment("bench", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        // 关闭会话级缓存，否则重复查询直接返回上一次的结果
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        try (InputStream mapperXml = Resources.getResourceAsStream("mapper/ChatRecordMapper.xml")) {
+            new XMLMapperBuilder(mapperXml, configuration, "mapper/ChatRecordMapper.xml",
+                    configuration.getSqlFragments()).parse();
+        }
+        sqlSession = new DefaultSqlSessionFactory(configuration).openSession(true);
+        mapper = sqlSession.getMapper(ChatRecordMapper.class);
+        connection = sqlSession.getConnection();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS chat_record");
+            statement.execute("CREATE TABLE chat_record (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "user_id VARCHAR(64) NOT NULL, session_id VARCHAR(64) NOT NULL, role VARCHAR(20) NOT NULL, "
+                    + "content TEXT NOT NULL, model VARCHAR(50), tokens INT, "
+                    + "create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            statement.execute("CREATE INDEX idx_user_session_time ON chat_record (user_id, session_id, create_time, id)");
+            statement.execute("DROP TABLE IF EXISTS chat_record_purge");
+            statement.execute("CREATE TABLE chat_record_purge (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "scope VARCHAR(20) NOT NULL, target_id VARCHAR(64) NOT NULL, "
+                    + "create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP, finish_time TIMESTAMP NULL, "
+                    + "CONSTRAINT uk_scope_target UNIQUE (scope, target_id))");
+        }
+        mapper.insertBatch(records(pageSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    @Benchmark
+    public List<ChatRecord> mybatis() {
+        return mapper.selectPageByUserIdAndSessionId(USER_ID, SESSION_ID, null, pageSize);
+    }
+
+    @Benchmark
+    public List<ChatRecord> jdbc() throws SQLException {
+        List<ChatRecord> records = new ArrayList<>(pageSize);
+        try (PreparedStatement statement = connection.prepareStatement(PAGE_SQL)) {
+            statement.setString(1, USER_ID);
+            statement.setString(2, SESSION_ID);
+            statement.setInt(3, pageSize);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                ChatRecord record = new ChatRecord();
+                record.setId(resultSet.getLong(1));
+                record.setUserId(resultSet.getString(2));
+                record.setSessionId(resultSet.getString(3));
+                record.setRole(resultSet.getString(4));
+                record.setContent(resultSet.getString(5));
+                record.setModel(resultSet.getString(6));
+                int tokens = resultSet.getInt(7);
+                record.setTokens(resultSet.wasNull() ? null : tokens);
+                record.setCreateTime(resultSet.getObject(8, LocalDateTime.class));
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 一问一答交替的会话记录，助手回复带 token 用量
+     */
+    private static List<ChatRecord> records(int count) {
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<ChatRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean user = i % 2 == 0;
+            ChatRecord record = new ChatRecord();
+            record.setUserId(USER_ID);
+            record.setSessionId(SESSION_ID);
+            record.setRole(user ? "user" : "assistant");
+            record.setContent(user ? "红烧肉需要准备哪些食材？"
+                    : "五花肉、冰糖、生抽、老抽、料酒、葱姜和八角。先把五花肉切块焯水，再炒糖色，加入调料后小火慢炖四十分钟，最后大火收汁。");
+            record.setModel("qwen");
+            record.setTokens(user ? null : 236);
+            record.setCreateTime(start.plusSeconds(i));
+            records.add(record);
+        }
+        return records;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChatRecordMappingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-chat-record-mapping.json")
+                .build();
+        new Runner(options).run();
+    }
+}
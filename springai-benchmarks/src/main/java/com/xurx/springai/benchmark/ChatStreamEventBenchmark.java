@@ -0,0 +1,124 @@
+package com.xurx.springai.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xurx.springai.dto.ChatStreamEvent;
+import com.xurx.springai.dto.TokenUsage;
+import com.xurx.springai.utils.ChatStreamEventWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /chat 单个 token 的处理开销对比
+ * legacy：服务端把 token 序列化为 JSON，控制器再反序列化回 Map 累加
+ * typed：类型化事件直接累加，只在出口处用共享 ObjectWriter 序列化一次
+ * 另测每个请求都会发出的步骤事件与完成事件的序列化
+ * <p>
+ * 运行：mvn compile exec:exec -Djmh.include=ChatStreamEventBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatStreamEventBenchmark {
+
+    @Param({"你", "这是一个稍长一些的流式 token 片段，包含 \"引号\""})
+    private String token;
+
+    private ObjectMapper serviceMapper;
+    private ObjectMapper controllerMapper;
+    private ChatStreamEventWriter writer;
+    private StringBuilder accumulator;
+    private TokenUsage usage;
+
+    @Setup
+    public void setup() {
+        serviceMapper = new ObjectMapper();
+        controllerMapper = new ObjectMapper();
+        writer = new ChatStreamEventWriter(new ObjectMapper());
+        accumulator = new StringBuilder();
+        usage = new TokenUsage(812, 236);
+    }
+
+    /**
+     * 旧路径：writeValueAsString(Map) → SSE → readValue(Map) → append
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public ServerSentEvent<String> legacyPerToken() throws Exception {
+        ServerSentEvent<String> sse = ServerSentEvent.<String>builder()
+                .event("token")
+                .data(serviceMapper.writeValueAsString(Map.of("content", token)))
+                .build();
+        if ("token".equals(sse.event())) {
+            Map<String, String> data = controllerMapper.readValue(sse.data(), Map.class);
+            append(data.get("content"));
+        }
+        return sse;
+    }
+
+    /**
+     * 新路径：类型化事件 → append → 出口处序列化一次
+     */
+    @Benchmark
+    public ServerSentEvent<String> typedPerToken() {
+        ChatStreamEvent event = ChatStreamEvent.token(token);
+        if (event.isToken()) {
+            append(event.getContent());
+        }
+        return writer.toServerSentEvent(event);
+    }
+
+    /**
+     * 图节点的步骤事件（每个请求每个节点两次）
+     */
+    @Benchmark
+    public ServerSentEvent<String> stepEvent() {
+        return writer.toServerSentEvent(ChatStreamEvent.step("intent_recognition", "complete", "rag", "意图识别完成：知识库问答"));
+    }
+
+    /**
+     * 完成事件，带 token 用量
+     */
+    @Benchmark
+    public ServerSentEvent<String> doneEvent() {
+        return writer.toServerSentEvent(ChatStreamEvent.done(usage));
+    }
+
+    /**
+     * 旧路径每个请求额外创建的两个 ObjectMapper
+     */
+    @Benchmark
+    public ObjectMapper legacyPerRequestMappers() {
+        new ObjectMapper();
+        return new ObjectMapper();
+    }
+
+    private void append(String content) {
+        // 避免累加器无限增长影响测量
+        if (accumulator.length() > 4096) {
+            accumulator.setLength(0);
+        }
+        accumulator.append(content);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChatStreamEventBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-chat-stream-event.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.utils.JwtUtils;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 解析与校验的开销：每个带令牌的请求至少校验一次
+ * 包含每次调用重新构造签名密钥与解析器的开销
+ * <p>
+ * 运行：mvn compile exec:exec -Djmh.include=JwtBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private String token;
+    private String tamperedToken;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils();
+        token = jwtUtils.generateToken("0b3c6f3e-6d7a-4f57-9a53-2f1c5d0e8a41");
+        // 篡改签名的令牌走校验失败的异常路径
+        tamperedToken = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jwtUtils.parseToken(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtils.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateTamperedToken() {
+        return jwtUtils.validateToken(tamperedToken);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateToken("0b3c6f3e-6d7a-4f57-9a53-2f1c5d0e8a41");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-jwt.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,71 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.prompt.CompiledPrompt;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 意图分类提示词渲染开销对比
+ * perCallResource：原实现，每次请求 new PromptTemplate(resource) 读取并解析模板
+ * perCallString：模板文本已缓存，但每次仍构造 PromptTemplate
+ * compiled：PromptRegistry 预编译模板，渲染只做字符串拼接
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptRenderBenchmark {
+
+    private Resource resource;
+    private String text;
+    private CompiledPrompt compiled;
+    private Map<String, Object> values;
+
+    @Setup
+    public void setup() throws IOException {
+        resource = new ClassPathResource("prompts/intent-classification.txt");
+        text = resource.getContentAsString(StandardCharsets.UTF_8);
+        compiled = CompiledPrompt.compile("intent-classification", text);
+        values = Map.of("message", "帮我查一下数据库里有哪些表");
+    }
+
+    @Benchmark
+    public String perCallResource() {
+        return new PromptTemplate(resource).render(values);
+    }
+
+    @Benchmark
+    public String perCallString() {
+        return new PromptTemplate(text).render(values);
+    }
+
+    @Benchmark
+    public String compiled() {
+        return compiled.render(values);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PromptRenderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-prompt-render.json")
+                .build();
+        new Runner(options).run();
+    }
+}
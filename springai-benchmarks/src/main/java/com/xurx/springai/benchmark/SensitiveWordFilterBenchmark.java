@@ -0,0 +1,77 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.advisor.SensitiveWordFilterAdvisor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词过滤顾问 before 的开销：每次调用拼接整个提示词（系统提示词 + 会话历史 + 本轮问题）后逐词查找
+ * historyMessages 为拼接进提示词的历史消息数，对应会话记忆的长度
+ * <p>
+ * 运行：mvn compile exec:exec -Djmh.include=SensitiveWordFilterBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveWordFilterBenchmark {
+
+    @Param({"0", "20"})
+    private int historyMessages;
+
+    private SensitiveWordFilterAdvisor advisor;
+    private ChatClientRequest request;
+
+    @Setup
+    public void setup() throws IOException {
+        advisor = new SensitiveWordFilterAdvisor(List.of("TMD"));
+        List<Message> messages = new ArrayList<>();
+        messages.add(new SystemMessage(new ClassPathResource("prompts/system-default.txt")
+                .getContentAsString(StandardCharsets.UTF_8)));
+        for (int i = 0; i < historyMessages / 2; i++) {
+            messages.add(new UserMessage("第 " + i + " 个问题：红烧肉需要准备哪些食材？"));
+            messages.add(new AssistantMessage("五花肉、冰糖、生抽、老抽、料酒、葱姜和八角，先焯水再小火慢炖四十分钟。"));
+        }
+        messages.add(new UserMessage("番茄炒蛋先炒蛋还是先炒番茄？"));
+        request = ChatClientRequest.builder()
+                .prompt(new Prompt(messages))
+                .context(Map.of())
+                .build();
+    }
+
+    @Benchmark
+    public ChatClientRequest before() {
+        return advisor.before(request, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SensitiveWordFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-sensitive-word-filter.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.xurx.springai.advisor;
+
+import com.xurx.springai.memory.ConversationCompactor;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话记忆顾问
+ * 请求带有 {@link ChatMemory#CONVERSATION_ID} 参数时，把会话历史拼在本轮消息之前，回答成功结束后把本轮问答一次写回记忆；
+ * 不带会话 ID 的调用（意图识别、图调试接口等）不读写记忆
+ * <p>
+ * 与 MessageChatMemoryAdvisor 不同，用户消息不在调用模型前单独写入：被取消的预测生成不会在记忆里留下半轮对话，每轮也只写一次；
+ * 配置了 {@link ConversationCompactor} 时，会话历史按 token 预算裁剪并在后台压缩为摘要
+ */
+public class ConversationMemoryAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final ChatMemory chatMemory;
+    private final ConversationCompactor compactor;
+
+    public ConversationMemoryAdvisor(ChatMemory chatMemory) {
+        this(chatMemory, null);
+    }
+
+    /**
+     * @param compactor 会话压缩，为空时原样发送全部历史
+     */
+    public ConversationMemoryAdvisor(ChatMemory chatMemory, ConversationCompactor compactor) {
+        this.chatMemory = chatMemory;
+        this.compactor = compactor;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        String conversationId = conversationIdOf(chatClientRequest);
+        if (conversationId == null) {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        }
+        ChatClientResponse clientResponse = callAdvisorChain.nextCall(withHistory(chatClientRequest, conversationId));
+        remember(conversationId, chatClientRequest, textOf(clientResponse.chatResponse()));
+        return clientResponse;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        String conversationId = conversationIdOf(chatClientRequest);
+        if (conversationId == null) {
+            return streamAdvisorChain.nextStream(chatClientRequest);
+        }
+        return Flux.defer(() -> {
+            StringBuilder answer = new StringBuilder();
+            return streamAdvisorChain.nextStream(withHistory(chatClientRequest, conversationId))
+                    .doOnNext(clientResponse -> answer.append(textOf(clientResponse.chatResponse())))
+                    .doOnComplete(() -> remember(conversationId, chatClientRequest, answer.toString()));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "conversation-memory-advisor";
+    }
+
+    /**
+     * 在检索增强之前执行，记忆中保存的是用户原始问题而不是拼接了检索内容的提示词
+     */
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER;
+    }
+
+    /**
+     * 系统消息保持在最前，其后依次是会话历史与本轮消息
+     */
+    private ChatClientRequest withHistory(ChatClientRequest request, String conversationId) {
+        List<Message> history = chatMemory.get(conversationId);
+        if (compactor != null) {
+            history = compactor.fit(conversationId, history);
+        }
+        if (history.isEmpty()) {
+            return request;
+        }
+        List<Message> instructions = request.prompt().getInstructions();
+        List<Message> messages = new ArrayList<>(history.size() + instructions.size());
+        instructions.stream().filter(message -> message.getMessageType() == MessageType.SYSTEM).forEach(messages::add);
+        messages.addAll(history);
+        instructions.stream().filter(message -> message.getMessageType() != MessageType.SYSTEM).forEach(messages::add);
+        return request.mutate()
+                .prompt(request.prompt().mutate().messages(messages).build())
+                .build();
+    }
+
+    private void remember(String conversationId, ChatClientRequest request, String answer) {
+        UserMessage question = request.prompt().getUserMessage();
+        if (answer.isEmpty() || question.getText() == null || question.getText().isEmpty()) {
+            return;
+        }
+        chatMemory.add(conversationId, List.of(question, new AssistantMessage(answer)));
+    }
+
+    private static String conversationIdOf(ChatClientRequest request) {
+        Object conversationId = request.context().get(ChatMemory.CONVERSATION_ID);
+        return conversationId != null ? conversationId.toString() : null;
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response == null) {
+            return "";
+        }
+        Generation result = response.getResult();
+        if (result == null || result.getOutput().getText() == null) {
+            return "";
+        }
+        return result.getOutput().getText();
+    }
+}
@@ -1,38 +1,322 @@
 package com.xurx.springai.advisor;
 
-import io.micrometer.core.instrument.Metrics;
+import com.xurx.springai.dto.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
 import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 模型调用指标顾问（同步 + 流式）
+ * 记录首 token 耗时、token 间隔、总耗时、输出速率以及输入 / 输出 token 数，按 model / intent / outcome 打标签；
+ * 标签组合在首次出现时注册并缓存，之后只做 Map 查找，未出现过的组合不会导出空序列；
+ * 只有总耗时发布百分位直方图，其余耗时只导出计数、总和与最大值
+ * <p>
+ * 另外保留不带标签的 ai.prompt.tokens / ai.completion.tokens / ai.total.tokens 累计计数器，兼容已有看板
+ * <p>
+ * 调用方通过 advisor 参数传入：{@link #INTENT} 意图（缺省为 none），{@link #USAGE_LISTENER} 成功结束后接收 token 用量的回调，
+ * {@link #DISABLED} 为 true 时不记录指标（离线评估等非线上流量）
+ */
+@Slf4j
+public class MetricAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /**
+     * advisor 参数：本次调用所属意图
+     */
+    public static final String INTENT = "metric.intent";
+
+    /**
+     * advisor 参数：{@code Consumer<TokenUsage>}，调用成功结束时回调
+     */
+    public static final String USAGE_LISTENER = "metric.usage-listener";
+
+    /**
+     * advisor 参数：为 true 时本次调用不记录指标
+     */
+    public static final String DISABLED = "metric.disabled";
+
+    static final List<String> INTENTS = List.of("chitchat", "rag", "tool_call", "intent", "compaction", "none");
+
+    private final MeterRegistry meterRegistry;
+    private final String model;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    private final Counter totalPromptTokens;
+    private final Counter totalCompletionTokens;
+    private final Counter totalTokens;
+
+    public MetricAdvisor(MeterRegistry meterRegistry, String model) {
+        this.meterRegistry = meterRegistry;
+        this.model = model;
+        this.totalPromptTokens = meterRegistry.counter("ai.prompt.tokens");
+        this.totalCompletionTokens = meterRegistry.counter("ai.completion.tokens");
+        this.totalTokens = meterRegistry.counter("ai.total.tokens");
+    }
 
-public class MetricAdvisor implements CallAdvisor {
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
-        // 执行实际的调用
-        ChatClientResponse clientResponse = callAdvisorChain.nextCall(chatClientRequest);
-        // 获取响应的使用情况
-        Usage usage = clientResponse.chatResponse().getMetadata().getUsage();
-        // 输入 Prompt 的 Token 数量
-        Integer promptTokens = usage.getPromptTokens();
-        // 输出 Completion 的 Token 数量
-        Integer completionTokens = usage.getCompletionTokens();
-        // 总 Token 数量
-        Integer totalTokens = usage.getTotalTokens();
-        Metrics.counter("ai.prompt.tokens").increment(promptTokens);
-        Metrics.counter("ai.completion.tokens").increment(completionTokens);
-        Metrics.counter("ai.total.tokens").increment(totalTokens);
+        if (isDisabled(chatClientRequest)) {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        }
+        String intent = intentOf(chatClientRequest);
+        long start = System.nanoTime();
+        ChatClientResponse clientResponse;
+        try {
+            clientResponse = callAdvisorChain.nextCall(chatClientRequest);
+        } catch (RuntimeException e) {
+            meters(intent, "error").duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        Meters success = meters(intent, "success");
+        success.duration.record(elapsed, TimeUnit.NANOSECONDS);
+
+        UsageTracker tracker = new UsageTracker();
+        tracker.accept(clientResponse.chatResponse());
+        TokenUsage usage = tracker.usage();
+        success.recordUsage(usage, elapsed);
+        recordTotals(usage);
+        notifyListener(chatClientRequest, usage);
         return clientResponse;
     }
 
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        if (isDisabled(chatClientRequest)) {
+            return streamAdvisorChain.nextStream(chatClientRequest);
+        }
+        String intent = intentOf(chatClientRequest);
+        return Flux.defer(() -> {
+            StreamTiming timing = new StreamTiming(System.nanoTime());
+            UsageTracker tracker = new UsageTracker();
+            AtomicBoolean finished = new AtomicBoolean();
+
+            // 结果标签在流结束时才确定，首 token 与 token 间隔先暂存，结束时一并记录
+            Consumer<String> finish = outcome -> {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                long end = System.nanoTime();
+                Meters recorded = meters(intent, outcome);
+                timing.record(recorded, end);
+                if ("success".equals(outcome)) {
+                    TokenUsage usage = tracker.usage();
+                    recorded.recordUsage(usage, timing.generationNanos(end));
+                    recordTotals(usage);
+                    notifyListener(chatClientRequest, usage);
+                }
+            };
+
+            return streamAdvisorChain.nextStream(chatClientRequest)
+                    .doOnNext(clientResponse -> {
+                        if (tracker.accept(clientResponse.chatResponse())) {
+                            timing.onToken(System.nanoTime());
+                        }
+                    })
+                    // 在完成信号向下游传播之前回调用量，保证下游收到完成时已能读到本次用量
+                    .doOnComplete(() -> finish.accept("success"))
+                    .doOnError(e -> finish.accept("error"))
+                    .doOnCancel(() -> finish.accept("cancelled"));
+        });
+    }
+
     @Override
     public String getName() {
         return "metric-advisor";
     }
 
+    /**
+     * 最外层执行，耗时包含检索增强等其它 advisor
+     */
     @Override
     public int getOrder() {
-        return 0;
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private Meters meters(String intent, String outcome) {
+        return meters.computeIfAbsent(key(intent, outcome), key -> new Meters(meterRegistry, model, intent, outcome));
+    }
+
+    private void recordTotals(TokenUsage usage) {
+        totalPromptTokens.increment(usage.promptTokens());
+        totalCompletionTokens.increment(usage.completionTokens());
+        totalTokens.increment(usage.totalTokens());
+    }
+
+    private static boolean isDisabled(ChatClientRequest request) {
+        return Boolean.TRUE.equals(request.context().get(DISABLED));
+    }
+
+    private static String intentOf(ChatClientRequest request) {
+        Object intent = request.context().get(INTENT);
+        return intent != null && INTENTS.contains(intent.toString()) ? intent.toString() : "none";
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyListener(ChatClientRequest request, TokenUsage usage) {
+        Object listener = request.context().get(USAGE_LISTENER);
+        if (listener instanceof Consumer<?> consumer) {
+            try {
+                ((Consumer<TokenUsage>) consumer).accept(usage);
+            } catch (RuntimeException e) {
+                log.warn("[指标] token 用量回调失败: model={}", model, e);
+            }
+        }
+    }
+
+    private static String key(String intent, String outcome) {
+        return intent + '|' + outcome;
+    }
+
+    /**
+     * 单次流式调用的时间点，Reactor 保证 onNext 串行调用，无需同步
+     */
+    private static final class StreamTiming {
+
+        private final long start;
+        private long firstToken = -1;
+        private long lastToken;
+        private long[] gaps = new long[64];
+        private int gapCount;
+
+        StreamTiming(long start) {
+            this.start = start;
+        }
+
+        void onToken(long now) {
+            if (firstToken < 0) {
+                firstToken = now;
+            } else {
+                if (gapCount == gaps.length) {
+                    gaps = Arrays.copyOf(gaps, gapCount * 2);
+                }
+                gaps[gapCount++] = now - lastToken;
+            }
+            lastToken = now;
+        }
+
+        /**
+         * 输出速率按首 token 之后的生成时间计算，不含排队与首 token 等待
+         */
+        long generationNanos(long end) {
+            return firstToken < 0 ? 0 : end - firstToken;
+        }
+
+        void record(Meters meters, long end) {
+            meters.duration.record(end - start, TimeUnit.NANOSECONDS);
+            if (firstToken >= 0) {
+                meters.ttft.record(firstToken - start, TimeUnit.NANOSECONDS);
+            }
+            for (int i = 0; i < gapCount; i++) {
+                meters.interToken.record(gaps[i], TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 汇总一次调用的 token 用量：优先使用模型返回的 usage（流式时取各片段中的最大值，兼容累计与末尾汇总两种返回方式），
+     * 模型未返回输出 token 数时按有内容的片段数估算
+     */
+    private static final class UsageTracker {
+
+        private int promptTokens;
+        private int completionTokens;
+        private int textChunks;
+
+        /**
+         * @return 该片段是否包含输出文本
+         */
+        boolean accept(ChatResponse response) {
+            if (response == null) {
+                return false;
+            }
+            Usage usage = response.getMetadata().getUsage();
+            if (usage != null) {
+                promptTokens = Math.max(promptTokens, orZero(usage.getPromptTokens()));
+                completionTokens = Math.max(completionTokens, orZero(usage.getCompletionTokens()));
+            }
+            Generation result = response.getResult();
+            boolean hasText = result != null && result.getOutput().getText() != null && !result.getOutput().getText().isEmpty();
+            if (hasText) {
+                textChunks++;
+            }
+            return hasText;
+        }
+
+        TokenUsage usage() {
+            return new TokenUsage(promptTokens, completionTokens > 0 ? completionTokens : textChunks);
+        }
+
+        private static int orZero(Integer value) {
+            return value == null ? 0 : value;
+        }
+    }
+
+    private static final class Meters {
+
+        final Timer ttft;
+        final Timer interToken;
+        final Timer duration;
+        final DistributionSummary tokensPerSecond;
+        final DistributionSummary promptTokens;
+        final DistributionSummary completionTokens;
+
+        Meters(MeterRegistry registry, String model, String intent, String outcome) {
+            ttft = Timer.builder("ai.chat.ttft")
+                    .description("流式调用首 token 耗时")
+                    .tags("model", model, "intent", intent, "outcome", outcome)
+                    .register(registry);
+            interToken = Timer.builder("ai.chat.inter.token.latency")
+                    .description("流式调用相邻输出片段的间隔")
+                    .tags("model", model, "intent", intent, "outcome", outcome)
+                    .register(registry);
+            duration = Timer.builder("ai.chat.duration")
+                    .description("模型调用总耗时")
+                    .tags("model", model, "intent", intent, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            tokensPerSecond = DistributionSummary.builder("ai.chat.tokens.per.second")
+                    .description("输出速率（输出 token 数 / 首 token 之后的生成时间）")
+                    .tags("model", model, "intent", intent, "outcome", outcome)
+                    .register(registry);
+            promptTokens = DistributionSummary.builder("ai.chat.prompt.tokens")
+                    .description("单次调用输入 token 数")
+                    .baseUnit("tokens")
+                    .tags("model", model, "intent", intent, "outcome", outcome)
+                    .register(registry);
+            completionTokens = DistributionSummary.builder("ai.chat.completion.tokens")
+                    .description("单次调用输出 token 数")
+                    .baseUnit("tokens")
+                    .tags("model", model, "intent", intent, "outcome", outcome)
+                    .register(registry);
+        }
+
+        void recordUsage(TokenUsage usage, long generationNanos) {
+            promptTokens.record(usage.promptTokens());
+            completionTokens.record(usage.completionTokens());
+            if (generationNanos > 0 && usage.completionTokens() > 0) {
+                tokensPerSecond.record(usage.completionTokens() / (generationNanos / 1e9));
+            }
+        }
     }
 }
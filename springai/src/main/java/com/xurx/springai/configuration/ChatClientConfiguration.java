@@ -1,45 +1,56 @@
 package com.xurx.springai.configuration;
 
-import com.alibaba.cloud.ai.dashscope.embedding.DashScopeEmbeddingModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xurx.springai.advisor.ConversationMemoryAdvisor;
+import com.xurx.springai.advisor.MetricAdvisor;
 import com.xurx.springai.advisor.SensitiveWordFilterAdvisor;
+import com.xurx.springai.memory.ConversationCompactor;
+import com.xurx.springai.memory.SerializedChatMemory;
+import com.xurx.springai.memory.TieredChatMemoryRepository;
+import com.xurx.springai.prompt.PromptRegistry;
+import com.xurx.springai.routing.BulkheadEmbeddingModel;
+import com.xurx.springai.routing.ModelBulkheads;
+import com.xurx.springai.service.GraphNodeMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.ChatOptions;
-import org.springframework.ai.deepseek.DeepSeekChatModel;
-import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.rag.generation.augmentation.ContextualQueryAugmenter;
 import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.zhipuai.ZhiPuAiChatModel;
-import org.springframework.ai.zhipuai.ZhiPuAiEmbeddingModel;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
-import org.springframework.core.io.Resource;
+import redis.clients.jedis.JedisPooled;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 模型按自动配置的 Bean 名称注入，stub profile 下由同名的桩模型替换（见测试代码中的 StubModelConfiguration）
+ */
 @Configuration
 @RequiredArgsConstructor
 public class ChatClientConfiguration {
 
-    private final ZhiPuAiChatModel ZhiPuChatModel;
-    private final DeepSeekChatModel deepSeekChatModel;
-    private final DashScopeChatModel dashScopeModel;
-    private final ZhiPuAiEmbeddingModel zhiPuAiEmbeddingModel;
-
-    @Value("classpath:prompts/system-default.txt")
-    private Resource systemPromptResource;
+    @Qualifier("zhiPuAiChatModel")
+    private final ChatModel ZhiPuChatModel;
+    @Qualifier("deepSeekChatModel")
+    private final ChatModel deepSeekChatModel;
+    @Qualifier("dashScopeChatModel")
+    private final ChatModel dashScopeModel;
+    @Qualifier("zhiPuAiEmbeddingModel")
+    private final EmbeddingModel zhiPuAiEmbeddingModel;
+    private final PromptRegistry promptRegistry;
+    private final MeterRegistry meterRegistry;
 
     /**
      * 敏感词列表 Bean
@@ -58,14 +69,42 @@ public class ChatClientConfiguration {
     }
 
     /**
-     * 聊天记忆组件
+     * 分层会话记忆存储：进程内 LRU → Redis（可选）→ SPRING_AI_CHAT_MEMORY 表（异步写入）
      */
     @Bean
-    public ChatMemory chatMemory(JdbcChatMemoryRepository jdbcChatMemoryRepository) {
-        return MessageWindowChatMemory.builder()
-                .chatMemoryRepository(jdbcChatMemoryRepository)
-                .maxMessages(2)
-                .build();
+    @Primary
+    public TieredChatMemoryRepository tieredChatMemoryRepository(JdbcChatMemoryRepository jdbcChatMemoryRepository,
+                                                                 ChatMemoryProperties chatMemoryProperties,
+                                                                 VectorStore vectorStore,
+                                                                 ObjectMapper objectMapper) {
+        // Redis 层复用知识库向量存储的连接池
+        JedisPooled jedis = chatMemoryProperties.getRedis().isEnabled()
+                ? vectorStore.<JedisPooled>getNativeClient()
+                        .orElseThrow(() -> new IllegalStateException("VectorStore 不是 Redis 向量存储"))
+                : null;
+        return new TieredChatMemoryRepository(jdbcChatMemoryRepository, chatMemoryProperties, jedis,
+                objectMapper, meterRegistry);
+    }
+
+    /**
+     * 聊天记忆组件：每个会话保留最近 maxMessages 条消息，同一会话的写入串行执行
+     */
+    @Bean
+    public SerializedChatMemory chatMemory(TieredChatMemoryRepository tieredChatMemoryRepository,
+                                           ChatMemoryProperties chatMemoryProperties) {
+        return new SerializedChatMemory(MessageWindowChatMemory.builder()
+                .chatMemoryRepository(tieredChatMemoryRepository)
+                .maxMessages(chatMemoryProperties.getMaxMessages())
+                .build());
+    }
+
+    /**
+     * 会话记忆顾问：请求带会话 ID 时读写聊天记忆，历史超出 token 预算时压缩
+     */
+    @Bean
+    public ConversationMemoryAdvisor conversationMemoryAdvisor(ChatMemory chatMemory,
+                                                               ConversationCompactor conversationCompactor) {
+        return new ConversationMemoryAdvisor(chatMemory, conversationCompactor);
     }
 
     /**
@@ -83,11 +122,14 @@ public class ChatClientConfiguration {
     /**
      * 检索增强 RAG 顾问
      * 配置 ContextualQueryAugmenter 允许空上下文，避免在找不到相关文档时干扰MCP工具调用
+     * 向量检索耗时计入 retrieval 阶段
      */
     @Bean(name = "retrievalAugmentationAdvisor")
-    public RetrievalAugmentationAdvisor retrievalAugmentationAdvisor(VectorStoreDocumentRetriever vectorStoreDocumentRetriever) {
+    public RetrievalAugmentationAdvisor retrievalAugmentationAdvisor(VectorStoreDocumentRetriever vectorStoreDocumentRetriever,
+                                                                     GraphNodeMetrics graphNodeMetrics) {
         return RetrievalAugmentationAdvisor.builder()
-                .documentRetriever(vectorStoreDocumentRetriever)
+                .documentRetriever(query -> graphNodeMetrics.record(GraphNodeMetrics.RETRIEVAL,
+                        () -> vectorStoreDocumentRetriever.retrieve(query)))
                 .queryAugmenter(ContextualQueryAugmenter.builder()
                         .allowEmptyContext(true)
                         .build())
@@ -109,21 +151,18 @@ public class ChatClientConfiguration {
     }
 
     private String loadSystemPrompt() {
-        try {
-            return systemPromptResource.getContentAsString(StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load system prompt template", e);
-        }
+        return promptRegistry.get("system-default").getText();
     }
 
     /**
      * 百炼 ChatClient 实例
      */
     @Bean
-    public ChatClient dashscopeChatClient(SensitiveWordFilterAdvisor sensitiveWordFilterAdvisor) {
+    public ChatClient dashscopeChatClient(SensitiveWordFilterAdvisor sensitiveWordFilterAdvisor,
+                                          ConversationMemoryAdvisor conversationMemoryAdvisor) {
         return ChatClient.builder(dashScopeModel)
                 .defaultSystem(loadSystemPrompt())
-                .defaultAdvisors(sensitiveWordFilterAdvisor)
+                .defaultAdvisors(new MetricAdvisor(meterRegistry, "qwen"), conversationMemoryAdvisor, sensitiveWordFilterAdvisor)
                 .build();
     }
 
@@ -131,10 +170,11 @@ public class ChatClientConfiguration {
      * 智谱 ChatClient 实例
      */
     @Bean
-    public ChatClient zhipuChatClient(SensitiveWordFilterAdvisor sensitiveWordFilterAdvisor) {
+    public ChatClient zhipuChatClient(SensitiveWordFilterAdvisor sensitiveWordFilterAdvisor,
+                                      ConversationMemoryAdvisor conversationMemoryAdvisor) {
         return ChatClient.builder(ZhiPuChatModel)
                 .defaultSystem(loadSystemPrompt())
-                .defaultAdvisors(sensitiveWordFilterAdvisor)
+                .defaultAdvisors(new MetricAdvisor(meterRegistry, "zhipu"), conversationMemoryAdvisor, sensitiveWordFilterAdvisor)
                 .build();
     }
 
@@ -142,20 +182,22 @@ public class ChatClientConfiguration {
      * DeepSeek ChatClient 实例
      */
     @Bean
-    public ChatClient deepseekChatClient(SensitiveWordFilterAdvisor sensitiveWordFilterAdvisor) {
+    public ChatClient deepseekChatClient(SensitiveWordFilterAdvisor sensitiveWordFilterAdvisor,
+                                         ConversationMemoryAdvisor conversationMemoryAdvisor) {
         return ChatClient.builder(deepSeekChatModel)
                 .defaultSystem(loadSystemPrompt())
-                .defaultAdvisors(sensitiveWordFilterAdvisor)
+                .defaultAdvisors(new MetricAdvisor(meterRegistry, "deepseek"), conversationMemoryAdvisor, sensitiveWordFilterAdvisor)
                 .build();
     }
 
     /**
      * 默认的 Embedding 模型
      * 用于向量存储，指定使用DashScope的Embedding模型
+     * 调用经过 model-args.models.zhipuai-embed 配置的舱壁
      */
     @Bean
     @Primary
-    public EmbeddingModel defaultEmbeddingModel() {
-        return zhiPuAiEmbeddingModel;
+    public EmbeddingModel defaultEmbeddingModel(ModelBulkheads modelBulkheads) {
+        return new BulkheadEmbeddingModel("zhipuai-embed", zhiPuAiEmbeddingModel, modelBulkheads);
     }
 }
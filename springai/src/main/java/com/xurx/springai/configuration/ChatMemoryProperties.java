@@ -0,0 +1,104 @@
+package com.xurx.springai.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "chat-memory")
+public class ChatMemoryProperties {
+
+    /**
+     * 每个会话保留的最近消息条数上限（一问一答为 2 条），压缩生成的摘要不计入
+     */
+    private int maxMessages = 40;
+
+    private Hot hot = new Hot();
+
+    private Redis redis = new Redis();
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    private Compaction compaction = new Compaction();
+
+    @Data
+    public static class Hot {
+        /**
+         * 进程内最多缓存的会话数，超出按 LRU 淘汰
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 会话多久未访问后从进程内淘汰；多实例部署且未开启 Redis 时应配合会话粘滞或调小该值
+         * 开启 Redis 时读取以 Redis 为准，进程内层只在 Redis 不可用时兜底
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Redis {
+        /**
+         * 是否启用 Redis 共享层（多实例部署时开启，复用向量存储的 Redis 连接池）
+         */
+        private boolean enabled = false;
+
+        private String prefix = "xurx-chat-memory:";
+
+        /**
+         * Redis 中会话的过期时间，每次写入刷新
+         */
+        private Duration ttl = Duration.ofHours(24);
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * 是否异步写入 SPRING_AI_CHAT_MEMORY 表，关闭时每轮对话同步写库
+         */
+        private boolean enabled = true;
+
+        /**
+         * 待刷盘会话的上限，超出时由调用方同步写入
+         */
+        private int maxPending = 10000;
+
+        /**
+         * 刷盘间隔，同一会话在间隔内的多次写入只落库最后一次
+         */
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        /**
+         * 优雅停机时等待刷盘的最长时间
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Compaction {
+        /**
+         * 会话历史超出 token 预算时是否压缩为摘要
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每轮随提示词发送的会话历史 token 预算（含摘要）
+         */
+        private int tokenBudget = 1500;
+
+        /**
+         * 压缩时原样保留的最近消息条数
+         */
+        private int keepRecentMessages = 6;
+
+        /**
+         * 生成摘要使用的模型（chatClientMap 中的键），选用便宜的模型
+         */
+        private String model = "qwen";
+
+        /**
+         * 摘要的最大字数
+         */
+        private int summaryMaxLength = 300;
+    }
+}
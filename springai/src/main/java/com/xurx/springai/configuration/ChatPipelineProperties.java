@@ -0,0 +1,221 @@
+package com.xurx.springai.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "chat-pipeline")
+public class ChatPipelineProperties {
+
+    private Speculation speculation = new Speculation();
+
+    private SemanticCache semanticCache = new SemanticCache();
+
+    private Routing routing = new Routing();
+
+    private Hedging hedging = new Hedging();
+
+    private Coalescing coalescing = new Coalescing();
+
+    @Data
+    public static class Speculation {
+        /**
+         * 是否在意图识别的同时预先生成最可能分支的回答
+         */
+        private boolean enabled = false;
+
+        /**
+         * 预测的意图（不允许 tool_call，避免预先执行有副作用的工具）
+         */
+        private String predictedIntent = "chitchat";
+
+        /**
+         * 启用预测的模型，为空表示所有模型
+         */
+        private Set<String> models = new HashSet<>();
+
+        public boolean isEnabledFor(String model) {
+            return enabled && (models.isEmpty() || models.contains(model));
+        }
+    }
+
+    @Data
+    public static class SemanticCache {
+        /**
+         * 是否启用语义缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 命中所需的最低相似度
+         */
+        private double similarityThreshold = 0.95;
+
+        /**
+         * 缓存使用的独立向量索引，与知识库索引分开
+         */
+        private String indexName = "xurx-semantic-cache-index";
+
+        private String prefix = "xurx-semantic-cache:";
+
+        /**
+         * 命中后回放答案时每个 token 的字符数
+         */
+        private int replayChunkSize = 8;
+
+        /**
+         * 按意图配置的缓存策略（tool_call 始终不缓存）
+         */
+        private Map<String, IntentPolicy> intents = new LinkedHashMap<>();
+
+        public IntentPolicy policyFor(String intent) {
+            if (!enabled || "tool_call".equals(intent)) {
+                return null;
+            }
+            IntentPolicy policy = intents.get(intent);
+            return policy != null && policy.isEnabled() ? policy : null;
+        }
+    }
+
+    @Data
+    public static class IntentPolicy {
+        private boolean enabled = true;
+
+        /**
+         * 缓存条目过期时间
+         */
+        private Duration ttl = Duration.ofHours(24);
+    }
+
+    @Data
+    public static class Routing {
+        /**
+         * 是否启用模型路由：关闭时只调用请求的模型，不做熔断与故障转移
+         */
+        private boolean enabled = true;
+
+        /**
+         * 各模型的备用模型链，请求的模型熔断或在首 token 前失败时依次尝试
+         */
+        private Map<String, List<String>> fallbacks = new LinkedHashMap<>();
+
+        private Auto auto = new Auto();
+
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    }
+
+    @Data
+    public static class Auto {
+        /**
+         * 是否接受 model=auto，路由到当前首 token 耗时最短的健康模型
+         */
+        private boolean enabled = true;
+
+        /**
+         * auto 的候选模型，为空表示所有模型
+         */
+        private List<String> models = new ArrayList<>();
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * 统计最近多少次调用的失败率与耗时
+         */
+        private int windowSize = 20;
+
+        /**
+         * 窗口内至少多少次调用后才计算失败率
+         */
+        private int minimumCalls = 5;
+
+        /**
+         * 失败（含慢调用）比例达到该值时熔断
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * 首 token 耗时超过该值的调用计为慢调用
+         */
+        private Duration slowCallThreshold = Duration.ofSeconds(15);
+
+        /**
+         * 熔断持续时间，之后放行少量探测请求
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * 半开状态下放行的探测请求数
+         */
+        private int halfOpenCalls = 1;
+    }
+
+    @Data
+    public static class Hedging {
+        /**
+         * 是否开启对冲：请求的模型在延迟内没有输出首 token 时，把同一提示词发给备用模型，先输出者胜出，另一路取消
+         */
+        private boolean enabled = false;
+
+        /**
+         * 参与对冲的意图（tool_call 始终不对冲，避免工具被执行两次）
+         */
+        private Set<String> intents = new HashSet<>(Set.of("chitchat", "rag"));
+
+        /**
+         * 对冲延迟取该模型最近首 token 耗时的分位数
+         */
+        private double percentile = 0.9;
+
+        /**
+         * 对冲延迟下限
+         */
+        private Duration minDelay = Duration.ofMillis(300);
+
+        /**
+         * 样本不足 minimumSamples 时使用的对冲延迟
+         */
+        private Duration initialDelay = Duration.ofSeconds(2);
+
+        private int minimumSamples = 10;
+
+        /**
+         * 对冲预算：每个请求积累的对冲额度（0.1 即最多约 10% 的请求发出对冲）
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * 对冲预算上限，允许短时间内集中对冲的次数
+         */
+        private int budgetBurst = 10;
+
+        public boolean isEnabledFor(String intent) {
+            return enabled && !"tool_call".equals(intent) && intents.contains(intent);
+        }
+    }
+
+    @Data
+    public static class Coalescing {
+        /**
+         * 是否合并同时进行的相同请求：只调用一次模型，流式响应回放给每个请求
+         */
+        private boolean enabled = true;
+
+        /**
+         * 参与合并的意图（tool_call 默认不合并，工具调用可能有副作用，需要时显式加入）
+         */
+        private Set<String> intents = new HashSet<>(Set.of("chitchat", "rag"));
+
+        public boolean isEnabledFor(String intent) {
+            return enabled && intents.contains(intent);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.xurx.springai.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.Period;
+
+@Data
+@ConfigurationProperties(prefix = "chat-record")
+public class ChatRecordProperties {
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    private Purge purge = new Purge();
+
+    private Retention retention = new Retention();
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * 是否异步批量写入聊天记录，关闭时每条记录同步单行插入
+         */
+        private boolean enabled = true;
+
+        /**
+         * 内存队列容量
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * 单次多行 INSERT 的最大行数，攒满立即刷盘
+         */
+        private int batchSize = 200;
+
+        /**
+         * 未攒满时的最长等待时间
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * 队列已满时调用方最多等待的时间，超时后由调用方线程同步写入
+         */
+        private Duration offerTimeout = Duration.ofMillis(100);
+
+        /**
+         * 优雅停机时等待队列刷盘的最长时间
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Purge {
+        /**
+         * 后台分块删除时单条 DELETE 的最大行数
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * 两个分块之间的停顿，给在线写入让出行锁和 IO
+         */
+        private Duration pause = Duration.ofMillis(50);
+
+        /**
+         * 停机时等待未完成删除任务的最长时间
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Retention {
+        /**
+         * 是否开启过期数据清理任务
+         */
+        private boolean enabled = true;
+
+        /**
+         * 只记录将要删除的分区和行，不实际删除（预建分区不受影响）
+         */
+        private boolean dryRun = true;
+
+        /**
+         * 数据保留时长，整月分区的结束时间早于 now - retention 时整个分区被删除
+         */
+        private Period retention = Period.ofMonths(12);
+
+        /**
+         * 提前创建的未来月份分区数
+         */
+        private int futurePartitions = 3;
+
+        /**
+         * 执行时间（cron），默认每天凌晨 3:30
+         */
+        private String cron = "0 30 3 * * *";
+
+        /**
+         * 按该时区的自然月切分分区
+         */
+        private String zone = "Asia/Shanghai";
+    }
+}
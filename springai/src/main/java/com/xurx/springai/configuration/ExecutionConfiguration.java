@@ -0,0 +1,43 @@
+package com.xurx.springai.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 阻塞调用（MyBatis、意图识别、Redis）的执行模式
+ * 由 spring.threads.virtual.enabled 统一切换：开启后 Tomcat 请求线程与下面的 Reactor 调度器都使用虚拟线程
+ */
+@Configuration
+@Slf4j
+public class ExecutionConfiguration {
+
+    public static final String BLOCKING_SCHEDULER = "blockingScheduler";
+
+    /**
+     * 虚拟线程模式：每个阻塞任务一个虚拟线程，并发 SSE 流不再受限于 boundedElastic 的线程上限
+     */
+    @Bean(name = BLOCKING_SCHEDULER, destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualThreadScheduler() {
+        log.info("阻塞调用使用虚拟线程调度器");
+        return Schedulers.fromExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-vt-", 0).factory()),
+                "blocking-vt");
+    }
+
+    /**
+     * 平台线程模式：沿用 Reactor 全局 boundedElastic（全局共享，不随容器销毁）
+     */
+    @Bean(name = BLOCKING_SCHEDULER, destroyMethod = "")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler boundedElasticScheduler() {
+        return Schedulers.boundedElastic();
+    }
+}
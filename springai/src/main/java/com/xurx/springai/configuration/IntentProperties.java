@@ -0,0 +1,82 @@
+package com.xurx.springai.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "intent")
+public class IntentProperties {
+
+    private FastPath fastPath = new FastPath();
+
+    private Cache cache = new Cache();
+
+    /**
+     * 关键词 / 正则规则：意图 → 正则列表
+     */
+    private Map<String, List<String>> rules = new LinkedHashMap<>();
+
+    @Data
+    public static class FastPath {
+        /**
+         * 是否启用本地快速通道
+         */
+        private boolean enabled = true;
+
+        /**
+         * 快速通道结果的最低置信度，低于该值时回退到大模型
+         */
+        private double confidenceThreshold = 0.9;
+
+        /**
+         * 规则命中时给出的置信度
+         */
+        private double ruleConfidence = 0.95;
+
+        private Embedding embedding = new Embedding();
+    }
+
+    @Data
+    public static class Embedding {
+        /**
+         * 是否启用示例语句最近邻分类（启动时会调用 Embedding 模型向量化示例）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 带标注的示例语句
+         */
+        private Resource examples = new ClassPathResource("intent/intent-examples.csv");
+
+        /**
+         * 最近邻与其他类别最高相似度之间的最小差距，差距过小时视为无法判断
+         */
+        private double margin = 0.05;
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * 是否缓存大模型意图识别结果
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数（W-TinyLFU 淘汰）
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 写入后过期时间
+         */
+        private Duration ttl = Duration.ofHours(1);
+    }
+}
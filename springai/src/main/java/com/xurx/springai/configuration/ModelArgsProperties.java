@@ -2,7 +2,9 @@ package com.xurx.springai.configuration;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.Map;
 
 @Data
@@ -10,15 +12,97 @@ import java.util.Map;
 public class ModelArgsProperties {
     private Map<String, ModelCfg> models;
 
+    /**
+     * 请求在模型舱壁中排队时，是否以 step 事件推送排队位置
+     */
+    private boolean reportQueuePosition = true;
+
     @Data
     public static class ModelCfg {
         private String name;
         private String apiKey;
         private String baseUrl;
         private Integer dimensions;
+
+        /**
+         * 舱壁：同时调用该模型的最大请求数，为空表示不限制
+         */
+        private Integer maxConcurrent;
+
+        /**
+         * 舱壁排队上限，队列已满时立即拒绝
+         */
+        private int queueSize = 0;
+
+        /**
+         * 舱壁中排队的最长时间，超时后拒绝
+         */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 调用该模型的 HTTP 连接池，按 base-url 的主机划分，同一主机的模型共用第一个模型的配置；
+         * 为空时使用默认 HTTP 客户端，配置后必须同时配置 base-url
+         */
+        private Transport transport;
+    }
+
+    @Data
+    public static class Transport {
+
+        /**
+         * 连接池最大连接数（HTTP/2 下为最大连接数，每个连接可复用多个流）
+         */
+        private int maxConnections = 50;
+
+        /**
+         * 等待空闲连接的请求上限，超出后立即失败
+         */
+        private int pendingAcquireMaxCount = 200;
+
+        /**
+         * 等待空闲连接的最长时间
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 是否复用连接（HTTP keep-alive 与 TCP keep-alive）
+         */
+        private boolean keepAlive = true;
+
+        /**
+         * 空闲连接的最长保留时间，应小于服务端的空闲断开时间
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * 连接的最长存活时间，到期后不再复用，便于跟随服务端的 DNS 切换
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        /**
+         * 是否协商 HTTP/2（https 通过 ALPN，http 使用 h2c），服务端不支持时退回 HTTP/1.1
+         */
+        private boolean http2 = false;
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 两次读取之间的最长间隔；非流式调用需要覆盖整个生成耗时
+         */
+        private Duration readTimeout = Duration.ofMinutes(2);
+
+        /**
+         * 响应解码缓冲区的初始大小，流式响应多为小分片，较小的缓冲区可减少每个连接的内存占用
+         */
+        private DataSize responseBufferSize = DataSize.ofBytes(128);
+
+        /**
+         * 启动时预先建立的连接数，0 表示不预热
+         */
+        private int warmupConnections = 2;
     }
 
     public ModelCfg getModelCfg(String key) {
-        return models.get(key);
+        return models != null ? models.get(key) : null;
     }
 }
@@ -0,0 +1,32 @@
+package com.xurx.springai.configuration;
+
+import com.xurx.springai.routing.ModelHttpTransports;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 百炼、DeepSeek、智谱的模型由自动配置通过容器中的 RestClient.Builder / WebClient.Builder 创建，
+ * 这里让两种 Builder 都使用按主机划分的模型连接池
+ * 与 ChatClientConfiguration 分开声明：后者注入模型实例，模型创建时又依赖这里的定制器
+ */
+@Configuration
+public class ModelTransportConfiguration {
+
+    /**
+     * 模型的阻塞调用
+     */
+    @Bean
+    public RestClientCustomizer modelTransportRestClientCustomizer(ModelHttpTransports modelHttpTransports) {
+        return builder -> builder.requestFactory(modelHttpTransports.requestFactory());
+    }
+
+    /**
+     * 模型的流式调用
+     */
+    @Bean
+    public WebClientCustomizer modelTransportWebClientCustomizer(ModelHttpTransports modelHttpTransports) {
+        return builder -> builder.clientConnector(modelHttpTransports.connector());
+    }
+}
@@ -0,0 +1,19 @@
+package com.xurx.springai.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "prompts")
+public class PromptProperties {
+
+    /**
+     * 外部提示词目录，其中的同名 .txt 文件覆盖 classpath:prompts/ 下的模板
+     */
+    private String externalDir;
+
+    /**
+     * 是否监听外部目录并热更新模板
+     */
+    private boolean watch = true;
+}
@@ -0,0 +1,31 @@
+package com.xurx.springai.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "user")
+public class UserProperties {
+
+    private Cache cache = new Cache();
+
+    @Data
+    public static class Cache {
+        /**
+         * 是否缓存已确认存在的用户ID，关闭后每次 /chat 都执行一次 upsert
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多缓存的用户ID数量
+         */
+        private long maximumSize = 100000;
+
+        /**
+         * 缓存有效期
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+}
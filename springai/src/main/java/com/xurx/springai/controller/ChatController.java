@@ -1,26 +1,43 @@
 package com.xurx.springai.controller;
 
-import com.xurx.springai.advisor.MetricAdvisor;
+import com.xurx.springai.configuration.ExecutionConfiguration;
 import com.xurx.springai.dto.ChatRequest;
+import com.xurx.springai.dto.CursorPage;
+import com.xurx.springai.dto.TokenUsage;
 import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.entity.ChatSession;
+import com.xurx.springai.routing.BulkheadFullException;
+import com.xurx.springai.routing.ModelRouter;
+import com.xurx.springai.service.ChatRecordExportService;
 import com.xurx.springai.service.ChatRecordService;
+import com.xurx.springai.service.ChatSessionService;
 import com.xurx.springai.service.IntentGraphService;
 import com.xurx.springai.service.UserService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xurx.springai.utils.ChatStreamEventWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RequestMapping("/chat")
@@ -29,10 +46,15 @@ import java.util.UUID;
 public class ChatController {
 
     // 模型路由
-    private final Map<String, ChatClient> chatClientMap;
+    private final ModelRouter modelRouter;
     private final UserService userService;
     private final ChatRecordService chatRecordService;
+    private final ChatSessionService chatSessionService;
+    private final ChatRecordExportService chatRecordExportService;
     private final IntentGraphService intentGraphService;
+    private final ChatStreamEventWriter chatStreamEventWriter;
+    @Qualifier(ExecutionConfiguration.BLOCKING_SCHEDULER)
+    private final Scheduler blockingScheduler;
 
     @PostMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatPost(@RequestBody ChatRequest chatRequest) {
@@ -43,86 +65,141 @@ public class ChatController {
 
         log.info("请求参数 message: {}  model: {}  userId: {}  sessionId: {}", message, model, userId, sessionId);
 
-        // 确保用户存在
-        if (userId != null && !userId.isEmpty()) {
-            userService.getOrCreateUser(userId);
-        }
-
         // 如果没有提供sessionId，则生成新的会话ID
         if (sessionId == null || sessionId.isEmpty()) {
             sessionId = UUID.randomUUID().toString();
             log.info("生成新的会话ID: {}", sessionId);
         }
 
-        // 保存用户消息
-        if (userId != null && !userId.isEmpty()) {
-            chatRecordService.saveChatRecord(userId, sessionId, "user", message, model, null);
-        }
+        String finalSessionId = sessionId;
+        boolean hasUser = userId != null && !userId.isEmpty();
+
+        // 确保用户存在并保存用户消息（MyBatis 阻塞调用，放到阻塞调度器上执行，不占用请求线程）
+        Mono<Void> saveUserMessage = Mono.<Void>fromRunnable(() -> {
+                    if (hasUser) {
+                        userService.ensureUserExists(userId);
+                        chatRecordService.saveChatRecord(userId, finalSessionId, "user", message, model, null);
+                    }
+                })
+                .subscribeOn(blockingScheduler);
 
         // 检查模型是否存在
-        if (!chatClientMap.containsKey(model)) {
+        if (!modelRouter.isRoutable(model)) {
             log.error("模型 {} 未找到", model);
-            return Flux.just(ServerSentEvent.<String>builder()
+            return saveUserMessage.thenMany(Flux.just(ServerSentEvent.<String>builder()
                 .event("response")
                 .data("{\"content\":\"模型未找到，请检查模型名称。\"}")
-                .build());
+                .build()));
         }
 
-        String finalSessionId = sessionId;
-        String finalUserId = userId;
-        ObjectMapper mapper = new ObjectMapper();
-
         // 通过 Graph 编排执行意图识别 + 条件路由（SSE 分步推送）
         StringBuilder responseAccumulator = new StringBuilder();
-
-        return intentGraphService.executeWithSteps(message, model)
-            .doOnNext(sse -> {
-                if ("token".equals(sse.event())) {
-                    try {
-                        @SuppressWarnings("unchecked")
-                        Map<String, String> data = mapper.readValue(sse.data(), Map.class);
-                        String tokenContent = data.get("content");
-                        if (tokenContent != null) {
-                            responseAccumulator.append(tokenContent);
-                        }
-                    } catch (Exception e) {
-                        log.error("解析 token 事件失败", e);
+        AtomicReference<TokenUsage> usage = new AtomicReference<>();
+
+        // 流正常结束后保存助手回复（连同 done 事件带回的 token 用量）
+        Mono<ServerSentEvent<String>> saveAssistantMessage = Mono.<ServerSentEvent<String>>fromRunnable(() -> {
+                    String fullResponse = responseAccumulator.toString();
+                    if (!fullResponse.isEmpty() && hasUser) {
+                        TokenUsage tokenUsage = usage.get();
+                        chatRecordService.saveChatRecord(userId, finalSessionId, "assistant", fullResponse, model,
+                                tokenUsage != null ? tokenUsage.totalTokens() : null);
                     }
+                })
+                .subscribeOn(blockingScheduler);
+
+        return saveUserMessage
+            .thenMany(intentGraphService.executeWithSteps(message, model, finalSessionId))
+            .doOnNext(event -> {
+                if (event.isToken() && event.getContent() != null) {
+                    responseAccumulator.append(event.getContent());
+                } else if (event.isDone()) {
+                    usage.set(event.getUsage());
                 }
             })
-            .doOnComplete(() -> {
-                String fullResponse = responseAccumulator.toString();
-                if (!fullResponse.isEmpty() && finalUserId != null && !finalUserId.isEmpty()) {
-                    chatRecordService.saveChatRecord(finalUserId, finalSessionId, "assistant", fullResponse, model, null);
-                }
-            });
+            .map(chatStreamEventWriter::toServerSentEvent)
+            .concatWith(saveAssistantMessage);
+    }
+
+    /**
+     * 分页获取用户的会话列表（最近活跃的在前），每页只读 chat_session 上的一段索引
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<CursorPage<ChatSession>> getSessions(@RequestParam String userId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        log.info("获取用户会话列表: userId={}, cursor={}, limit={}", userId, cursor, limit);
+        try {
+            return ResponseEntity.ok(chatSessionService.getSessionsByUserId(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
-     * 获取用户的聊天记录
+     * 分页获取用户的聊天记录（按会话分组，每个会话内从最新消息往前）
+     * 首次请求不带 cursor，之后把上一页返回的 nextCursor 原样传回以加载更早的记录
      */
     @GetMapping("/history")
-    public ResponseEntity<List<ChatRecord>> getChatHistory(@RequestParam String userId) {
-        log.info("获取用户聊天记录: userId={}", userId);
-        List<ChatRecord> records = chatRecordService.getChatRecordsByUserId(userId);
-        log.info("找到 {} 条聊天记录", records.size());
-        return ResponseEntity.ok(records);
+    public ResponseEntity<CursorPage<ChatRecord>> getChatHistory(@RequestParam String userId,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "50") int limit) {
+        log.info("获取用户聊天记录: userId={}, cursor={}, limit={}", userId, cursor, limit);
+        try {
+            CursorPage<ChatRecord> page = chatRecordService.getChatRecordsByUserId(userId, cursor, limit);
+            log.info("找到 {} 条聊天记录, hasMore={}", page.getItems().size(), page.isHasMore());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
-     * 获取指定会话的聊天记录
+     * 分页获取指定会话的聊天记录（从最新消息往前）
      */
     @GetMapping("/history/{sessionId}")
-    public ResponseEntity<List<ChatRecord>> getChatHistoryBySession(
+    public ResponseEntity<CursorPage<ChatRecord>> getChatHistoryBySession(
             @PathVariable String sessionId,
-            @RequestParam String userId) {
-        log.info("获取会话聊天记录: userId={}, sessionId={}", userId, sessionId);
-        List<ChatRecord> records = chatRecordService.getChatRecordsByUserIdAndSessionId(userId, sessionId);
-        return ResponseEntity.ok(records);
+            @RequestParam String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("获取会话聊天记录: userId={}, sessionId={}, cursor={}, limit={}", userId, sessionId, cursor, limit);
+        try {
+            return ResponseEntity.ok(chatRecordService.getChatRecordsByUserIdAndSessionId(userId, sessionId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
-     * 删除指定会话的聊天记录
+     * 导出聊天记录为 NDJSON（每行一条 JSON），可按用户和/或时间范围 [from, to) 过滤，至少指定一个条件
+     * 结果边查边写，直接写入响应流；在请求线程上同步执行，不受异步请求超时限制
+     *
+     * @param gzip 是否 gzip 压缩
+     */
+    @GetMapping("/export")
+    public void exportChatRecords(@RequestParam(required = false) String userId,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                  @RequestParam(defaultValue = "false") boolean gzip,
+                                  HttpServletResponse response) throws IOException {
+        log.info("导出聊天记录: userId={}, from={}, to={}, gzip={}", userId, from, to, gzip);
+        if ((userId == null || userId.isBlank()) && from == null && to == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "userId、from、to 至少指定一个");
+            return;
+        }
+        String filename = "chat-records.ndjson" + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream();
+        try (out) {
+            chatRecordExportService.export(userId, from, to, out);
+        }
+    }
+
+    /**
+     * 删除指定会话的聊天记录：会话立即从列表中移除，聊天记录在后台分块删除，因此返回 202
      */
     @DeleteMapping("/conversations/{sessionId}")
     public ResponseEntity<Void> deleteConversation(@PathVariable String sessionId) {
@@ -131,7 +208,7 @@ public class ChatController {
             return ResponseEntity.badRequest().build();
         }
         chatRecordService.deleteChatRecordsBySessionId(sessionId);
-        return ResponseEntity.noContent().build();
+        return ResponseEntity.accepted().build();
     }
 
     /**
@@ -143,13 +220,11 @@ public class ChatController {
         String model = chatRequest.getModel();
         log.info("统计 token 使用情况接口: prompt={}", prompt);
 
-        MetricAdvisor metricAdvisor = new MetricAdvisor();
-        ChatClient chatClient = chatClientMap.get(model);
-        ChatResponse chatResponse = chatClient.prompt()
-                .advisors(metricAdvisor)
+        // 指标由客户端默认的 MetricAdvisor 记录
+        ChatResponse chatResponse = modelRouter.call(modelRouter.resolve(model), chatClient -> chatClient.prompt()
                 .user(prompt)
                 .call()
-                .chatResponse();
+                .chatResponse());
         Usage usage = chatResponse.getMetadata().getUsage();
 
         return Map.of(
@@ -159,4 +234,15 @@ public class ChatController {
                 "totalTokens", usage.getTotalTokens()
         );
     }
+
+    /**
+     * 模型舱壁已满（非流式接口），返回 429；流式接口以 SSE error 事件返回
+     */
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<Map<String, String>> handleBulkheadFull(BulkheadFullException e) {
+        log.warn("请求被舱壁拒绝: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+    }
 }
@@ -1,11 +1,24 @@
 package com.xurx.springai.controller;
 
+import com.xurx.springai.intent.IntentEvaluationReport;
+import com.xurx.springai.intent.IntentEvaluator;
+import com.xurx.springai.intent.IntentRecognitionService;
+import com.xurx.springai.intent.LabelledUtterance;
 import com.xurx.springai.service.IntentGraphService;
+import com.xurx.springai.utils.ChatStreamEventWriter;
 import lombok.AllArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/graph")
@@ -13,10 +26,42 @@ import org.springframework.web.bind.annotation.RestController;
 public class GraphController {
 
     private final IntentGraphService intentGraphService;
+    private final IntentEvaluator intentEvaluator;
+    private final IntentRecognitionService intentRecognitionService;
+    private final ChatStreamEventWriter chatStreamEventWriter;
 
     @GetMapping("/test")
     public String test(@RequestParam(defaultValue = "你好") String message,
                        @RequestParam(defaultValue = "qwen") String model) {
         return intentGraphService.execute(message, model);
     }
+
+    /**
+     * 流式执行意图识别图：节点步骤事件 + 流式 token + 完成事件（不保存聊天记录）
+     */
+    @GetMapping(value = "/test/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> testStream(@RequestParam(defaultValue = "你好") String message,
+                                                    @RequestParam(defaultValue = "qwen") String model) {
+        return intentGraphService.executeWithSteps(message, model)
+                .map(chatStreamEventWriter::toServerSentEvent);
+    }
+
+    /**
+     * 回放标注样本集，评估意图识别快速通道（llm=true 时同时对比大模型基线）
+     */
+    @GetMapping("/intent/evaluate")
+    public IntentEvaluationReport evaluateIntent(@RequestParam(defaultValue = "qwen") String model,
+                                                 @RequestParam(defaultValue = "false") boolean llm) throws IOException {
+        return intentEvaluator.evaluate(
+                LabelledUtterance.loadCsv(new ClassPathResource("intent/intent-eval.csv")), model, llm);
+    }
+
+    /**
+     * 清空意图识别结果缓存（修改意图提示词后调用）
+     */
+    @PostMapping("/intent/cache/invalidate")
+    public ResponseEntity<Void> invalidateIntentCache() {
+        intentRecognitionService.invalidateCache();
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,32 @@
+package com.xurx.springai.controller;
+
+import com.xurx.springai.service.GraphNodeMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 意图图各节点 / 阶段最近的耗时分位数：GET /actuator/graphnodes、/actuator/graphnodes/{node}
+ */
+@Component
+@Endpoint(id = "graphnodes")
+@RequiredArgsConstructor
+public class GraphNodeEndpoint {
+
+    private final GraphNodeMetrics graphNodeMetrics;
+
+    @ReadOperation
+    public Map<String, GraphNodeMetrics.NodeLatency> nodes() {
+        return new TreeMap<>(graphNodeMetrics.snapshot());
+    }
+
+    @ReadOperation
+    public GraphNodeMetrics.NodeLatency node(@Selector String node) {
+        return graphNodeMetrics.snapshot().get(node);
+    }
+}
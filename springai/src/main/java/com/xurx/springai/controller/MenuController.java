@@ -1,5 +1,6 @@
 package com.xurx.springai.controller;
 
+import com.xurx.springai.service.SemanticCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
@@ -26,6 +27,7 @@ public class MenuController {
 
     private final VectorStore vectorStore;
     private final Map<String, ChatClient> chatClientMap;
+    private final SemanticCacheService semanticCacheService;
 
 
     @PostMapping("/importData")
@@ -57,6 +59,8 @@ public class MenuController {
             csvParser.close();
 
             vectorStore.add(documents);
+            // 知识库已变更，使语义缓存中的旧答案失效
+            semanticCacheService.invalidateKnowledgeBase();
 
             return "成功导入 " + documents.size() + " 条菜谱问答数据。";
 
@@ -1,5 +1,6 @@
 package com.xurx.springai.controller;
 
+import com.xurx.springai.service.SemanticCacheService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
@@ -15,11 +16,13 @@ import java.util.List;
 public class RagController {
 
     private final VectorStore vectorStore;
+    private final SemanticCacheService semanticCacheService;
 
     @PostMapping("/importData")
     public String importData(String data) {
         Document document = Document.builder().text(data).build();
         vectorStore.add(List.of(document));
+        semanticCacheService.invalidateKnowledgeBase();
         return "Data imported successfully";
     }
 }
@@ -0,0 +1,57 @@
+package com.xurx.springai.dto;
+
+import com.xurx.springai.entity.ChatRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 聊天记录分页游标，对应索引 (user_id, session_id, create_time, id) 上的位置
+ * 对外编码为不透明的 Base64 字符串
+ *
+ * @param sessionId  会话ID
+ * @param createTime 创建时间
+ * @param id         主键
+ */
+public record ChatRecordCursor(String sessionId, LocalDateTime createTime, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static ChatRecordCursor of(ChatRecord chatRecord) {
+        return new ChatRecordCursor(chatRecord.getSessionId(), chatRecord.getCreateTime(), chatRecord.getId());
+    }
+
+    public String encode() {
+        String raw = sessionId + SEPARATOR + createTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标字符串，为空表示第一页
+     * @return 游标，第一页返回 null
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static ChatRecordCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // 会话ID由客户端生成，可能包含分隔符，从右往左解析
+            int idStart = raw.lastIndexOf(SEPARATOR);
+            int timeStart = raw.lastIndexOf(SEPARATOR, idStart - 1);
+            if (timeStart < 0) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new ChatRecordCursor(raw.substring(0, timeStart),
+                    LocalDateTime.parse(raw.substring(timeStart + 1, idStart)),
+                    Long.parseLong(raw.substring(idStart + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
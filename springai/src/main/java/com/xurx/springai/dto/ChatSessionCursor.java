@@ -0,0 +1,53 @@
+package com.xurx.springai.dto;
+
+import com.xurx.springai.entity.ChatSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 会话列表分页游标，对应索引 (user_id, update_time, id) 上的位置
+ * 对外编码为不透明的 Base64 字符串
+ *
+ * @param updateTime 最后更新时间
+ * @param id         主键
+ */
+public record ChatSessionCursor(LocalDateTime updateTime, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static ChatSessionCursor of(ChatSession chatSession) {
+        return new ChatSessionCursor(chatSession.getUpdateTime(), chatSession.getId());
+    }
+
+    public String encode() {
+        String raw = updateTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标字符串，为空表示第一页
+     * @return 游标，第一页返回 null
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static ChatSessionCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int idStart = raw.indexOf(SEPARATOR);
+            if (idStart < 0) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new ChatSessionCursor(LocalDateTime.parse(raw.substring(0, idStart)),
+                    Long.parseLong(raw.substring(idStart + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.xurx.springai.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 聊天流式事件
+ * 在整条 /chat 流水线中保持类型化，只在 SSE 出口处序列化一次
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatStreamEvent {
+
+    /**
+     * 事件类型，对应 SSE 的 event 字段，不参与 data 序列化
+     */
+    @JsonIgnore
+    private Type type;
+
+    /**
+     * 步骤事件：节点名称
+     */
+    private String node;
+
+    /**
+     * 步骤事件：节点状态（processing / complete）
+     */
+    private String status;
+
+    /**
+     * 步骤事件：识别出的意图
+     */
+    private String intent;
+
+    /**
+     * 步骤 / 错误事件：提示信息
+     */
+    private String message;
+
+    /**
+     * token 事件：模型输出片段
+     */
+    private String content;
+
+    /**
+     * 完成事件：本次回答的 token 用量（语义缓存命中等未调用模型时为空）
+     */
+    private TokenUsage usage;
+
+    public static ChatStreamEvent step(String node, String status, String intent, String message) {
+        return new ChatStreamEvent(Type.STEP, node, status, intent, message, null, null);
+    }
+
+    public static ChatStreamEvent token(String content) {
+        return new ChatStreamEvent(Type.TOKEN, null, null, null, null, content, null);
+    }
+
+    public static ChatStreamEvent done(TokenUsage usage) {
+        return new ChatStreamEvent(Type.DONE, null, null, null, null, null, usage);
+    }
+
+    public static ChatStreamEvent error(String message) {
+        return new ChatStreamEvent(Type.ERROR, null, null, null, message, null, null);
+    }
+
+    @JsonIgnore
+    public boolean isToken() {
+        return type == Type.TOKEN;
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return type == Type.DONE;
+    }
+
+    public enum Type {
+        STEP("step"),
+        TOKEN("token"),
+        DONE("done"),
+        ERROR("error");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public String getEventName() {
+            return eventName;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.xurx.springai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（keyset）分页结果
+ * 前端把 nextCursor 原样传回即可加载下一页（更早的数据），hasMore 为 false 时表示已到末页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> items;
+
+    /**
+     * 下一页游标，末页为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 由多查一条的结果构造分页：rows 超过 limit 说明还有下一页，游标取当前页最后一条
+     *
+     * @param rows     按 limit + 1 查询的结果
+     * @param limit    每页条数
+     * @param cursorOf 由行生成游标
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, cursorOf.apply(items.get(limit - 1)), true);
+    }
+}
@@ -0,0 +1,14 @@
+package com.xurx.springai.dto;
+
+/**
+ * 一次模型调用的 token 用量
+ *
+ * @param promptTokens     输入 token 数
+ * @param completionTokens 输出 token 数（模型未返回用量时按输出片段数估算）
+ */
+public record TokenUsage(int promptTokens, int completionTokens) {
+
+    public int totalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
@@ -0,0 +1,26 @@
+package com.xurx.springai.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 聊天记录删除任务，同时作为已删除会话 / 用户的墓碑：
+ * 任务完成后保留该行，查询与写入据此过滤已删除的会话，直到过期清理任务将其删除
+ */
+@Data
+public class ChatRecordPurge {
+    private Long id;
+    /**
+     * 删除范围：session / user
+     */
+    private String scope;
+    /**
+     * 会话ID或用户ID
+     */
+    private String targetId;
+    private LocalDateTime createTime;
+    /**
+     * 聊天记录删除完成时间，为空表示待执行
+     */
+    private LocalDateTime finishTime;
+}
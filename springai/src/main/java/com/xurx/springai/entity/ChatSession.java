@@ -0,0 +1,27 @@
+package com.xurx.springai.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 会话摘要，随聊天记录写入同步维护，会话列表直接读取该表而不再扫描 chat_record
+ */
+@Data
+public class ChatSession {
+    private Long id;
+    private String userId;
+    private String sessionId;
+    /**
+     * 会话标题，取第一条用户消息
+     */
+    private String title;
+    /**
+     * 最后一条消息预览
+     */
+    private String lastMessage;
+    private Integer messageCount;
+    private String lastModel;
+    private Long totalTokens;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,19 @@
+package com.xurx.springai.entity;
+
+import lombok.Data;
+
+/**
+ * information_schema.PARTITIONS 中的一个 RANGE 分区
+ */
+@Data
+public class TablePartition {
+    private String name;
+    /**
+     * 分区上界（VALUES LESS THAN），UNIX 时间戳秒；MAXVALUE 分区为 null
+     */
+    private Long lessThan;
+    /**
+     * 估算行数
+     */
+    private Long tableRows;
+}
@@ -0,0 +1,126 @@
+package com.xurx.springai.intent;
+
+import com.xurx.springai.configuration.IntentProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 示例语句最近邻意图分类器
+ * 启动时将标注示例向量化并归一化后常驻内存，分类时只需向量化用户输入一次
+ */
+@Slf4j
+@Order(10)
+@Component
+public class EmbeddingIntentClassifier implements IntentClassifier {
+
+    private final EmbeddingModel embeddingModel;
+    private final IntentProperties.Embedding properties;
+
+    private volatile float[][] vectors = new float[0][];
+    private volatile String[] labels = new String[0];
+
+    public EmbeddingIntentClassifier(EmbeddingModel embeddingModel, IntentProperties intentProperties) {
+        this.embeddingModel = embeddingModel;
+        this.properties = intentProperties.getFastPath().getEmbedding();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            List<LabelledUtterance> examples = LabelledUtterance.loadCsv(properties.getExamples()).stream()
+                    .filter(e -> VALID_INTENTS.contains(e.intent()))
+                    .toList();
+            List<float[]> embeddings = embeddingModel.embed(examples.stream().map(LabelledUtterance::message).toList());
+            float[][] loadedVectors = new float[examples.size()][];
+            String[] loadedLabels = new String[examples.size()];
+            for (int i = 0; i < examples.size(); i++) {
+                loadedVectors[i] = normalize(embeddings.get(i));
+                loadedLabels[i] = examples.get(i).intent();
+            }
+            this.vectors = loadedVectors;
+            this.labels = loadedLabels;
+            log.info("[向量分类] 已加载 {} 条示例语句", loadedLabels.length);
+        } catch (Exception e) {
+            // 示例加载失败不影响启动，快速通道只剩规则分类
+            log.warn("[向量分类] 示例语句加载失败，已禁用向量分类", e);
+        }
+    }
+
+    @Override
+    public IntentResult classify(String message, String model) {
+        float[][] currentVectors = this.vectors;
+        String[] currentLabels = this.labels;
+        if (currentVectors.length == 0 || message == null || message.isBlank()) {
+            return null;
+        }
+
+        float[] query = normalize(embeddingModel.embed(message));
+
+        // 每个意图取最近邻相似度
+        Map<String, Double> bestByIntent = new HashMap<>();
+        for (int i = 0; i < currentVectors.length; i++) {
+            double similarity = dot(query, currentVectors[i]);
+            bestByIntent.merge(currentLabels[i], similarity, Math::max);
+        }
+
+        String bestIntent = null;
+        double best = -1;
+        double second = -1;
+        for (Map.Entry<String, Double> entry : bestByIntent.entrySet()) {
+            double similarity = entry.getValue();
+            if (similarity > best) {
+                second = best;
+                best = similarity;
+                bestIntent = entry.getKey();
+            } else if (similarity > second) {
+                second = similarity;
+            }
+        }
+
+        // 不同意图之间区分度不够时放弃判断
+        if (bestIntent == null || best - second < properties.getMargin()) {
+            return null;
+        }
+        return new IntentResult(bestIntent, best, getName());
+    }
+
+    @Override
+    public String getName() {
+        return "embedding";
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xurx.springai.intent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xurx.springai.configuration.IntentProperties;
+import com.xurx.springai.prompt.PromptReloadedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 意图识别结果缓存
+ * 以（模型, 规范化后的用户输入）为键缓存大模型给出的意图，命中 / 未命中 / 淘汰指标通过 cache.* 系列指标暴露
+ */
+@Slf4j
+@Component
+public class IntentCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}。，！？、；：…～~\\s]+$");
+
+    private final boolean enabled;
+    private final Cache<String, String> cache;
+
+    public IntentCache(IntentProperties intentProperties, MeterRegistry meterRegistry) {
+        IntentProperties.Cache properties = intentProperties.getCache();
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "intent");
+    }
+
+    /**
+     * 查询缓存的意图
+     *
+     * @return 缓存的意图，未命中或缓存关闭时返回 null
+     */
+    public String get(String message, String model) {
+        if (!enabled || message == null) {
+            return null;
+        }
+        return cache.getIfPresent(key(message, model));
+    }
+
+    /**
+     * 写入意图，只接受合法意图
+     */
+    public void put(String message, String model, String intent) {
+        if (!enabled || message == null || !IntentClassifier.VALID_INTENTS.contains(intent)) {
+            return;
+        }
+        cache.put(key(message, model), intent);
+    }
+
+    /**
+     * 清空缓存（意图提示词变更后调用）
+     */
+    public void invalidateAll() {
+        log.info("[意图缓存] 清空 {} 条缓存", cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    /**
+     * 意图分类提示词热更新后，旧的分类结果不再可信
+     */
+    @EventListener
+    public void onPromptReloaded(PromptReloadedEvent event) {
+        if (LlmIntentClassifier.PROMPT_NAME.equals(event.name())) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 规范化用户输入：去除首尾空白和结尾标点、合并连续空白、统一小写
+     */
+    static String normalize(String message) {
+        String text = WHITESPACE.matcher(message.trim()).replaceAll(" ");
+        text = TRAILING_PUNCTUATION.matcher(text).replaceAll("");
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String message, String model) {
+        return model + '\u0000' + normalize(message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.xurx.springai.intent;
+
+import java.util.Set;
+
+/**
+ * 意图分类器
+ * 所有实现按 @Order 顺序组成意图识别的快速通道，大模型分类器作为最终兜底
+ */
+public interface IntentClassifier {
+
+    /**
+     * 合法的意图类别
+     */
+    Set<String> VALID_INTENTS = Set.of("chitchat", "rag", "tool_call");
+
+    /**
+     * 无法识别时的默认意图
+     */
+    String DEFAULT_INTENT = "chitchat";
+
+    /**
+     * 对用户输入进行意图分类
+     *
+     * @param message 用户输入
+     * @param model   模型标识
+     * @return 分类结果，无法给出判断时返回 null
+     */
+    IntentResult classify(String message, String model);
+
+    /**
+     * 分类器名称，用于指标标签
+     */
+    String getName();
+}
@@ -0,0 +1,86 @@
+package com.xurx.springai.intent;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 意图识别离线评估报告
+ */
+@Data
+public class IntentEvaluationReport {
+
+    /**
+     * 评估样本数
+     */
+    private int total;
+
+    /**
+     * 快速通道给出结果的样本数
+     */
+    private int fastPathCovered;
+
+    /**
+     * 快速通道结果与标注一致的样本数
+     */
+    private int fastPathCorrect;
+
+    /**
+     * 快速通道结果与大模型一致的样本数
+     */
+    private int fastPathAgreeWithLlm;
+
+    /**
+     * 大模型结果与标注一致的样本数（未启用大模型基线时为 0）
+     */
+    private int llmCorrect;
+
+    /**
+     * 快速通道 + 大模型兜底的整体正确数（未启用大模型基线时只统计快速通道）
+     */
+    private int pipelineCorrect;
+
+    /**
+     * 是否包含大模型基线
+     */
+    private boolean llmBaseline;
+
+    /**
+     * 判断错误的样本
+     */
+    private List<Mismatch> mismatches = new ArrayList<>();
+
+    public double getFastPathCoverage() {
+        return ratio(fastPathCovered, total);
+    }
+
+    public double getFastPathAccuracy() {
+        return ratio(fastPathCorrect, fastPathCovered);
+    }
+
+    public double getFastPathAgreement() {
+        return ratio(fastPathAgreeWithLlm, fastPathCovered);
+    }
+
+    public double getLlmAccuracy() {
+        return ratio(llmCorrect, total);
+    }
+
+    public double getPipelineAccuracy() {
+        return ratio(pipelineCorrect, total);
+    }
+
+    private static double ratio(int numerator, int denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    /**
+     * @param message  用户输入
+     * @param expected 标注意图
+     * @param fastPath 快速通道结果（未命中为 null）
+     * @param llm      大模型结果（未启用基线为 null）
+     */
+    public record Mismatch(String message, String expected, String fastPath, String llm) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.xurx.springai.intent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 意图识别离线评估
+ * 回放带标注的样本集，统计快速通道的覆盖率、准确率以及与大模型基线的一致性
+ * 直接调用分类器，不经过线上识别链路的缓存，也不记录 ai.intent.* / ai.chat.* / ai.model.router.* 指标与模型健康样本
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IntentEvaluator {
+
+    private final IntentRecognitionService intentRecognitionService;
+
+    /**
+     * 评估样本集
+     *
+     * @param samples     带标注的样本
+     * @param model       大模型基线使用的模型标识
+     * @param llmBaseline 是否同时调用大模型作为基线
+     * @return 评估报告
+     */
+    public IntentEvaluationReport evaluate(List<LabelledUtterance> samples, String model, boolean llmBaseline) {
+        IntentEvaluationReport report = new IntentEvaluationReport();
+        report.setLlmBaseline(llmBaseline);
+
+        for (LabelledUtterance sample : samples) {
+            report.setTotal(report.getTotal() + 1);
+
+            IntentResult fastResult = intentRecognitionService.recognizeFastPathUnmetered(sample.message(), model);
+            String fastIntent = fastResult == null ? null : fastResult.getIntent();
+            String llmIntent = llmBaseline
+                    ? intentRecognitionService.getLlmIntentClassifier().classifyUnmetered(sample.message(), model).getIntent()
+                    : null;
+
+            if (fastIntent != null) {
+                report.setFastPathCovered(report.getFastPathCovered() + 1);
+                if (fastIntent.equals(sample.intent())) {
+                    report.setFastPathCorrect(report.getFastPathCorrect() + 1);
+                }
+                if (fastIntent.equals(llmIntent)) {
+                    report.setFastPathAgreeWithLlm(report.getFastPathAgreeWithLlm() + 1);
+                }
+            }
+            if (sample.intent().equals(llmIntent)) {
+                report.setLlmCorrect(report.getLlmCorrect() + 1);
+            }
+
+            String pipelineIntent = fastIntent != null ? fastIntent : llmIntent;
+            if (sample.intent().equals(pipelineIntent)) {
+                report.setPipelineCorrect(report.getPipelineCorrect() + 1);
+            } else if (fastIntent != null || llmBaseline) {
+                report.getMismatches().add(new IntentEvaluationReport.Mismatch(
+                        sample.message(), sample.intent(), fastIntent, llmIntent));
+            }
+        }
+
+        log.info("[意图评估] 样本={}, 快速通道覆盖率={}, 快速通道准确率={}, 大模型准确率={}, 整体准确率={}",
+                report.getTotal(), report.getFastPathCoverage(), report.getFastPathAccuracy(),
+                report.getLlmAccuracy(), report.getPipelineAccuracy());
+        return report;
+    }
+}
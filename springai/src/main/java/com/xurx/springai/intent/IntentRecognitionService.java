@@ -0,0 +1,153 @@
+package com.xurx.springai.intent;
+
+import com.xurx.springai.configuration.IntentProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 意图识别服务
+ * 先依次尝试本地快速通道分类器，置信度不足时才调用大模型
+ */
+@Slf4j
+@Service
+public class IntentRecognitionService {
+
+    private final List<IntentClassifier> fastPathClassifiers;
+    private final LlmIntentClassifier llmIntentClassifier;
+    private final IntentCache intentCache;
+    private final IntentProperties.FastPath fastPathProperties;
+
+    private final Counter fastPathHitCounter;
+    private final Counter fastPathMissCounter;
+    private final Timer fastPathTimer;
+    private final Map<String, Timer> classifierTimers = new HashMap<>();
+
+    public IntentRecognitionService(List<IntentClassifier> classifiers,
+                                    LlmIntentClassifier llmIntentClassifier,
+                                    IntentCache intentCache,
+                                    IntentProperties intentProperties,
+                                    MeterRegistry meterRegistry) {
+        this.fastPathClassifiers = classifiers.stream()
+                .filter(classifier -> classifier != llmIntentClassifier)
+                .toList();
+        this.llmIntentClassifier = llmIntentClassifier;
+        this.intentCache = intentCache;
+        this.fastPathProperties = intentProperties.getFastPath();
+
+        this.fastPathHitCounter = Counter.builder("ai.intent.fastpath")
+                .description("意图识别快速通道命中次数")
+                .tag("outcome", "hit")
+                .register(meterRegistry);
+        this.fastPathMissCounter = Counter.builder("ai.intent.fastpath")
+                .description("意图识别快速通道命中次数")
+                .tag("outcome", "miss")
+                .register(meterRegistry);
+        this.fastPathTimer = Timer.builder("ai.intent.fastpath.latency")
+                .description("意图识别快速通道耗时")
+                .register(meterRegistry);
+        for (IntentClassifier classifier : classifiers) {
+            classifierTimers.put(classifier.getName(), Timer.builder("ai.intent.classifier.latency")
+                    .description("单个意图分类器耗时")
+                    .tag("classifier", classifier.getName())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 识别用户意图
+     *
+     * @param message 用户输入
+     * @param model   模型标识（大模型兜底时使用）
+     * @return 分类结果
+     */
+    public IntentResult recognize(String message, String model) {
+        String cachedIntent = intentCache.get(message, model);
+        if (cachedIntent != null) {
+            log.info("[意图识别] 缓存命中：intent={}", cachedIntent);
+            return new IntentResult(cachedIntent, 1.0, "cache");
+        }
+
+        if (fastPathProperties.isEnabled()) {
+            IntentResult fastResult = recognizeFastPath(message, model);
+            if (fastResult != null) {
+                fastPathHitCounter.increment();
+                log.info("[意图识别] 快速通道命中：intent={}, source={}, confidence={}",
+                        fastResult.getIntent(), fastResult.getSource(), fastResult.getConfidence());
+                return fastResult;
+            }
+            fastPathMissCounter.increment();
+        }
+        IntentResult llmResult = timed(llmIntentClassifier, message, model);
+        // 只缓存大模型结果，快速通道本身足够廉价；模型输出无法识别而降级的结果不缓存，下次重新分类
+        if (!LlmIntentClassifier.FALLBACK_SOURCE.equals(llmResult.getSource())) {
+            intentCache.put(message, model, llmResult.getIntent());
+        }
+        return llmResult;
+    }
+
+    /**
+     * 只走快速通道，所有分类器都无法给出足够置信度时返回 null
+     */
+    public IntentResult recognizeFastPath(String message, String model) {
+        long start = System.nanoTime();
+        try {
+            return fastPath(message, model, true);
+        } finally {
+            fastPathTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 与 {@link #recognizeFastPath} 相同但不记录 ai.intent.* 指标，供离线评估回放样本使用
+     */
+    public IntentResult recognizeFastPathUnmetered(String message, String model) {
+        return fastPath(message, model, false);
+    }
+
+    private IntentResult fastPath(String message, String model, boolean metered) {
+        for (IntentClassifier classifier : fastPathClassifiers) {
+            IntentResult result;
+            try {
+                result = metered ? timed(classifier, message, model) : classifier.classify(message, model);
+            } catch (Exception e) {
+                log.warn("[意图识别] 分类器 {} 执行失败，跳过", classifier.getName(), e);
+                continue;
+            }
+            if (result != null && result.getConfidence() >= fastPathProperties.getConfidenceThreshold()) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private IntentResult timed(IntentClassifier classifier, String message, String model) {
+        Timer timer = classifierTimers.get(classifier.getName());
+        return timer.record(() -> classifier.classify(message, model));
+    }
+
+    /**
+     * 当前生效的快速通道分类器（按执行顺序）
+     */
+    public List<IntentClassifier> getFastPathClassifiers() {
+        return fastPathClassifiers;
+    }
+
+    public LlmIntentClassifier getLlmIntentClassifier() {
+        return llmIntentClassifier;
+    }
+
+    /**
+     * 意图提示词变更后清空缓存的识别结果
+     */
+    public void invalidateCache() {
+        intentCache.invalidateAll();
+    }
+}
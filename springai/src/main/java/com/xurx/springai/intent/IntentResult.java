@@ -0,0 +1,29 @@
+package com.xurx.springai.intent;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 意图分类结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntentResult {
+
+    /**
+     * 意图类别
+     */
+    private String intent;
+
+    /**
+     * 置信度（0 ~ 1）
+     */
+    private double confidence;
+
+    /**
+     * 给出结果的分类器名称
+     */
+    private String source;
+}
@@ -0,0 +1,43 @@
+package com.xurx.springai.intent;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 带意图标注的示例语句
+ *
+ * @param message 用户输入
+ * @param intent  标注的意图
+ */
+public record LabelledUtterance(String message, String intent) {
+
+    /**
+     * 从 CSV（表头：message,intent）加载标注语句
+     */
+    public static List<LabelledUtterance> loadCsv(Resource resource) throws IOException {
+        List<LabelledUtterance> utterances = new ArrayList<>();
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8);
+             CSVParser csvParser = CSVFormat.DEFAULT.builder()
+                     .setHeader()
+                     .setSkipHeaderRecord(true)
+                     .setIgnoreSurroundingSpaces(true)
+                     .setTrim(true)
+                     .build()
+                     .parse(reader)) {
+            for (CSVRecord record : csvParser) {
+                // 使用列索引而不是列名，避免BOM字符问题
+                utterances.add(new LabelledUtterance(record.get(0), record.get(1)));
+            }
+        }
+        return utterances;
+    }
+}
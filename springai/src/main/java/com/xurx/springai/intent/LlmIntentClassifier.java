@@ -0,0 +1,83 @@
+package com.xurx.springai.intent;
+
+import com.xurx.springai.advisor.MetricAdvisor;
+import com.xurx.springai.prompt.PromptRegistry;
+import com.xurx.springai.routing.ModelRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 大模型意图分类器
+ * 快速通道无法给出足够置信度时的兜底分类
+ */
+@Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Component
+public class LlmIntentClassifier implements IntentClassifier {
+
+    /**
+     * 意图分类提示词模板名称
+     */
+    public static final String PROMPT_NAME = "intent-classification";
+
+    /**
+     * 模型输出无法识别、降级为默认意图时的结果来源，置信度为 0，调用方不应缓存
+     */
+    public static final String FALLBACK_SOURCE = "llm_fallback";
+
+    private final ModelRouter modelRouter;
+    private final PromptRegistry promptRegistry;
+
+    public LlmIntentClassifier(ModelRouter modelRouter, PromptRegistry promptRegistry) {
+        this.modelRouter = modelRouter;
+        this.promptRegistry = promptRegistry;
+    }
+
+    @Override
+    public IntentResult classify(String message, String model) {
+        String intentPrompt = promptRegistry.render(PROMPT_NAME, Map.of("message", message));
+
+        // 请求的模型熔断或调用失败时由模型路由转移到备用模型
+        String output = modelRouter.call(model, chatClient -> chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "intent"))
+                .user(intentPrompt)
+                .call()
+                .content());
+        return toResult(output);
+    }
+
+    /**
+     * 离线评估使用：不经过路由统计与熔断，也不记录模型调用指标，评估流量不影响线上指标和路由决策
+     */
+    public IntentResult classifyUnmetered(String message, String model) {
+        String intentPrompt = promptRegistry.render(PROMPT_NAME, Map.of("message", message));
+        String output = modelRouter.callUnrouted(model, chatClient -> chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "intent")
+                        .param(MetricAdvisor.DISABLED, true))
+                .user(intentPrompt)
+                .call()
+                .content());
+        return toResult(output);
+    }
+
+    /**
+     * 把模型输出转换为分类结果；无法识别时降级为闲聊，并以 {@link #FALLBACK_SOURCE} 标记
+     */
+    IntentResult toResult(String output) {
+        String intent = output == null ? "" : output.trim().toLowerCase();
+        if (!VALID_INTENTS.contains(intent)) {
+            log.warn("[意图识别] 无法识别 '{}'，降级为闲聊", intent);
+            return new IntentResult(DEFAULT_INTENT, 0.0, FALLBACK_SOURCE);
+        }
+        return new IntentResult(intent, 1.0, getName());
+    }
+
+    @Override
+    public String getName() {
+        return "llm";
+    }
+}
@@ -0,0 +1,61 @@
+package com.xurx.springai.intent;
+
+import com.xurx.springai.configuration.IntentProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 关键词 / 正则规则意图分类器
+ * 规则在启动时预编译，命中即返回配置的规则置信度
+ */
+@Slf4j
+@Order(0)
+@Component
+public class RuleIntentClassifier implements IntentClassifier {
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final double ruleConfidence;
+
+    public RuleIntentClassifier(IntentProperties intentProperties) {
+        this.ruleConfidence = intentProperties.getFastPath().getRuleConfidence();
+        for (Map.Entry<String, List<String>> entry : intentProperties.getRules().entrySet()) {
+            String intent = entry.getKey();
+            if (!VALID_INTENTS.contains(intent)) {
+                log.warn("[规则分类] 忽略未知意图 '{}' 的规则", intent);
+                continue;
+            }
+            for (String regex : entry.getValue()) {
+                rules.add(new Rule(intent, Pattern.compile(regex, Pattern.CASE_INSENSITIVE)));
+            }
+        }
+        log.info("[规则分类] 已加载 {} 条意图规则", rules.size());
+    }
+
+    @Override
+    public IntentResult classify(String message, String model) {
+        if (message == null || message.isBlank()) {
+            return null;
+        }
+        String text = message.trim();
+        for (Rule rule : rules) {
+            if (rule.pattern().matcher(text).find()) {
+                return new IntentResult(rule.intent(), ruleConfidence, getName());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return "rule";
+    }
+
+    private record Rule(String intent, Pattern pattern) {
+    }
+}
@@ -1,9 +1,12 @@
 package com.xurx.springai.mapper;
 
+import com.xurx.springai.dto.ChatRecordCursor;
 import com.xurx.springai.entity.ChatRecord;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -15,9 +18,19 @@ public interface ChatRecordMapper {
     int insert(ChatRecord chatRecord);
 
     /**
-     * 根据userId查询聊天记录
+     * 多行批量插入聊天记录
      */
-    List<ChatRecord> selectByUserId(@Param("userId") String userId);
+    int insertBatch(@Param("records") List<ChatRecord> records);
+
+    /**
+     * 按游标分页查询用户的聊天记录，顺序为 (session_id, create_time, id) 倒序
+     *
+     * @param cursor 上一页最后一条的位置，第一页为 null
+     * @param limit  查询条数
+     */
+    List<ChatRecord> selectPageByUserId(@Param("userId") String userId,
+                                        @Param("cursor") ChatRecordCursor cursor,
+                                        @Param("limit") int limit);
 
     /**
      * 根据sessionId查询聊天记录
@@ -25,17 +38,40 @@ public interface ChatRecordMapper {
     List<ChatRecord> selectBySessionId(@Param("sessionId") String sessionId);
 
     /**
-     * 根据userId和sessionId查询聊天记录
+     * 按游标分页查询指定会话的聊天记录，顺序为 (create_time, id) 倒序，即从最新消息往前翻
+     *
+     * @param cursor 上一页最后一条的位置，第一页为 null
+     * @param limit  查询条数
+     */
+    List<ChatRecord> selectPageByUserIdAndSessionId(@Param("userId") String userId,
+                                                    @Param("sessionId") String sessionId,
+                                                    @Param("cursor") ChatRecordCursor cursor,
+                                                    @Param("limit") int limit);
+
+    /**
+     * 流式读取待导出的聊天记录，MySQL 驱动逐行返回，不在内存中缓存结果集
+     * 调用方需在事务内遍历并关闭游标，且遍历期间该连接不能执行其它语句
+     *
+     * @param userId 用户ID，为空表示不限
+     * @param from   起始时间（包含），为空表示不限
+     * @param to     结束时间（不包含），为空表示不限
+     */
+    Cursor<ChatRecord> selectForExport(@Param("userId") String userId,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+
+    /**
+     * 分块删除指定用户的聊天记录，每次最多 limit 行，返回值小于 limit 表示已删完
      */
-    List<ChatRecord> selectByUserIdAndSessionId(@Param("userId") String userId, @Param("sessionId") String sessionId);
+    int deleteChunkByUserId(@Param("userId") String userId, @Param("limit") int limit);
 
     /**
-     * 删除指定用户的聊天记录
+     * 分块删除指定会话的聊天记录，每次最多 limit 行，返回值小于 limit 表示已删完
      */
-    int deleteByUserId(@Param("userId") String userId);
+    int deleteChunkBySessionId(@Param("sessionId") String sessionId, @Param("limit") int limit);
 
     /**
-     * 删除指定会话的聊天记录
+     * 分块删除 before 之前的聊天记录（表未分区时的过期清理），每次最多 limit 行
      */
-    int deleteBySessionId(@Param("sessionId") String sessionId);
+    int deleteChunkBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
 }
@@ -0,0 +1,39 @@
+package com.xurx.springai.mapper;
+
+import com.xurx.springai.entity.ChatRecordPurge;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface ChatRecordPurgeMapper {
+
+    /**
+     * 登记删除任务；同一目标已有任务时重新置为待执行
+     */
+    int insert(@Param("scope") String scope, @Param("targetId") String targetId);
+
+    /**
+     * 查询未完成的删除任务
+     */
+    List<ChatRecordPurge> selectPending();
+
+    /**
+     * 返回 sessionIds 中已删除（有墓碑）的会话ID
+     * 加共享锁：与并发的 insert 串行，写入事务提交前删除请求无法登记，登记之后的写入一定能读到墓碑
+     */
+    List<String> selectPurgedSessionIds(@Param("sessionIds") Collection<String> sessionIds);
+
+    /**
+     * 标记删除任务完成，墓碑保留
+     */
+    int finish(@Param("scope") String scope, @Param("targetId") String targetId);
+
+    /**
+     * 分块删除 before 之前完成的删除任务，每次最多 limit 行
+     */
+    int deleteChunkFinishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,40 @@
+package com.xurx.springai.mapper;
+
+import com.xurx.springai.dto.ChatSessionCursor;
+import com.xurx.springai.entity.ChatSession;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ChatSessionMapper {
+
+    /**
+     * 按会话累加摘要：会话不存在时插入，已存在时累加消息数与 token 并刷新预览、模型和更新时间
+     *
+     * @param sessions 每个会话一行的增量，消息数与 token 为本批次的增量
+     */
+    int upsertBatch(@Param("sessions") List<ChatSession> sessions);
+
+    /**
+     * 按游标分页查询用户的会话，顺序为 (update_time, id) 倒序，即最近活跃的会话在前
+     *
+     * @param cursor 上一页最后一条的位置，第一页为 null
+     * @param limit  查询条数
+     */
+    List<ChatSession> selectPageByUserId(@Param("userId") String userId,
+                                         @Param("cursor") ChatSessionCursor cursor,
+                                         @Param("limit") int limit);
+
+    /**
+     * 删除指定会话的摘要
+     */
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+
+    /**
+     * 分块删除最后活跃时间早于 before 的会话摘要，每次最多 limit 行
+     */
+    int deleteChunkBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
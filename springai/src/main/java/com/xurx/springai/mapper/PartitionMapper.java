@@ -0,0 +1,45 @@
+package com.xurx.springai.mapper;
+
+import com.xurx.springai.entity.TablePartition;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 按月 RANGE 分区维护，表名与分区名只来自代码常量和 information_schema，不接受外部输入
+ */
+@Mapper
+public interface PartitionMapper {
+
+    /**
+     * 查询表的分区，按分区顺序排列；未分区的表返回空列表
+     */
+    List<TablePartition> selectPartitions(@Param("table") String table);
+
+    /**
+     * 删除分区（元数据操作，不逐行删除）
+     */
+    void dropPartition(@Param("table") String table, @Param("partition") String partition);
+
+    /**
+     * 从 MAXVALUE 分区拆出一个新分区
+     *
+     * @param lessThan 新分区上界，UNIX 时间戳秒
+     */
+    void splitMaxPartition(@Param("table") String table,
+                           @Param("partition") String partition,
+                           @Param("lessThan") long lessThan);
+
+    /**
+     * 不等待地获取 MySQL 命名锁，锁随连接关闭自动释放
+     *
+     * @return 1 获取成功，0 已被其它连接持有
+     */
+    Integer tryLock(@Param("name") String name);
+
+    /**
+     * 释放当前连接持有的命名锁
+     */
+    Integer releaseLock(@Param("name") String name);
+}
@@ -22,6 +22,13 @@ public interface UserMapper {
      */
     int insert(User user);
 
+    /**
+     * 用户不存在时插入，已存在时不做修改（单条幂等语句，并发调用安全）
+     *
+     * @return 新插入时为 1，用户已存在时为 0
+     */
+    int insertIfAbsent(User user);
+
     /**
      * 更新用户信息
      */
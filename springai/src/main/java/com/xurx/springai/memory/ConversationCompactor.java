@@ -0,0 +1,286 @@
+package com.xurx.springai.memory;
+
+import com.xurx.springai.advisor.MetricAdvisor;
+import com.xurx.springai.configuration.ChatMemoryProperties;
+import com.xurx.springai.configuration.ExecutionConfiguration;
+import com.xurx.springai.prompt.PromptRegistry;
+import com.xurx.springai.routing.ModelRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话历史压缩
+ * 会话历史超出 token 预算时：本轮只发送摘要和预算内最近的消息，同时在后台用便宜的模型把较早的消息合并为滚动摘要，
+ * 摘要以系统消息的形式替换会话记忆（SPRING_AI_CHAT_MEMORY）中被压缩的消息，之后的轮次直接使用摘要
+ * <p>
+ * 摘要生成期间会话有新消息时只替换仍保持原样的前缀；前缀已变化（会话被清空、窗口已滑动等）则放弃本次摘要。
+ * 比较前缀与写回摘要在会话写锁内完成，期间写入的新一轮不会被覆盖
+ */
+@Slf4j
+@Component
+public class ConversationCompactor {
+
+    public static final String PROMPT_NAME = "memory-summary";
+
+    /**
+     * 摘要消息的文本前缀，用于从会话记忆中识别摘要
+     */
+    static final String SUMMARY_PREFIX = "【此前对话摘要】";
+
+    /**
+     * 摘要消息元数据：被摘要替换的消息的 token 数（仅在进程内有效，重新从数据库加载后丢失）
+     */
+    static final String COVERED_TOKENS = "compaction.coveredTokens";
+
+    /**
+     * 每条消息除文本外的格式开销
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final ModelRouter modelRouter;
+    private final ChatMemoryRepository chatMemoryRepository;
+    private final SerializedChatMemory chatMemory;
+    private final PromptRegistry promptRegistry;
+    private final ChatMemoryProperties.Compaction properties;
+    private final Scheduler blockingScheduler;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    /**
+     * 正在生成摘要的会话，同一会话同时只生成一份
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final DistributionSummary savedTokens;
+    private final Timer summaryTimer;
+    private final Counter compacted;
+    private final Counter stale;
+    private final Counter failed;
+
+    /**
+     * modelRouter 延迟注入：聊天客户端的默认顾问依赖本组件
+     */
+    public ConversationCompactor(@Lazy ModelRouter modelRouter,
+                                 ChatMemoryRepository chatMemoryRepository,
+                                 SerializedChatMemory chatMemory,
+                                 PromptRegistry promptRegistry,
+                                 ChatMemoryProperties chatMemoryProperties,
+                                 MeterRegistry meterRegistry,
+                                 @Qualifier(ExecutionConfiguration.BLOCKING_SCHEDULER) Scheduler blockingScheduler) {
+        this.modelRouter = modelRouter;
+        this.chatMemoryRepository = chatMemoryRepository;
+        this.chatMemory = chatMemory;
+        this.promptRegistry = promptRegistry;
+        this.properties = chatMemoryProperties.getCompaction();
+        this.blockingScheduler = blockingScheduler;
+        this.savedTokens = DistributionSummary.builder("ai.chat.memory.compaction.saved.tokens")
+                .description("每轮因摘要与预算裁剪少发送的会话历史 token 数")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.summaryTimer = Timer.builder("ai.chat.memory.compaction.latency")
+                .description("生成会话摘要耗时")
+                .register(meterRegistry);
+        this.compacted = runs(meterRegistry, "success");
+        this.stale = runs(meterRegistry, "stale");
+        this.failed = runs(meterRegistry, "error");
+    }
+
+    /**
+     * 按 token 预算选出本轮随提示词发送的会话历史，超出预算时在后台触发压缩
+     *
+     * @param history 会话记忆中的完整历史
+     * @return 摘要 + 预算内最近的消息
+     */
+    public List<Message> fit(String conversationId, List<Message> history) {
+        if (!properties.isEnabled() || history.isEmpty()) {
+            return history;
+        }
+        int total = 0;
+        int covered = 0;
+        for (Message message : history) {
+            total += estimate(message);
+            if (isSummary(message) && message.getMetadata().get(COVERED_TOKENS) instanceof Integer tokens) {
+                covered += tokens - estimate(message);
+            }
+        }
+        if (total <= properties.getTokenBudget()) {
+            savedTokens.record(covered);
+            return history;
+        }
+
+        compactAsync(conversationId, List.copyOf(history));
+
+        // 摘要始终保留，其余预算从最新的消息往前填充
+        List<Message> summaries = history.stream().filter(ConversationCompactor::isSummary).toList();
+        int remaining = properties.getTokenBudget() - summaries.stream().mapToInt(this::estimate).sum();
+        List<Message> recent = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Message message = history.get(i);
+            if (isSummary(message)) {
+                continue;
+            }
+            int tokens = estimate(message);
+            if (tokens > remaining) {
+                break;
+            }
+            remaining -= tokens;
+            recent.add(message);
+        }
+        Collections.reverse(recent);
+        // 不以半轮对话开头
+        while (!recent.isEmpty() && recent.get(0).getMessageType() != MessageType.USER) {
+            recent.remove(0);
+        }
+
+        List<Message> fitted = new ArrayList<>(summaries.size() + recent.size());
+        fitted.addAll(summaries);
+        fitted.addAll(recent);
+        savedTokens.record(covered + total - fitted.stream().mapToInt(this::estimate).sum());
+        return fitted;
+    }
+
+    private void compactAsync(String conversationId, List<Message> snapshot) {
+        if (!inFlight.add(conversationId)) {
+            return;
+        }
+        Mono.fromRunnable(() -> compact(conversationId, snapshot))
+                .subscribeOn(blockingScheduler)
+                .doFinally(signal -> inFlight.remove(conversationId))
+                .subscribe(null, e -> {
+                    failed.increment();
+                    log.warn("[会话压缩] 生成摘要失败: conversationId={}", conversationId, e);
+                });
+    }
+
+    /**
+     * 把较早的消息（含上一份摘要）合并为新的摘要，保留最近 keepRecentMessages 条
+     */
+    void compact(String conversationId, List<Message> snapshot) {
+        int cut = snapshot.size() - Math.max(0, properties.getKeepRecentMessages());
+        // 从一轮对话的开头切分
+        while (cut > 0 && cut < snapshot.size() && snapshot.get(cut).getMessageType() != MessageType.USER) {
+            cut--;
+        }
+        List<Message> prefix = snapshot.subList(0, Math.max(cut, 0));
+        if (prefix.isEmpty() || (prefix.size() == 1 && isSummary(prefix.get(0)))) {
+            return;
+        }
+
+        // 经模型路由调用，与前台请求共用熔断、故障转移和模型舱壁
+        String prompt = promptRegistry.render(PROMPT_NAME, Map.of(
+                "maxLength", properties.getSummaryMaxLength(),
+                "conversation", render(prefix)));
+        long start = System.nanoTime();
+        String summary = modelRouter.call(properties.getModel(), chatClient -> chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "compaction"))
+                .user(prompt)
+                .call()
+                .content());
+        summaryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!StringUtils.hasText(summary)) {
+            failed.increment();
+            log.warn("[会话压缩] 模型返回空摘要: conversationId={}", conversationId);
+            return;
+        }
+
+        int coveredTokens = 0;
+        for (Message message : prefix) {
+            coveredTokens += isSummary(message) && message.getMetadata().get(COVERED_TOKENS) instanceof Integer tokens
+                    ? tokens : estimate(message);
+        }
+        Message summaryMessage = SystemMessage.builder()
+                .text(SUMMARY_PREFIX + summary.trim())
+                .metadata(Map.of(COVERED_TOKENS, coveredTokens))
+                .build();
+
+        boolean replaced = chatMemory.locked(conversationId, () -> {
+            List<Message> current = chatMemoryRepository.findByConversationId(conversationId);
+            if (!startsWith(current, prefix)) {
+                return false;
+            }
+            List<Message> compactedHistory = new ArrayList<>(current.size() - prefix.size() + 1);
+            compactedHistory.add(summaryMessage);
+            compactedHistory.addAll(current.subList(prefix.size(), current.size()));
+            chatMemoryRepository.saveAll(conversationId, compactedHistory);
+            return true;
+        });
+        if (!replaced) {
+            stale.increment();
+            log.info("[会话压缩] 会话已变化，放弃本次摘要: conversationId={}", conversationId);
+            return;
+        }
+        compacted.increment();
+        log.info("[会话压缩] 已压缩 {} 条消息：conversationId={}, {} tokens -> {} tokens",
+                prefix.size(), conversationId, coveredTokens, estimate(summaryMessage));
+    }
+
+    static boolean isSummary(Message message) {
+        return message.getMessageType() == MessageType.SYSTEM
+                && message.getText() != null && message.getText().startsWith(SUMMARY_PREFIX);
+    }
+
+    private int estimate(Message message) {
+        String text = message.getText();
+        return MESSAGE_OVERHEAD_TOKENS + (text == null ? 0 : tokenCountEstimator.estimate(text));
+    }
+
+    private static String render(List<Message> messages) {
+        StringBuilder conversation = new StringBuilder();
+        for (Message message : messages) {
+            String role = switch (message.getMessageType()) {
+                case USER -> "用户";
+                case ASSISTANT -> "助手";
+                default -> "摘要";
+            };
+            String text = isSummary(message) ? message.getText().substring(SUMMARY_PREFIX.length()) : message.getText();
+            conversation.append(role).append('：').append(text).append('\n');
+        }
+        return conversation.toString();
+    }
+
+    /**
+     * 按类型和文本比较，元数据在数据库往返后不保留
+     */
+    private static boolean startsWith(List<Message> messages, List<Message> prefix) {
+        if (messages.size() < prefix.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (messages.get(i).getMessageType() != prefix.get(i).getMessageType()
+                    || !Objects.equals(messages.get(i).getText(), prefix.get(i).getText())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Counter runs(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ai.chat.memory.compaction.runs")
+                .description("会话压缩执行结果")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
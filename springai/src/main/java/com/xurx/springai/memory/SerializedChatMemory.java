@@ -0,0 +1,59 @@
+package com.xurx.springai.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 按会话串行写入的聊天记忆
+ * 写入是“读出历史 → 追加 → 整体写回”，同一会话的并发写入（会话记忆顾问、语义缓存回放、后台压缩）会互相覆盖；
+ * 同一会话的写入在这里按分段锁串行执行，其它读改写流程通过 {@link #locked} 加入同一把锁
+ * <p>
+ * 只在进程内串行，多实例间由 Redis 层保证读到最新快照
+ */
+public class SerializedChatMemory implements ChatMemory {
+
+    private static final int STRIPES = 64;
+
+    private final ChatMemory delegate;
+    private final Object[] locks = new Object[STRIPES];
+
+    public SerializedChatMemory(ChatMemory delegate) {
+        this.delegate = delegate;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        locked(conversationId, () -> {
+            delegate.add(conversationId, messages);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return delegate.get(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        locked(conversationId, () -> {
+            delegate.clear(conversationId);
+            return null;
+        });
+    }
+
+    /**
+     * 持有该会话的写锁执行读改写，期间同一会话的其它写入等待
+     */
+    public <T> T locked(String conversationId, Supplier<T> action) {
+        synchronized (locks[Math.floorMod(conversationId.hashCode(), STRIPES)]) {
+            return action.get();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.xurx.springai.memory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xurx.springai.configuration.ChatMemoryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.util.StringUtils;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层会话记忆存储
+ * 读：进程内 LRU（热会话）→ SPRING_AI_CHAT_MEMORY 表，下层命中后回填上层；
+ * 开启 Redis 层（多实例共享）时先读 Redis → 数据库，进程内层只在 Redis 不可用时兜底；
+ * 写：同步更新进程内与 Redis，数据库异步写入（write-behind），同一会话在一个刷盘间隔内的多次写入只落库最后一次
+ * <p>
+ * 待刷盘会话超过上限时由调用方同步写库；停机时把待刷盘会话全部写入
+ * <p>
+ * 各层都只保存类型和文本，无法还原工具调用与工具结果：写入时丢弃工具交互（工具结果及只含工具调用的助手消息），
+ * 避免读回后出现没有对应工具结果的工具调用，被模型接口拒绝
+ */
+@Slf4j
+public class TieredChatMemoryRepository implements ChatMemoryRepository {
+
+    private static final TypeReference<List<StoredMessage>> STORED_MESSAGES = new TypeReference<>() {
+    };
+
+    private final ChatMemoryRepository coldStore;
+    private final ChatMemoryProperties properties;
+    private final JedisPooled jedis;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Cache<String, List<Message>> hot;
+    /**
+     * 待写入数据库的会话最新快照
+     */
+    private final Map<String, List<Message>> pending = new ConcurrentHashMap<>();
+    /**
+     * 保证同一会话的数据库写入按快照先后顺序落库
+     */
+    private final Object coldWriteLock = new Object();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private Counter hotReads;
+    private Counter redisReads;
+    private Counter coldReads;
+    private Counter redisFailures;
+    private Counter flushFailures;
+    private Counter callerRuns;
+    private Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * @param coldStore 数据库存储
+     * @param jedis     Redis 连接池，为空表示不启用 Redis 层
+     */
+    public TieredChatMemoryRepository(ChatMemoryRepository coldStore,
+                                      ChatMemoryProperties properties,
+                                      JedisPooled jedis,
+                                      ObjectMapper objectMapper,
+                                      MeterRegistry meterRegistry) {
+        this.coldStore = coldStore;
+        this.properties = properties;
+        this.jedis = jedis;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.hot = Caffeine.newBuilder()
+                .maximumSize(properties.getHot().getMaximumSize())
+                .expireAfterAccess(properties.getHot().getTtl())
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        CaffeineCacheMetrics.monitor(meterRegistry, hot, "chat-memory");
+        hotReads = readCounter("hot");
+        redisReads = readCounter("redis");
+        coldReads = readCounter("jdbc");
+        redisFailures = Counter.builder("ai.chat.memory.redis.failures")
+                .description("Redis 层读写失败次数（失败时回退到数据库）")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("ai.chat.memory.flush.failures")
+                .description("会话记忆写库失败次数（下个刷盘周期重试）")
+                .register(meterRegistry);
+        callerRuns = Counter.builder("ai.chat.memory.caller.runs")
+                .description("待刷盘会话已满时由调用方同步写库的次数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("ai.chat.memory.flush.latency")
+                .description("单个会话记忆写库耗时")
+                .register(meterRegistry);
+        Gauge.builder("ai.chat.memory.pending", pending, Map::size)
+                .description("等待写库的会话数")
+                .register(meterRegistry);
+
+        ChatMemoryProperties.WriteBehind writeBehind = properties.getWriteBehind();
+        if (!writeBehind.isEnabled()) {
+            log.info("[会话记忆] 异步写库未开启，每轮对话同步写库");
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "chat-memory-writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("[会话记忆] 分层存储已开启：hot={}, redis={}, flushInterval={}",
+                properties.getHot().getMaximumSize(), jedis != null, writeBehind.getFlushInterval());
+    }
+
+    /**
+     * 停机时停止后台刷盘，把待刷盘会话全部写入数据库
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stopped.countDown();
+        worker.join(properties.getWriteBehind().getShutdownTimeout().toMillis());
+        if (worker.isAlive()) {
+            log.warn("[会话记忆] 停机刷盘超时，剩余 {} 个会话未写库", pending.size());
+            return;
+        }
+        // 后台线程退出前后仍可能有写入，这里补写
+        flushPending();
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        Set<String> ids = new LinkedHashSet<>(coldStore.findConversationIds());
+        ids.addAll(pending.keySet());
+        return new ArrayList<>(ids);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        if (jedis != null) {
+            return findShared(conversationId);
+        }
+        List<Message> messages = hot.getIfPresent(conversationId);
+        if (messages != null) {
+            hotReads.increment();
+            return messages;
+        }
+        messages = findPendingOrCold(conversationId);
+        hot.put(conversationId, messages);
+        return messages;
+    }
+
+    /**
+     * 开启 Redis 层时以 Redis 为准：同一会话可能由多个实例处理，进程内层的快照可能已被其它实例更新，
+     * 读到旧快照再整体写回会覆盖其它实例写入的轮次，因此进程内层只在 Redis 不可用时兜底
+     */
+    private List<Message> findShared(String conversationId) {
+        List<Message> messages;
+        try {
+            messages = readRedis(conversationId);
+        } catch (RuntimeException | JsonProcessingException e) {
+            redisFailures.increment();
+            log.warn("[会话记忆] Redis 读取失败，回退到进程内与数据库: conversationId={}", conversationId, e);
+            messages = hot.getIfPresent(conversationId);
+            if (messages != null) {
+                hotReads.increment();
+                return messages;
+            }
+            messages = findPendingOrCold(conversationId);
+            hot.put(conversationId, messages);
+            return messages;
+        }
+        if (messages != null) {
+            redisReads.increment();
+        } else {
+            messages = findPendingOrCold(conversationId);
+            writeRedis(conversationId, messages);
+        }
+        hot.put(conversationId, messages);
+        return messages;
+    }
+
+    /**
+     * 本实例待刷盘的快照比数据库新，优先返回
+     */
+    private List<Message> findPendingOrCold(String conversationId) {
+        List<Message> messages = pending.get(conversationId);
+        if (messages != null) {
+            return messages;
+        }
+        // 历史数据中可能有读回后内容为空的工具结果
+        messages = withoutToolExchanges(coldStore.findByConversationId(conversationId));
+        coldReads.increment();
+        return messages;
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        List<Message> snapshot = withoutToolExchanges(messages);
+        hot.put(conversationId, snapshot);
+        writeRedis(conversationId, snapshot);
+        if (!running) {
+            writeCold(conversationId, snapshot);
+            return;
+        }
+        if (pending.size() >= properties.getWriteBehind().getMaxPending() && !pending.containsKey(conversationId)) {
+            // 背压：待刷盘会话持续堆积时由调用方同步写库，让写入速度回落到数据库的处理能力
+            callerRuns.increment();
+            writeCold(conversationId, snapshot);
+            return;
+        }
+        pending.put(conversationId, snapshot);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        hot.invalidate(conversationId);
+        if (jedis != null) {
+            try {
+                jedis.del(redisKey(conversationId));
+            } catch (RuntimeException e) {
+                redisFailures.increment();
+                log.warn("[会话记忆] Redis 删除失败: conversationId={}", conversationId, e);
+            }
+        }
+        synchronized (coldWriteLock) {
+            pending.remove(conversationId);
+            coldStore.deleteByConversationId(conversationId);
+        }
+    }
+
+    private void runWorker() {
+        long intervalMillis = properties.getWriteBehind().getFlushInterval().toMillis();
+        try {
+            while (!stopped.await(intervalMillis, TimeUnit.MILLISECONDS)) {
+                flushPending();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushPending();
+        log.info("[会话记忆] 后台写库线程已退出");
+    }
+
+    private void flushPending() {
+        for (String conversationId : pending.keySet()) {
+            synchronized (coldWriteLock) {
+                List<Message> snapshot = pending.remove(conversationId);
+                if (snapshot == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    coldStore.saveAll(conversationId, snapshot);
+                } catch (Exception e) {
+                    flushFailures.increment();
+                    log.error("[会话记忆] 写库失败，下个周期重试: conversationId={}", conversationId, e);
+                    // 期间有更新的快照时保留更新的
+                    pending.putIfAbsent(conversationId, snapshot);
+                } finally {
+                    flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * 同步写库，先丢弃该会话更旧的待刷盘快照
+     */
+    private void writeCold(String conversationId, List<Message> snapshot) {
+        synchronized (coldWriteLock) {
+            pending.remove(conversationId);
+            coldStore.saveAll(conversationId, snapshot);
+        }
+    }
+
+    /**
+     * @return Redis 中的会话快照，不存在时为 null
+     */
+    private List<Message> readRedis(String conversationId) throws JsonProcessingException {
+        String json = jedis.get(redisKey(conversationId));
+        if (json == null) {
+            return null;
+        }
+        return withoutToolExchanges(objectMapper.readValue(json, STORED_MESSAGES).stream()
+                .map(StoredMessage::toMessage)
+                .toList());
+    }
+
+    /**
+     * 去掉工具结果与只含工具调用的助手消息；同时带文本的助手消息只保留文本
+     */
+    static List<Message> withoutToolExchanges(List<Message> messages) {
+        List<Message> kept = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (message instanceof ToolResponseMessage) {
+                continue;
+            }
+            if (message instanceof AssistantMessage assistantMessage && assistantMessage.hasToolCalls()) {
+                if (StringUtils.hasText(assistantMessage.getText())) {
+                    kept.add(new AssistantMessage(assistantMessage.getText()));
+                }
+                continue;
+            }
+            kept.add(message);
+        }
+        return List.copyOf(kept);
+    }
+
+    private void writeRedis(String conversationId, List<Message> messages) {
+        if (jedis == null) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(messages.stream().map(StoredMessage::of).toList());
+            jedis.setex(redisKey(conversationId), properties.getRedis().getTtl().toSeconds(), json);
+        } catch (RuntimeException | JsonProcessingException e) {
+            redisFailures.increment();
+            log.warn("[会话记忆] Redis 写入失败: conversationId={}", conversationId, e);
+        }
+    }
+
+    private String redisKey(String conversationId) {
+        return properties.getRedis().getPrefix() + conversationId;
+    }
+
+    private Counter readCounter(String tier) {
+        return Counter.builder("ai.chat.memory.reads")
+                .description("会话记忆读取命中的存储层")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Redis 中的消息格式，与数据库表一致只保留类型和文本（工具交互不会写入）
+     */
+    record StoredMessage(String type, String content) {
+
+        static StoredMessage of(Message message) {
+            return new StoredMessage(message.getMessageType().name(), message.getText());
+        }
+
+        Message toMessage() {
+            return switch (MessageType.valueOf(type)) {
+                case USER -> new UserMessage(content);
+                case ASSISTANT -> new AssistantMessage(content);
+                case SYSTEM -> new SystemMessage(content);
+                case TOOL -> ToolResponseMessage.builder().responses(List.of()).build();
+            };
+        }
+    }
+}
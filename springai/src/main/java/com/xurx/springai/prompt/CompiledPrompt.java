@@ -0,0 +1,82 @@
+package com.xurx.springai.prompt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的提示词模板
+ * 加载时将模板切分为字面量和 {变量} 片段，渲染时只做字符串拼接，不再重新解析模板
+ */
+public final class CompiledPrompt {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z_][A-Za-z0-9_]*)}");
+
+    private final String name;
+    private final String text;
+    private final String[] literals;
+    private final String[] variables;
+    private final Set<String> variableNames;
+    private final int estimatedLength;
+
+    private CompiledPrompt(String name, String text, String[] literals, String[] variables) {
+        this.name = name;
+        this.text = text;
+        this.literals = literals;
+        this.variables = variables;
+        this.variableNames = new LinkedHashSet<>(List.of(variables));
+        this.estimatedLength = text.length() + 64;
+    }
+
+    public static CompiledPrompt compile(String name, String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(text.substring(last, matcher.start()));
+            variables.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(text.substring(last));
+        return new CompiledPrompt(name, text, literals.toArray(String[]::new), variables.toArray(String[]::new));
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param values 变量值
+     * @return 渲染结果
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder builder = new StringBuilder(estimatedLength);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(literals[i]);
+            Object value = values.get(variables[i]);
+            if (value == null) {
+                throw new IllegalStateException("Prompt '" + name + "' is missing variable: " + variables[i]);
+            }
+            builder.append(value);
+        }
+        return builder.append(literals[variables.length]).toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 原始模板文本
+     */
+    public String getText() {
+        return text;
+    }
+
+    public Set<String> getVariableNames() {
+        return variableNames;
+    }
+}
@@ -0,0 +1,173 @@
+package com.xurx.springai.prompt;
+
+import com.xurx.springai.configuration.PromptProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * 提示词模板注册中心
+ * 启动时加载并预编译 classpath:prompts/ 下的全部模板；配置外部目录后，目录中的同名模板覆盖内置模板，
+ * 并可监听目录变更，整体替换模板表实现原子热更新
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PromptRegistry {
+
+    private static final String CLASSPATH_PATTERN = "classpath*:prompts/*.txt";
+    private static final String EXTENSION = ".txt";
+
+    private final PromptProperties promptProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<Map<String, CompiledPrompt>> prompts = new AtomicReference<>(Map.of());
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Map<String, CompiledPrompt> loaded = new HashMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN)) {
+            String name = templateName(resource.getFilename());
+            loaded.put(name, CompiledPrompt.compile(name, resource.getContentAsString(StandardCharsets.UTF_8)));
+        }
+
+        Path externalDir = externalDir();
+        if (externalDir != null) {
+            try (Stream<Path> files = Files.list(externalDir)) {
+                for (Path file : files.filter(PromptRegistry::isTemplate).toList()) {
+                    CompiledPrompt prompt = load(file);
+                    loaded.put(prompt.getName(), prompt);
+                }
+            }
+        }
+
+        prompts.set(Map.copyOf(loaded));
+        log.info("[提示词] 已加载 {} 个模板：{}", loaded.size(), loaded.keySet());
+
+        if (externalDir != null && promptProperties.isWatch()) {
+            startWatcher(externalDir);
+        }
+    }
+
+    /**
+     * 获取预编译模板
+     *
+     * @param name 模板名称（不含扩展名）
+     */
+    public CompiledPrompt get(String name) {
+        CompiledPrompt prompt = prompts.get().get(name);
+        if (prompt == null) {
+            throw new IllegalArgumentException("Unknown prompt template: " + name);
+        }
+        return prompt;
+    }
+
+    /**
+     * 渲染模板
+     */
+    public String render(String name, Map<String, ?> values) {
+        return get(name).render(values);
+    }
+
+    public Set<String> names() {
+        return prompts.get().keySet();
+    }
+
+    /**
+     * 重新加载外部目录中的单个模板
+     */
+    void reload(Path file) {
+        try {
+            CompiledPrompt prompt = load(file);
+            prompts.updateAndGet(current -> {
+                Map<String, CompiledPrompt> updated = new HashMap<>(current);
+                updated.put(prompt.getName(), prompt);
+                return Map.copyOf(updated);
+            });
+            log.info("[提示词] 模板已热更新：{}", prompt.getName());
+            eventPublisher.publishEvent(new PromptReloadedEvent(prompt.getName()));
+        } catch (IOException e) {
+            log.warn("[提示词] 模板热更新失败，保留旧版本：{}", file, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void startWatcher(Path dir) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcherThread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path changed && isTemplate(changed)) {
+                            reload(dir.resolve(changed));
+                        }
+                    }
+                    key.reset();
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                log.debug("[提示词] 停止监听外部目录");
+            }
+        }, "prompt-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("[提示词] 正在监听外部目录：{}", dir);
+    }
+
+    private Path externalDir() {
+        String dir = promptProperties.getExternalDir();
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        Path path = Path.of(dir);
+        if (!Files.isDirectory(path)) {
+            log.warn("[提示词] 外部目录不存在，忽略：{}", path);
+            return null;
+        }
+        return path;
+    }
+
+    private static CompiledPrompt load(Path file) throws IOException {
+        String name = templateName(file.getFileName().toString());
+        return CompiledPrompt.compile(name, Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isTemplate(Path file) {
+        return file.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    private static String templateName(String filename) {
+        return filename.substring(0, filename.length() - EXTENSION.length());
+    }
+}
@@ -0,0 +1,9 @@
+package com.xurx.springai.prompt;
+
+/**
+ * 提示词模板热更新事件
+ *
+ * @param name 模板名称（不含扩展名）
+ */
+public record PromptReloadedEvent(String name) {
+}
@@ -0,0 +1,181 @@
+package com.xurx.springai.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 单个模型的舱壁：最多 maxConcurrent 个调用同时进行，其余按先后在有界队列中等待
+ * 队列已满或排队超时的调用立即以 {@link BulkheadFullException} 失败，不占用模型配额
+ * <p>
+ * 流式调用在流结束（完成、失败或取消）时归还名额，排队等待不占用线程
+ */
+public class Bulkhead {
+
+    private final String model;
+    private final int maxConcurrent;
+    private final int queueSize;
+    private final Duration queueTimeout;
+    private final Counter queueFull;
+    private final Counter queueTimedOut;
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int inFlight;
+
+    public Bulkhead(String model, int maxConcurrent, int queueSize, Duration queueTimeout, MeterRegistry meterRegistry) {
+        this.model = model;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.queueSize = Math.max(0, queueSize);
+        this.queueTimeout = queueTimeout;
+        Gauge.builder("ai.model.bulkhead.inflight", this, Bulkhead::inFlight)
+                .description("正在调用模型的请求数")
+                .tag("model", model)
+                .register(meterRegistry);
+        Gauge.builder("ai.model.bulkhead.queued", this, Bulkhead::queued)
+                .description("在舱壁中排队的请求数")
+                .tag("model", model)
+                .register(meterRegistry);
+        this.queueFull = rejected(meterRegistry, "full");
+        this.queueTimedOut = rejected(meterRegistry, "timeout");
+    }
+
+    /**
+     * 在舱壁内执行流式调用
+     *
+     * @param queuePosition 需要排队时回调排队位置（从 1 开始）
+     */
+    public <T> Flux<T> stream(Supplier<Flux<T>> call, IntConsumer queuePosition) {
+        return Flux.defer(() -> {
+            CompletableFuture<Void> permit = enqueue(queuePosition);
+            AtomicBoolean released = new AtomicBoolean();
+            return Mono.fromFuture(permit.orTimeout(queueTimeout.toNanos(), TimeUnit.NANOSECONDS), false)
+                    // 依赖回调的执行顺序不确定，超时先出队再向下游传递
+                    .doOnError(e -> dequeue(permit))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        queueTimedOut.increment();
+                        return new BulkheadFullException(model, "排队超时");
+                    })
+                    .thenMany(Flux.defer(call))
+                    .doFinally(signal -> {
+                        if (granted(permit) && released.compareAndSet(false, true)) {
+                            release();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 在舱壁内执行阻塞调用，排队时阻塞当前线程
+     */
+    public <T> T call(Supplier<T> call) {
+        CompletableFuture<Void> permit = enqueue(null);
+        try {
+            permit.get(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // 超时的同时刚好拿到名额则继续执行
+            if (permit.cancel(false) || !granted(permit)) {
+                queueTimedOut.increment();
+                throw new BulkheadFullException(model, "排队超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (permit.cancel(false) || !granted(permit)) {
+                throw new BulkheadFullException(model, "排队被中断");
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+
+    /**
+     * 有空余名额直接占用，否则进入队列；队列已满抛出 BulkheadFullException
+     */
+    private CompletableFuture<Void> enqueue(IntConsumer queuePosition) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        int position;
+        synchronized (this) {
+            if (inFlight < maxConcurrent && waiters.isEmpty()) {
+                inFlight++;
+                permit.complete(null);
+                return permit;
+            }
+            if (waiters.size() >= queueSize) {
+                queueFull.increment();
+                throw new BulkheadFullException(model, "排队已满");
+            }
+            waiters.addLast(permit);
+            position = waiters.size();
+        }
+        // 超时或取消的等待者立即出队，不再占用队列
+        permit.whenComplete((ignored, e) -> {
+            if (e != null) {
+                dequeue(permit);
+            }
+        });
+        if (queuePosition != null) {
+            queuePosition.accept(position);
+        }
+        return permit;
+    }
+
+    /**
+     * 归还名额：交给队首仍在等待的调用，没有等待者时减少占用数
+     */
+    private void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            // 已超时或已取消的等待者跳过，名额继续向后传递
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void dequeue(CompletableFuture<Void> permit) {
+        waiters.remove(permit);
+    }
+
+    private static boolean granted(CompletableFuture<Void> permit) {
+        return permit.isDone() && !permit.isCompletedExceptionally();
+    }
+
+    private Counter rejected(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ai.model.bulkhead.rejected")
+                .description("被舱壁拒绝的请求")
+                .tags("model", model, "reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.xurx.springai.routing;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * 在模型舱壁内调用的 Embedding 模型（向量检索、语义缓存、意图分类共用同一舱壁）
+ */
+public class BulkheadEmbeddingModel implements EmbeddingModel {
+
+    private final String model;
+    private final EmbeddingModel delegate;
+    private final ModelBulkheads bulkheads;
+
+    /**
+     * @param model model-args.models 中的模型键
+     */
+    public BulkheadEmbeddingModel(String model, EmbeddingModel delegate, ModelBulkheads bulkheads) {
+        this.model = model;
+        this.delegate = delegate;
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return bulkheads.call(model, () -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return bulkheads.call(model, () -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,11 @@
+package com.xurx.springai.routing;
+
+/**
+ * 模型舱壁已满（排队已满或排队超时），请求被拒绝
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String model, String reason) {
+        super("模型 " + model + " 当前请求过多（" + reason + "），请稍后重试");
+    }
+}
@@ -0,0 +1,34 @@
+package com.xurx.springai.routing;
+
+/**
+ * 对冲预算（全局令牌桶）：每个可对冲的请求积累 ratio 个令牌，发出一次对冲消耗 1 个，最多积累 burst 个
+ * 长期来看对冲请求数不超过请求总数的 ratio 倍
+ */
+class HedgeBudget {
+
+    private final double ratio;
+    private final double burst;
+    private double tokens;
+
+    HedgeBudget(double ratio, int burst) {
+        this.ratio = Math.max(0, ratio);
+        this.burst = Math.max(0, burst);
+        this.tokens = this.burst;
+    }
+
+    synchronized void onRequest() {
+        tokens = Math.min(burst, tokens + ratio);
+    }
+
+    synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    synchronized double available() {
+        return tokens;
+    }
+}
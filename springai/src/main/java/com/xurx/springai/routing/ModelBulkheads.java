@@ -0,0 +1,78 @@
+package com.xurx.springai.routing;
+
+import com.xurx.springai.configuration.ModelArgsProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 按模型划分的舱壁，配置来自 model-args.models.&lt;模型&gt; 的 max-concurrent / queue-size / queue-timeout
+ * 未配置 max-concurrent 的模型不限制并发
+ */
+@Slf4j
+@Component
+public class ModelBulkheads {
+
+    private final ModelArgsProperties modelArgsProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 模型 -> 舱壁，未配置舱壁的模型不在其中
+     */
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public ModelBulkheads(ModelArgsProperties modelArgsProperties, MeterRegistry meterRegistry) {
+        this.modelArgsProperties = modelArgsProperties;
+        this.meterRegistry = meterRegistry;
+        if (modelArgsProperties.getModels() != null) {
+            modelArgsProperties.getModels().keySet().forEach(this::bulkhead);
+        }
+    }
+
+    /**
+     * 在模型的舱壁内执行流式调用
+     *
+     * @param queuePosition 需要排队时回调排队位置，可以为空
+     */
+    public <T> Flux<T> stream(String model, Supplier<Flux<T>> call, IntConsumer queuePosition) {
+        Bulkhead bulkhead = bulkhead(model);
+        return bulkhead != null ? bulkhead.stream(call, queuePosition) : Flux.defer(call);
+    }
+
+    /**
+     * 在模型的舱壁内执行阻塞调用
+     */
+    public <T> T call(String model, Supplier<T> call) {
+        Bulkhead bulkhead = bulkhead(model);
+        return bulkhead != null ? bulkhead.call(call) : call.get();
+    }
+
+    /**
+     * 是否以 step 事件推送排队位置
+     */
+    public boolean isReportQueuePosition() {
+        return modelArgsProperties.isReportQueuePosition();
+    }
+
+    Bulkhead bulkhead(String model) {
+        Bulkhead bulkhead = bulkheads.get(model);
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        ModelArgsProperties.ModelCfg cfg = modelArgsProperties.getModelCfg(model);
+        if (cfg == null || cfg.getMaxConcurrent() == null || cfg.getMaxConcurrent() <= 0) {
+            return null;
+        }
+        return bulkheads.computeIfAbsent(model, key -> {
+            log.info("[舱壁] 模型 {}: maxConcurrent={}, queueSize={}, queueTimeout={}",
+                    key, cfg.getMaxConcurrent(), cfg.getQueueSize(), cfg.getQueueTimeout());
+            return new Bulkhead(key, cfg.getMaxConcurrent(), cfg.getQueueSize(), cfg.getQueueTimeout(), meterRegistry);
+        });
+    }
+}
@@ -0,0 +1,188 @@
+package com.xurx.springai.routing;
+
+import com.xurx.springai.configuration.ChatPipelineProperties;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * 单个模型的健康状态：最近 windowSize 次调用的结果与首 token 耗时，以及熔断器状态
+ * <p>
+ * 熔断器状态：CLOSED 正常放行；失败率达到阈值后 OPEN，openDuration 内直接拒绝；
+ * 到期后 HALF_OPEN 放行 halfOpenCalls 个探测请求，探测成功恢复 CLOSED，失败重新 OPEN
+ */
+class ModelHealth {
+
+    enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte SLOW = 1;
+    private static final byte FAILURE = 2;
+
+    private final ChatPipelineProperties.CircuitBreaker properties;
+    private final LongSupplier nanoClock;
+
+    private final byte[] outcomes;
+    private final long[] latencies;
+    private int next;
+    private int count;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probes;
+
+    ModelHealth(ChatPipelineProperties.CircuitBreaker properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        int windowSize = Math.max(1, properties.getWindowSize());
+        this.outcomes = new byte[windowSize];
+        this.latencies = new long[windowSize];
+    }
+
+    /**
+     * 申请一次调用；熔断中返回 false。申请成功后必须以 success / failure / release 之一结束
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (!openExpired()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probes = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probes >= properties.getHalfOpenCalls()) {
+                return false;
+            }
+            probes++;
+        }
+        return true;
+    }
+
+    /**
+     * 调用成功
+     *
+     * @param latencyNanos 首 token 耗时（非流式调用为总耗时）
+     */
+    synchronized void success(long latencyNanos) {
+        boolean slow = latencyNanos > properties.getSlowCallThreshold().toNanos();
+        if (state == State.HALF_OPEN) {
+            if (slow) {
+                open();
+                return;
+            }
+            // 探测成功，之前窗口里的失败不再计入
+            state = State.CLOSED;
+            count = 0;
+            next = 0;
+        }
+        record(slow ? SLOW : SUCCESS, latencyNanos);
+    }
+
+    synchronized void failure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(FAILURE, 0);
+    }
+
+    /**
+     * 调用在产生结果前被取消，不计入统计
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && probes > 0) {
+            probes--;
+        }
+    }
+
+    /**
+     * 当前是否可以接收请求（熔断到期视为可用）
+     */
+    synchronized boolean isAvailable() {
+        return state != State.OPEN || openExpired();
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * 窗口内的失败率，不含慢调用
+     */
+    synchronized double errorRate() {
+        if (count == 0) {
+            return 0;
+        }
+        int failures = 0;
+        for (int i = 0; i < count; i++) {
+            if (outcomes[i] == FAILURE) {
+                failures++;
+            }
+        }
+        return (double) failures / count;
+    }
+
+    /**
+     * 窗口内成功调用的平均首 token 耗时，没有样本时返回 -1
+     */
+    synchronized long averageLatencyNanos() {
+        long total = 0;
+        int samples = 0;
+        for (int i = 0; i < count; i++) {
+            if (outcomes[i] != FAILURE) {
+                total += latencies[i];
+                samples++;
+            }
+        }
+        return samples == 0 ? -1 : total / samples;
+    }
+
+    /**
+     * 窗口内成功调用首 token 耗时的分位数，成功样本少于 minimumSamples 时返回 -1
+     */
+    synchronized long latencyPercentileNanos(double percentile, int minimumSamples) {
+        long[] samples = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (outcomes[i] != FAILURE) {
+                samples[n++] = latencies[i];
+            }
+        }
+        if (n == 0 || n < minimumSamples) {
+            return -1;
+        }
+        Arrays.sort(samples, 0, n);
+        int index = (int) Math.ceil(percentile * n) - 1;
+        return samples[Math.min(n - 1, Math.max(0, index))];
+    }
+
+    private void record(byte outcome, long latencyNanos) {
+        outcomes[next] = outcome;
+        latencies[next] = latencyNanos;
+        next = (next + 1) % outcomes.length;
+        count = Math.min(count + 1, outcomes.length);
+        if (state == State.CLOSED && count >= properties.getMinimumCalls()) {
+            int unhealthy = 0;
+            for (int i = 0; i < count; i++) {
+                if (outcomes[i] != SUCCESS) {
+                    unhealthy++;
+                }
+            }
+            if ((double) unhealthy / count >= properties.getFailureRateThreshold()) {
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private boolean openExpired() {
+        return nanoClock.getAsLong() - openedAt >= properties.getOpenDuration().toNanos();
+    }
+}
@@ -0,0 +1,232 @@
+package com.xurx.springai.routing;
+
+import com.xurx.springai.configuration.ModelArgsProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 模型供应商的 HTTP 连接池，配置来自 model-args.models.&lt;模型&gt;.transport
+ * 每个 base-url 主机一个 Reactor Netty 连接池，模型的阻塞调用（RestClient）与流式调用（WebClient）共用
+ * 请求按目标主机路由到对应的连接池，其它主机（如 MCP Server）使用 Reactor Netty 的默认客户端；
+ * 配置了 transport 的模型必须配置 base-url，否则启动失败
+ * <p>
+ * 连接池状态见 ai.model.http.pool.* 指标（active / idle / pending / total）
+ */
+@Slf4j
+@Component
+public class ModelHttpTransports {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 主机:端口 -> 连接池，未配置 transport 的模型不在其中
+     */
+    private final Map<String, HostTransport> transports = new LinkedHashMap<>();
+
+    /**
+     * 连接池 id + 远端地址 -> 已注册的指标，连接池销毁时移除
+     */
+    private final Map<String, List<Meter>> poolMeters = new ConcurrentHashMap<>();
+
+    private final ClientHttpConnector defaultConnector = new ReactorClientHttpConnector();
+    private final ClientHttpRequestFactory defaultRequestFactory = new ReactorClientHttpRequestFactory();
+
+    public ModelHttpTransports(ModelArgsProperties modelArgsProperties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        if (modelArgsProperties.getModels() == null) {
+            return;
+        }
+        modelArgsProperties.getModels().forEach((model, cfg) -> {
+            boolean hasBaseUrl = cfg.getBaseUrl() != null && !cfg.getBaseUrl().isBlank();
+            if (cfg.getTransport() != null && !hasBaseUrl) {
+                // 连接池按 base-url 的主机匹配请求，缺少 base-url 时配置的连接池不会生效
+                throw new IllegalStateException("模型 " + model + " 配置了 transport 但缺少 base-url："
+                        + "请配置 model-args.models." + model + ".base-url，与 spring.ai.* 中该模型使用的地址一致");
+            }
+            if (cfg.getTransport() == null) {
+                log.info("[连接池] 模型 {} 未配置 transport，使用默认 HTTP 客户端", model);
+                return;
+            }
+            URI baseUrl = URI.create(cfg.getBaseUrl());
+            String host = hostKey(baseUrl);
+            HostTransport existing = transports.get(host);
+            if (existing != null) {
+                log.info("[连接池] 模型 {} 与 {} 共用 {} 的连接池", model, existing.pool(), host);
+                return;
+            }
+            transports.put(host, create(model, baseUrl, cfg.getTransport()));
+        });
+    }
+
+    /**
+     * WebClient 使用的连接器：模型主机走对应的连接池
+     */
+    public ClientHttpConnector connector() {
+        return (method, uri, requestCallback) -> {
+            HostTransport transport = transports.get(hostKey(uri));
+            ClientHttpConnector connector = transport != null ? transport.connector() : defaultConnector;
+            return connector.connect(method, uri, requestCallback);
+        };
+    }
+
+    /**
+     * RestClient 使用的请求工厂：模型主机走对应的连接池
+     */
+    public ClientHttpRequestFactory requestFactory() {
+        return (uri, method) -> {
+            HostTransport transport = transports.get(hostKey(uri));
+            ClientHttpRequestFactory requestFactory = transport != null ? transport.requestFactory() : defaultRequestFactory;
+            return requestFactory.createRequest(uri, method);
+        };
+    }
+
+    /**
+     * 预热：初始化事件循环与 DNS 解析，并向每个模型主机并发发起 warmup-connections 个 HEAD 请求建立连接
+     * 预热失败只记录日志，不影响启动
+     *
+     * @return 成功建立的连接数
+     */
+    public Mono<Integer> warmup() {
+        return Flux.fromIterable(transports.values())
+                .flatMap(HostTransport::warmup)
+                .reduce(0, Integer::sum);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmupOnReady() {
+        warmup().subscribe();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        transports.values().forEach(transport -> transport.provider().dispose());
+    }
+
+    private HostTransport create(String model, URI baseUrl, ModelArgsProperties.Transport transport) {
+        ConnectionProvider provider = ConnectionProvider.builder(model)
+                .maxConnections(transport.getMaxConnections())
+                .pendingAcquireMaxCount(transport.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(transport.getPendingAcquireTimeout())
+                .maxIdleTime(transport.getMaxIdleTime())
+                .maxLifeTime(transport.getMaxLifeTime())
+                .evictInBackground(transport.getMaxIdleTime())
+                .metrics(true, () -> new PoolMeterRegistrar())
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) transport.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, transport.isKeepAlive())
+                .keepAlive(transport.isKeepAlive())
+                .responseTimeout(transport.getReadTimeout())
+                .httpResponseDecoder(spec -> spec.initialBufferSize((int) transport.getResponseBufferSize().toBytes()))
+                .protocol(protocols(baseUrl, transport.isHttp2()));
+        log.info("[连接池] 模型 {} ({}): maxConnections={}, pendingAcquireMaxCount={}, keepAlive={}, http2={}, connectTimeout={}, readTimeout={}",
+                model, hostKey(baseUrl), transport.getMaxConnections(), transport.getPendingAcquireMaxCount(),
+                transport.isKeepAlive(), transport.isHttp2(), transport.getConnectTimeout(), transport.getReadTimeout());
+        return new HostTransport(model, baseUrl, provider, httpClient, new ReactorClientHttpConnector(httpClient),
+                new ReactorClientHttpRequestFactory(httpClient), transport.getWarmupConnections());
+    }
+
+    private static HttpProtocol[] protocols(URI baseUrl, boolean http2) {
+        if (!http2) {
+            return new HttpProtocol[]{HttpProtocol.HTTP11};
+        }
+        return "https".equalsIgnoreCase(baseUrl.getScheme())
+                ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                : new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11};
+    }
+
+    static String hostKey(URI uri) {
+        int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return (uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "") + ":" + port;
+    }
+
+    private record HostTransport(String pool, URI baseUrl, ConnectionProvider provider, HttpClient httpClient,
+                                 ClientHttpConnector connector, ClientHttpRequestFactory requestFactory,
+                                 int warmupConnections) {
+
+        Mono<Integer> warmup() {
+            if (warmupConnections <= 0) {
+                return Mono.just(0);
+            }
+            // 并发发出请求，每个请求各占一个连接，完成后连接回到池中保持空闲
+            return httpClient.warmup()
+                    .thenMany(Flux.range(0, warmupConnections)
+                            .flatMap(i -> httpClient.head()
+                                    .uri(baseUrl.toString())
+                                    .responseSingle((response, body) -> body.then(Mono.just(1)))
+                                    .onErrorResume(e -> {
+                                        log.warn("[连接池] {} 预热连接失败: {}", pool, e.getMessage());
+                                        return Mono.just(0);
+                                    }), warmupConnections))
+                    .reduce(0, Integer::sum)
+                    .doOnNext(opened -> log.info("[连接池] {} 预热完成: {}/{}", pool, opened, warmupConnections));
+        }
+    }
+
+    /**
+     * 连接池按远端地址创建时注册指标
+     */
+    private class PoolMeterRegistrar implements ConnectionProvider.MeterRegistrar {
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            Tags tags = Tags.of("pool", poolName, "remote", remote(remoteAddress));
+            poolMeters.put(id + remote(remoteAddress), List.of(
+                    gauge("ai.model.http.pool.active", "正在使用的连接数", tags, metrics, ConnectionPoolMetrics::acquiredSize),
+                    gauge("ai.model.http.pool.idle", "空闲的连接数", tags, metrics, ConnectionPoolMetrics::idleSize),
+                    gauge("ai.model.http.pool.pending", "等待获取连接的请求数", tags, metrics, ConnectionPoolMetrics::pendingAcquireSize),
+                    gauge("ai.model.http.pool.total", "已建立的连接数", tags, metrics, ConnectionPoolMetrics::allocatedSize)));
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            List<Meter> meters = poolMeters.remove(id + remote(remoteAddress));
+            if (meters != null) {
+                meters.forEach(meterRegistry::remove);
+            }
+        }
+
+        private Meter gauge(String name, String description, Tags tags, ConnectionPoolMetrics metrics,
+                            ToDoubleFunction<ConnectionPoolMetrics> value) {
+            return Gauge.builder(name, metrics, value)
+                    .description(description)
+                    .tags(tags)
+                    .strongReference(true)
+                    .register(meterRegistry);
+        }
+
+        private static String remote(SocketAddress remoteAddress) {
+            return remoteAddress instanceof InetSocketAddress address
+                    ? address.getHostString() + ":" + address.getPort()
+                    : String.valueOf(remoteAddress);
+        }
+    }
+}
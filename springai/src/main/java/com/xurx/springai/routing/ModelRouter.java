@@ -0,0 +1,420 @@
+package com.xurx.springai.routing;
+
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 模型路由
+ * 按模型统计最近调用的失败率与首 token 耗时并维护熔断器：请求的模型熔断或在首 token 前失败时，按配置的备用模型链故障转移；
+ * model=auto 时路由到当前首 token 耗时最短的健康模型
+ * <p>
+ * 已经输出 token 后的失败不再转移（回答无法拼接），直接向上游抛出
+ * <p>
+ * 开启对冲时，请求的模型在对冲延迟（最近首 token 耗时的分位数）内没有输出首 token，则把同一调用发给备用模型，
+ * 先输出首 token 的一路胜出，另一路取消；对冲次数受全局预算限制。同一个模型在两路中最多调用一次：
+ * 对冲发出后原请求不再故障转移到对冲模型，原请求已经转移到对冲模型时不再发出对冲
+ * <p>
+ * 每个模型的调用都经过 {@link ModelBulkheads} 的舱壁；舱壁已满的请求立即失败，不做故障转移，也不计入模型健康统计
+ */
+@Slf4j
+@Component
+public class ModelRouter {
+
+    public static final String AUTO = "auto";
+
+    /**
+     * 请求在模型舱壁中排队时的回调
+     */
+    @FunctionalInterface
+    public interface QueueListener {
+        void queued(String model, int position);
+    }
+
+    private final Map<String, ChatClient> chatClientMap;
+    private final ChatPipelineProperties.Routing properties;
+    private final ChatPipelineProperties.Hedging hedging;
+    private final ModelBulkheads bulkheads;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, ModelHealth> healthByModel = new LinkedHashMap<>();
+    private final Map<String, Counter> routes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+    private final Map<String, Counter> failovers = new ConcurrentHashMap<>();
+    private final Map<String, HedgeMeters> hedgeMeters = new ConcurrentHashMap<>();
+    private final HedgeBudget hedgeBudget;
+
+    @Autowired
+    public ModelRouter(Map<String, ChatClient> chatClientMap, ChatPipelineProperties chatPipelineProperties,
+                       ModelBulkheads bulkheads, MeterRegistry meterRegistry) {
+        this(chatClientMap, chatPipelineProperties, bulkheads, meterRegistry, System::nanoTime);
+    }
+
+    ModelRouter(Map<String, ChatClient> chatClientMap, ChatPipelineProperties chatPipelineProperties,
+                ModelBulkheads bulkheads, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.chatClientMap = chatClientMap;
+        this.bulkheads = bulkheads;
+        this.properties = chatPipelineProperties.getRouting();
+        this.hedging = chatPipelineProperties.getHedging();
+        this.hedgeBudget = new HedgeBudget(hedging.getBudgetRatio(), hedging.getBudgetBurst());
+        Gauge.builder("ai.model.hedge.budget", hedgeBudget, HedgeBudget::available)
+                .description("剩余的对冲额度")
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        chatClientMap.keySet().stream().sorted().forEach(model -> {
+            ModelHealth health = new ModelHealth(properties.getCircuitBreaker(), nanoClock);
+            healthByModel.put(model, health);
+            Gauge.builder("ai.model.router.circuit.state", health, h -> h.state().ordinal())
+                    .description("熔断器状态：0 关闭，1 半开，2 打开")
+                    .tag("model", model)
+                    .register(meterRegistry);
+            Gauge.builder("ai.model.router.latency", health, h -> Math.max(0, h.averageLatencyNanos()) / 1e9)
+                    .description("最近调用的平均首 token 耗时")
+                    .tag("model", model)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder("ai.model.router.error.rate", health, ModelHealth::errorRate)
+                    .description("最近调用的失败率")
+                    .tag("model", model)
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * 模型名称是否可以路由（已声明的模型，或开启时的 auto）
+     */
+    public boolean isRoutable(String model) {
+        return chatClientMap.containsKey(model) || (isAutoEnabled() && AUTO.equals(model));
+    }
+
+    /**
+     * 把请求的模型解析为具体模型：auto 选择当前首 token 耗时最短的健康模型（尚无样本的模型优先，以便采样），其余原样返回
+     */
+    public String resolve(String model) {
+        if (!isAutoEnabled() || !AUTO.equals(model)) {
+            return model;
+        }
+        List<String> candidates = properties.getAuto().getModels().isEmpty()
+                ? List.copyOf(healthByModel.keySet())
+                : properties.getAuto().getModels().stream().filter(chatClientMap::containsKey).toList();
+        String resolved = candidates.stream()
+                .filter(candidate -> healthByModel.get(candidate).isAvailable())
+                .min(Comparator.comparingLong(candidate -> healthByModel.get(candidate).averageLatencyNanos()))
+                .orElse(candidates.isEmpty() ? model : candidates.get(0));
+        route(AUTO, resolved, "auto");
+        log.debug("[模型路由] auto -> {}", resolved);
+        return resolved;
+    }
+
+    /**
+     * 流式调用：依次尝试请求的模型及其备用模型，跳过熔断中的模型，首 token 前失败时转移到下一个
+     *
+     * @param call 用选中模型的 ChatClient 发起调用
+     */
+    public Flux<ChatResponse> stream(String model, Function<ChatClient, Flux<ChatResponse>> call) {
+        return stream(model, call, null);
+    }
+
+    /**
+     * @param queueListener 在模型舱壁中排队时回调，可以为空
+     */
+    public Flux<ChatResponse> stream(String model, Function<ChatClient, Flux<ChatResponse>> call,
+                                     QueueListener queueListener) {
+        if (!properties.isEnabled()) {
+            return bulkheads.stream(model, () -> call.apply(chatClientMap.get(model)), positionListener(model, queueListener));
+        }
+        return Flux.defer(() -> attempt(model, chain(model), 0, "primary", call, queueListener, null, null));
+    }
+
+    /**
+     * 对冲流式调用：在 {@link #stream} 的基础上，首 token 超过对冲延迟时向第一个可用的备用模型发出同一调用
+     * 调用方需保证调用没有副作用（工具调用不应对冲）
+     */
+    public Flux<ChatResponse> hedgedStream(String model, Function<ChatClient, Flux<ChatResponse>> call) {
+        return hedgedStream(model, call, null);
+    }
+
+    public Flux<ChatResponse> hedgedStream(String model, Function<ChatClient, Flux<ChatResponse>> call,
+                                           QueueListener queueListener) {
+        if (!properties.isEnabled() || !hedging.isEnabled()) {
+            return stream(model, call, queueListener);
+        }
+        return Flux.defer(() -> {
+            hedgeBudget.onRequest();
+            String secondary = chain(model).stream()
+                    .filter(candidate -> !candidate.equals(model) && healthByModel.get(candidate).isAvailable())
+                    .findFirst()
+                    .orElse(null);
+            if (secondary == null) {
+                return attempt(model, chain(model), 0, "primary", call, queueListener, null, null);
+            }
+            HedgeMeters meters = hedgeMeters(model, secondary);
+            Duration delay = hedgeDelay(model);
+            meters.delay.record(delay);
+
+            // 两路已经调用过的模型，避免原请求故障转移与对冲重复调用同一个模型
+            Set<String> claimed = ConcurrentHashMap.newKeySet();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Flux<ChatResponse> primary = attempt(model, chain(model), 0, "primary", call, queueListener, null, claimed)
+                    .doOnError(primaryError::set);
+            Flux<ChatResponse> hedge = Mono.delay(delay)
+                    .filter(tick -> {
+                        if (claimed.contains(secondary)) {
+                            log.debug("[模型路由] 模型 {} 已故障转移到 {}，不再对冲", model, secondary);
+                            return false;
+                        }
+                        if (hedgeBudget.tryAcquire()) {
+                            return true;
+                        }
+                        meters.budgetExhausted.increment();
+                        return false;
+                    })
+                    .flatMapMany(tick -> {
+                        log.info("[模型路由] 模型 {} 在 {}ms 内没有输出首 token，对冲到 {}", model, delay.toMillis(), secondary);
+                        meters.fired.increment();
+                        AtomicBoolean first = new AtomicBoolean(true);
+                        return attempt(model, List.of(secondary), 0, "hedge", call, queueListener, null, claimed)
+                                .doOnNext(response -> {
+                                    if (first.getAndSet(false)) {
+                                        meters.won.increment();
+                                    }
+                                });
+                    });
+            // 先输出首个元素的一路胜出，另一路（含未触发的对冲定时）被取消；两路都没有输出时抛出请求模型的异常
+            return Flux.firstWithValue(primary, hedge)
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> primaryError.get() != null ? primaryError.get() : e);
+        });
+    }
+
+    /**
+     * 对冲延迟：该模型最近首 token 耗时的分位数（不低于 minDelay），样本不足时使用 initialDelay
+     */
+    Duration hedgeDelay(String model) {
+        long percentile = healthByModel.get(model).latencyPercentileNanos(hedging.getPercentile(), hedging.getMinimumSamples());
+        if (percentile < 0) {
+            return hedging.getInitialDelay();
+        }
+        return Duration.ofNanos(Math.max(percentile, hedging.getMinDelay().toNanos()));
+    }
+
+    /**
+     * 阻塞调用，故障转移规则与 {@link #stream} 相同，耗时按整次调用计
+     */
+    public <T> T call(String model, Function<ChatClient, T> call) {
+        if (!properties.isEnabled()) {
+            return bulkheads.call(model, () -> call.apply(chatClientMap.get(model)));
+        }
+        List<String> chain = chain(model);
+        RuntimeException lastError = null;
+        for (int i = 0; i < chain.size(); i++) {
+            String candidate = chain.get(i);
+            ModelHealth health = healthByModel.get(candidate);
+            if (!health.tryAcquire()) {
+                reject(candidate);
+                continue;
+            }
+            route(model, candidate, i == 0 ? "primary" : "fallback");
+            AtomicLong start = new AtomicLong();
+            try {
+                T result = bulkheads.call(candidate, () -> {
+                    start.set(nanoClock.getAsLong());
+                    return call.apply(chatClientMap.get(candidate));
+                });
+                health.success(nanoClock.getAsLong() - start.get());
+                return result;
+            } catch (BulkheadFullException e) {
+                health.release();
+                throw e;
+            } catch (RuntimeException e) {
+                health.failure();
+                failover(candidate, e);
+                lastError = e;
+            }
+        }
+        throw lastError != null ? lastError : new ModelUnavailableException(model);
+    }
+
+    /**
+     * 不计入路由统计的阻塞调用：直接调用请求的模型，不做故障转移，不更新熔断器与首 token 耗时样本，
+     * 用于离线评估等不应影响线上路由决策（auto 选择、对冲延迟）的调用；仍经过模型舱壁，避免压垮模型
+     */
+    public <T> T callUnrouted(String model, Function<ChatClient, T> call) {
+        ChatClient chatClient = chatClientMap.get(model);
+        if (chatClient == null) {
+            throw new ModelUnavailableException(model);
+        }
+        return bulkheads.call(model, () -> call.apply(chatClient));
+    }
+
+    /**
+     * @param reason  首个候选模型的路由原因（primary / hedge），之后的候选均为 fallback
+     * @param claimed 对冲时两路共享的已调用模型，已被另一路调用的候选直接跳过；不对冲时为空
+     */
+    private Flux<ChatResponse> attempt(String model, List<String> chain, int index, String reason,
+                                       Function<ChatClient, Flux<ChatResponse>> call, QueueListener queueListener,
+                                       Throwable lastError, Set<String> claimed) {
+        if (index >= chain.size()) {
+            return Flux.error(lastError != null ? lastError : new ModelUnavailableException(model));
+        }
+        String candidate = chain.get(index);
+        if (claimed != null && !claimed.add(candidate)) {
+            return attempt(model, chain, index + 1, reason, call, queueListener, lastError, claimed);
+        }
+        ModelHealth health = healthByModel.get(candidate);
+        if (!health.tryAcquire()) {
+            reject(candidate);
+            return attempt(model, chain, index + 1, reason, call, queueListener, lastError, claimed);
+        }
+        route(model, candidate, index == 0 ? reason : "fallback");
+
+        // 首 token 耗时从拿到舱壁名额、真正发起调用时开始计算
+        AtomicLong start = new AtomicLong();
+        AtomicLong firstTokenNanos = new AtomicLong(-1);
+        AtomicBoolean finished = new AtomicBoolean();
+        return bulkheads.stream(candidate, () -> {
+                    start.set(nanoClock.getAsLong());
+                    return call.apply(chatClientMap.get(candidate));
+                }, positionListener(candidate, queueListener))
+                .doOnNext(response -> firstTokenNanos.compareAndSet(-1, nanoClock.getAsLong() - start.get()))
+                .doOnComplete(() -> {
+                    if (finished.compareAndSet(false, true)) {
+                        long latency = firstTokenNanos.get();
+                        health.success(latency >= 0 ? latency : nanoClock.getAsLong() - start.get());
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (finished.compareAndSet(false, true)) {
+                        // 已经输出过 token 的取消（客户端断开、预测未命中）按首 token 耗时计为成功
+                        long latency = firstTokenNanos.get();
+                        if (latency >= 0) {
+                            health.success(latency);
+                        } else {
+                            health.release();
+                        }
+                    }
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof BulkheadFullException) {
+                        // 本地限流，与模型健康无关，直接拒绝
+                        if (finished.compareAndSet(false, true)) {
+                            health.release();
+                        }
+                        return Flux.error(e);
+                    }
+                    if (finished.compareAndSet(false, true)) {
+                        health.failure();
+                    }
+                    if (firstTokenNanos.get() >= 0) {
+                        return Flux.error(e);
+                    }
+                    failover(candidate, e);
+                    return attempt(model, chain, index + 1, reason, call, queueListener, e, claimed);
+                });
+    }
+
+    /**
+     * 请求的模型 + 备用模型链（去重，忽略未声明的模型）
+     */
+    List<String> chain(String model) {
+        List<String> chain = new ArrayList<>();
+        if (chatClientMap.containsKey(model)) {
+            chain.add(model);
+        }
+        for (String fallback : properties.getFallbacks().getOrDefault(model, List.of())) {
+            if (chatClientMap.containsKey(fallback) && !chain.contains(fallback)) {
+                chain.add(fallback);
+            }
+        }
+        return chain;
+    }
+
+    private IntConsumer positionListener(String model, QueueListener queueListener) {
+        return queueListener != null && bulkheads.isReportQueuePosition()
+                ? position -> queueListener.queued(model, position) : null;
+    }
+
+    ModelHealth health(String model) {
+        return healthByModel.get(model);
+    }
+
+    private boolean isAutoEnabled() {
+        return properties.isEnabled() && properties.getAuto().isEnabled();
+    }
+
+    private void route(String requested, String model, String reason) {
+        routes.computeIfAbsent(requested + '|' + model + '|' + reason, key -> Counter.builder("ai.model.router.routes")
+                        .description("模型路由决策")
+                        .tags("requested", requested, "model", model, "reason", reason)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private void reject(String model) {
+        log.info("[模型路由] 模型 {} 熔断中，跳过", model);
+        rejected.computeIfAbsent(model, key -> Counter.builder("ai.model.router.rejected")
+                        .description("熔断中被跳过的调用")
+                        .tag("model", model)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private void failover(String model, Throwable e) {
+        log.warn("[模型路由] 模型 {} 调用失败，尝试备用模型: {}", model, e.toString());
+        failovers.computeIfAbsent(model, key -> Counter.builder("ai.model.router.failovers")
+                        .description("首 token 前失败的调用（之后尝试备用模型）")
+                        .tag("model", model)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private HedgeMeters hedgeMeters(String model, String secondary) {
+        return hedgeMeters.computeIfAbsent(model + '|' + secondary, key -> new HedgeMeters(
+                Counter.builder("ai.model.hedge.fired")
+                        .description("发出的对冲请求")
+                        .tags("model", model, "hedge", secondary)
+                        .register(meterRegistry),
+                Counter.builder("ai.model.hedge.won")
+                        .description("对冲请求先于原请求输出首 token")
+                        .tags("model", model, "hedge", secondary)
+                        .register(meterRegistry),
+                Counter.builder("ai.model.hedge.budget.exhausted")
+                        .description("达到对冲延迟但预算不足、未发出对冲")
+                        .tags("model", model, "hedge", secondary)
+                        .register(meterRegistry),
+                Timer.builder("ai.model.hedge.delay")
+                        .description("对冲延迟")
+                        .tags("model", model, "hedge", secondary)
+                        .register(meterRegistry)));
+    }
+
+    private record HedgeMeters(Counter fired, Counter won, Counter budgetExhausted, Timer delay) {
+    }
+}
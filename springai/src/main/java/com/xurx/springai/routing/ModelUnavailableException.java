@@ -0,0 +1,11 @@
+package com.xurx.springai.routing;
+
+/**
+ * 请求的模型及其备用模型均处于熔断中
+ */
+public class ModelUnavailableException extends RuntimeException {
+
+    public ModelUnavailableException(String model) {
+        super("模型 " + model + " 及其备用模型暂不可用，请稍后重试");
+    }
+}
@@ -0,0 +1,75 @@
+package com.xurx.springai.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天记录导出（NDJSON，每行一条 JSON）
+ * 通过 MyBatis Cursor + MySQL 流式读取逐行写出，堆内存占用与导出条数无关
+ */
+@Slf4j
+@Service
+public class ChatRecordExportService {
+
+    private static final int NEWLINE = '\n';
+
+    private final ChatRecordMapper chatRecordMapper;
+    private final TransactionOperations transactionOperations;
+    private final ObjectWriter writer;
+
+    public ChatRecordExportService(ChatRecordMapper chatRecordMapper,
+                                   TransactionOperations transactionOperations,
+                                   ObjectMapper objectMapper) {
+        this.chatRecordMapper = chatRecordMapper;
+        this.transactionOperations = transactionOperations;
+        // 逐行写入同一个输出流：写完单条不关闭目标流，也不逐条 flush
+        this.writer = objectMapper.writerFor(ChatRecord.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * 按条件导出聊天记录到输出流，调用方负责关闭输出流
+     *
+     * @param userId 用户ID，为空表示不限
+     * @param from   起始时间（包含），为空表示不限
+     * @param to     结束时间（不包含），为空表示不限
+     * @return 导出条数
+     * @throws UncheckedIOException 写出失败（如客户端断开）
+     */
+    public long export(String userId, LocalDateTime from, LocalDateTime to, OutputStream out) {
+        long start = System.nanoTime();
+        // Cursor 依赖打开的 SqlSession，需要在事务内遍历，否则 mapper 调用返回后连接即被释放
+        Long exported = transactionOperations.execute(status -> {
+            long count = 0;
+            try (Cursor<ChatRecord> cursor = chatRecordMapper.selectForExport(userId, from, to)) {
+                for (ChatRecord chatRecord : cursor) {
+                    writer.writeValue(out, chatRecord);
+                    out.write(NEWLINE);
+                    count++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+        log.info("[聊天记录] 导出完成: userId={}, from={}, to={}, 条数={}, 耗时={}ms",
+                userId, from, to, exported, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return exported == null ? 0 : exported;
+    }
+}
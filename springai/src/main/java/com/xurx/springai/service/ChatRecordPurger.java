@@ -0,0 +1,185 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatRecordProperties;
+import com.xurx.springai.entity.ChatRecordPurge;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import com.xurx.springai.mapper.ChatRecordPurgeMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 聊天记录后台分块删除
+ * 用户发起的删除只入队即返回，由单个后台线程按 chunkSize 分块执行 DELETE ... LIMIT，块间停顿 pause，
+ * 单条语句锁定的行数有上限，不会长时间阻塞同一范围内的在线写入
+ * <p>
+ * 删除任务先登记到 chat_record_purge 再入队，完成后标记 finish_time：进程重启时未完成的任务在启动时重新执行；
+ * 登记的行同时是墓碑，历史与导出查询据此过滤已删除的会话，保留到过期清理时删除
+ */
+@Slf4j
+@Component
+public class ChatRecordPurger {
+
+    static final String SESSION = "session";
+    static final String USER = "user";
+
+    private final ChatRecordMapper chatRecordMapper;
+    private final ChatRecordPurgeMapper chatRecordPurgeMapper;
+    private final ChatRecordProperties.Purge properties;
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Timer chunkTimer;
+
+    public ChatRecordPurger(ChatRecordMapper chatRecordMapper,
+                            ChatRecordPurgeMapper chatRecordPurgeMapper,
+                            ChatRecordProperties chatRecordProperties,
+                            MeterRegistry meterRegistry) {
+        this.chatRecordMapper = chatRecordMapper;
+        this.chatRecordPurgeMapper = chatRecordPurgeMapper;
+        this.properties = chatRecordProperties.getPurge();
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-record-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ai.chat.record.purge.pending", pending, AtomicInteger::get)
+                .description("等待执行的后台删除任务数")
+                .register(meterRegistry);
+        chunkTimer = Timer.builder("ai.chat.record.purge.chunk.latency")
+                .description("单个分块 DELETE 的耗时")
+                .register(meterRegistry);
+        for (String scope : new String[]{SESSION, USER, "retention", "retention_summary", "retention_purge"}) {
+            rowsCounter(scope);
+        }
+        resumePending();
+    }
+
+    /**
+     * 登记删除任务后在后台删除指定会话的聊天记录；登记完成即返回，此后该会话的记录不再出现在查询结果中
+     */
+    public void purgeSession(String sessionId) {
+        chatRecordPurgeMapper.insert(SESSION, sessionId);
+        submit(SESSION, sessionId);
+    }
+
+    /**
+     * 登记删除任务后在后台删除指定用户的聊天记录，登记完成即返回
+     */
+    public void purgeUser(String userId) {
+        chatRecordPurgeMapper.insert(USER, userId);
+        submit(USER, userId);
+    }
+
+    /**
+     * 分块删除 before 之前已完成的删除任务（墓碑），由过期清理任务调用
+     *
+     * @return 删除行数
+     */
+    public long deleteFinishedBefore(LocalDateTime before) {
+        return deleteInChunks("retention_purge", limit -> chatRecordPurgeMapper.deleteChunkFinishedBefore(before, limit));
+    }
+
+    /**
+     * 在当前线程上分块删除，直到某一块删除的行数小于 chunkSize
+     *
+     * @param scope       指标标签
+     * @param deleteChunk 以 chunkSize 为参数执行一次 DELETE ... LIMIT，返回删除行数
+     * @return 删除总行数
+     */
+    public long deleteInChunks(String scope, IntUnaryOperator deleteChunk) {
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        Counter rows = rowsCounter(scope);
+        long total = 0;
+        while (true) {
+            long start = System.nanoTime();
+            int deleted = deleteChunk.applyAsInt(chunkSize);
+            chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            rows.increment(deleted);
+            total += deleted;
+            if (deleted < chunkSize) {
+                return total;
+            }
+            try {
+                Thread.sleep(properties.getPause().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("[聊天记录] 分块删除被中断: scope={}, 已删除 {} 行", scope, total);
+                return total;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("[聊天记录] 停机时仍有 {} 个删除任务未完成，下次启动时继续执行", pending.get());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 重新提交上次停机时未完成的删除任务（多实例同时重做也只是重复执行幂等的 DELETE）
+     */
+    private void resumePending() {
+        try {
+            List<ChatRecordPurge> purges = chatRecordPurgeMapper.selectPending();
+            for (ChatRecordPurge purge : purges) {
+                submit(purge.getScope(), purge.getTargetId());
+            }
+            if (!purges.isEmpty()) {
+                log.info("[聊天记录] 恢复 {} 个未完成的删除任务", purges.size());
+            }
+        } catch (Exception e) {
+            log.error("[聊天记录] 读取未完成的删除任务失败，将在下次启动时重试", e);
+        }
+    }
+
+    private void submit(String scope, String key) {
+        IntUnaryOperator deleteChunk = USER.equals(scope)
+                ? limit -> chatRecordMapper.deleteChunkByUserId(key, limit)
+                : limit -> chatRecordMapper.deleteChunkBySessionId(key, limit);
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                long deleted = deleteInChunks(scope, deleteChunk);
+                if (!Thread.currentThread().isInterrupted()) {
+                    chatRecordPurgeMapper.finish(scope, key);
+                }
+                log.debug("[聊天记录] 后台删除完成: {}={}, 删除条数={}", scope, key, deleted);
+            } catch (Exception e) {
+                log.error("[聊天记录] 后台删除失败: {}={}", scope, key, e);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private Counter rowsCounter(String scope) {
+        return Counter.builder("ai.chat.record.purge.rows")
+                .description("分块删除的行数（retention_summary 为 chat_session，retention_purge 为 chat_record_purge，其余为 chat_record）")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+}
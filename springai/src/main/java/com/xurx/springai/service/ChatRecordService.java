@@ -1,11 +1,15 @@
 package com.xurx.springai.service;
 
+import com.xurx.springai.dto.ChatRecordCursor;
+import com.xurx.springai.dto.CursorPage;
 import com.xurx.springai.entity.ChatRecord;
 import com.xurx.springai.mapper.ChatRecordMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,10 +18,19 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ChatRecordService {
 
+    /**
+     * 单页最大条数
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+
     private final ChatRecordMapper chatRecordMapper;
+    private final ChatRecordWriter chatRecordWriter;
+    private final ChatSessionService chatSessionService;
+    private final ChatRecordPurger chatRecordPurger;
+    private final ChatMemory chatMemory;
 
     /**
-     * 保存聊天记录
+     * 保存聊天记录（开启 write-behind 时异步批量落库），同时累加 chat_session 会话摘要
      */
     public void saveChatRecord(String userId, String sessionId, String role, String content, String model, Integer tokens) {
         ChatRecord chatRecord = new ChatRecord();
@@ -27,15 +40,22 @@ public class ChatRecordService {
         chatRecord.setContent(content);
         chatRecord.setModel(model);
         chatRecord.setTokens(tokens);
-        chatRecordMapper.insert(chatRecord);
+        chatRecord.setCreateTime(LocalDateTime.now());
+        chatRecordWriter.write(chatRecord);
         log.debug("保存聊天记录: userId={}, sessionId={}, role={}", userId, sessionId, role);
     }
 
     /**
-     * 根据userId查询聊天记录
+     * 分页查询用户的聊天记录，按会话分组、每个会话内从最新消息往前
+     *
+     * @param cursor 上一页返回的游标，第一页为空
+     * @param limit  每页条数
+     * @throws IllegalArgumentException 游标格式错误
      */
-    public List<ChatRecord> getChatRecordsByUserId(String userId) {
-        return chatRecordMapper.selectByUserId(userId);
+    public CursorPage<ChatRecord> getChatRecordsByUserId(String userId, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        List<ChatRecord> rows = chatRecordMapper.selectPageByUserId(userId, ChatRecordCursor.decode(cursor), pageSize + 1);
+        return CursorPage.of(rows, pageSize, chatRecord -> ChatRecordCursor.of(chatRecord).encode());
     }
 
     /**
@@ -46,23 +66,36 @@ public class ChatRecordService {
     }
 
     /**
-     * 根据userId和sessionId查询聊天记录
+     * 分页查询指定会话的聊天记录，从最新消息往前
+     *
+     * @param cursor 上一页返回的游标，第一页为空
+     * @param limit  每页条数
+     * @throws IllegalArgumentException 游标格式错误
      */
-    public List<ChatRecord> getChatRecordsByUserIdAndSessionId(String userId, String sessionId) {
-        return chatRecordMapper.selectByUserIdAndSessionId(userId, sessionId);
+    public CursorPage<ChatRecord> getChatRecordsByUserIdAndSessionId(String userId, String sessionId, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        List<ChatRecord> rows = chatRecordMapper.selectPageByUserIdAndSessionId(
+                userId, sessionId, ChatRecordCursor.decode(cursor), pageSize + 1);
+        return CursorPage.of(rows, pageSize, chatRecord -> ChatRecordCursor.of(chatRecord).encode());
     }
 
     /**
-     * 删除指定会话的聊天记录
+     * 删除指定会话：先持久化删除任务（历史与导出查询立即排除该会话，重启后继续删除），
+     * 会话摘要与会话记忆立即删除（会话列表中马上消失），聊天记录由后台分块删除
      */
-    public int deleteChatRecordsBySessionId(String sessionId) {
+    public void deleteChatRecordsBySessionId(String sessionId) {
         if (sessionId == null || sessionId.trim().isEmpty()) {
             log.warn("删除聊天记录失败，sessionId为空");
-            return 0;
+            return;
         }
-        int deleted = chatRecordMapper.deleteBySessionId(sessionId);
-        log.debug("删除聊天记录: sessionId={}, 删除条数={}", sessionId, deleted);
-        return deleted;
+        chatRecordPurger.purgeSession(sessionId);
+        chatSessionService.deleteBySessionId(sessionId);
+        chatMemory.clear(sessionId);
+        log.debug("已提交后台删除聊天记录: sessionId={}", sessionId);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
     }
 
     /**
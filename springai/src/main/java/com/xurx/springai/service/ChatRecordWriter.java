@@ -0,0 +1,265 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatRecordProperties;
+import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import com.xurx.springai.mapper.ChatRecordPurgeMapper;
+import com.xurx.springai.mapper.ChatSessionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 聊天记录异步批量写入（write-behind）
+ * 记录先进入有界内存队列，由后台线程攒批后用多行 INSERT 刷盘：攒满 batchSize 或等待超过 flushInterval 即刷盘；
+ * 队列满时调用方最多等待 offerTimeout，仍无空位则在调用方线程同步写入；停机时把队列中剩余记录全部刷盘
+ * 每次写入在同一事务中按会话累加 chat_session 摘要，一批记录每个会话只产生一行 upsert
+ * <p>
+ * 会话被删除时其记录可能还在队列中：写入事务先查询 chat_record_purge 墓碑，丢弃已删除会话的记录，
+ * 不会在删除之后重新插入聊天记录或重建会话摘要
+ */
+@Slf4j
+@Component
+public class ChatRecordWriter {
+
+    /**
+     * 停机时用于唤醒阻塞在队列上的后台线程，不会写入数据库
+     */
+    private static final ChatRecord WAKE_UP = new ChatRecord();
+
+    private final ChatRecordMapper chatRecordMapper;
+    private final ChatSessionMapper chatSessionMapper;
+    private final ChatRecordPurgeMapper chatRecordPurgeMapper;
+    private final TransactionOperations transactionOperations;
+    private final ChatRecordProperties.WriteBehind properties;
+    private final MeterRegistry meterRegistry;
+
+    private final BlockingQueue<ChatRecord> queue;
+
+    private Timer flushTimer;
+    private DistributionSummary flushSize;
+    private Counter flushFailures;
+    private Counter droppedRecords;
+    private Counter callerRuns;
+    private Counter purgedRecords;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public ChatRecordWriter(ChatRecordMapper chatRecordMapper,
+                            ChatSessionMapper chatSessionMapper,
+                            ChatRecordPurgeMapper chatRecordPurgeMapper,
+                            TransactionOperations transactionOperations,
+                            ChatRecordProperties chatRecordProperties,
+                            MeterRegistry meterRegistry) {
+        this.chatRecordMapper = chatRecordMapper;
+        this.chatSessionMapper = chatSessionMapper;
+        this.chatRecordPurgeMapper = chatRecordPurgeMapper;
+        this.transactionOperations = transactionOperations;
+        this.properties = chatRecordProperties.getWriteBehind();
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ai.chat.record.queue.depth", queue, BlockingQueue::size)
+                .description("等待刷盘的聊天记录数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("ai.chat.record.flush.latency")
+                .description("聊天记录批量刷盘耗时")
+                .register(meterRegistry);
+        flushSize = DistributionSummary.builder("ai.chat.record.flush.size")
+                .description("单次刷盘的记录数")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("ai.chat.record.flush.failures")
+                .description("批量刷盘失败次数（失败后逐行重试）")
+                .register(meterRegistry);
+        droppedRecords = Counter.builder("ai.chat.record.dropped")
+                .description("逐行重试仍失败而丢弃的聊天记录数")
+                .register(meterRegistry);
+        callerRuns = Counter.builder("ai.chat.record.caller.runs")
+                .description("队列已满时由调用方同步写入的聊天记录数")
+                .register(meterRegistry);
+        purgedRecords = Counter.builder("ai.chat.record.purged.skipped")
+                .description("会话已删除而在写入时丢弃的聊天记录数")
+                .register(meterRegistry);
+
+        if (!properties.isEnabled()) {
+            log.info("[聊天记录] 异步批量写入未开启，使用同步写入");
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "chat-record-writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("[聊天记录] 异步批量写入已开启：queueCapacity={}, batchSize={}, flushInterval={}",
+                properties.getQueueCapacity(), properties.getBatchSize(), properties.getFlushInterval());
+    }
+
+    /**
+     * 写入一条聊天记录（write-behind 开启时只入队，不等待落库）
+     */
+    public void write(ChatRecord chatRecord) {
+        if (!running) {
+            insert(chatRecord);
+            return;
+        }
+        try {
+            if (queue.offer(chatRecord, properties.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 背压：队列持续满载时由调用方同步写入，既不丢数据也让写入速度回落到数据库的处理能力
+        callerRuns.increment();
+        insert(chatRecord);
+    }
+
+    /**
+     * 停机时停止接收新记录，等待后台线程把队列中的剩余记录刷盘
+     * 等待超过 shutdownTimeout（例如数据库卡住）时中断后台线程，由停机线程同步写入队列中的剩余记录；
+     * 后台线程是守护线程，不能指望 JVM 等它写完
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue.offer(WAKE_UP);
+        long timeoutMillis = properties.getShutdownTimeout().toMillis();
+        worker.join(timeoutMillis);
+        if (worker.isAlive()) {
+            log.warn("[聊天记录] 停机刷盘超时，中断后台线程，由停机线程写入剩余 {} 条记录", queue.size());
+            worker.interrupt();
+        }
+        // 后台线程退出前后仍可能有记录入队；刷盘超时时剩余记录也在这里写入
+        List<ChatRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        flushInBatches(remaining);
+        if (worker.isAlive()) {
+            worker.join(timeoutMillis);
+            if (worker.isAlive()) {
+                log.error("[聊天记录] 后台线程中断后仍未退出，正在写入的一批记录可能丢失");
+            }
+        }
+    }
+
+    private void runWorker() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        List<ChatRecord> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                long waitNanos = batch.isEmpty() ? flushIntervalNanos : deadline - System.nanoTime();
+                ChatRecord first = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : queue.poll();
+                if (first != null) {
+                    if (batch.isEmpty()) {
+                        deadline = System.nanoTime() + flushIntervalNanos;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - batch.size());
+                    batch.removeIf(chatRecord -> chatRecord == WAKE_UP);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (batch.size() >= batchSize || (!batch.isEmpty() && System.nanoTime() - deadline >= 0)) {
+                flush(batch);
+            }
+        }
+
+        // 停机：把剩余记录按批次刷完
+        queue.drainTo(batch);
+        flushInBatches(batch);
+        log.info("[聊天记录] 后台写入线程已退出");
+    }
+
+    private void flushInBatches(List<ChatRecord> records) {
+        records.removeIf(chatRecord -> chatRecord == WAKE_UP);
+        int batchSize = Math.max(1, properties.getBatchSize());
+        for (int from = 0; from < records.size(); from += batchSize) {
+            flush(new ArrayList<>(records.subList(from, Math.min(records.size(), from + batchSize))));
+        }
+        records.clear();
+    }
+
+    private void flush(List<ChatRecord> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                List<ChatRecord> live = withoutPurgedSessions(batch);
+                if (!live.isEmpty()) {
+                    chatRecordMapper.insertBatch(live);
+                    chatSessionMapper.upsertBatch(ChatSessionService.summarize(live));
+                }
+            });
+            log.debug("[聊天记录] 批量写入 {} 条", batch.size());
+        } catch (Exception e) {
+            // 单条脏数据会导致整批失败，逐行重试把其余记录写进去
+            flushFailures.increment();
+            log.error("[聊天记录] 批量写入 {} 条失败，逐行重试", batch.size(), e);
+            for (ChatRecord chatRecord : batch) {
+                try {
+                    insert(chatRecord);
+                } catch (Exception rowError) {
+                    droppedRecords.increment();
+                    log.error("[聊天记录] 写入失败，丢弃记录: userId={}, sessionId={}, role={}",
+                            chatRecord.getUserId(), chatRecord.getSessionId(), chatRecord.getRole(), rowError);
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSize.record(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * 单条写入聊天记录及其会话摘要
+     */
+    private void insert(ChatRecord chatRecord) {
+        transactionOperations.executeWithoutResult(status -> {
+            if (withoutPurgedSessions(List.of(chatRecord)).isEmpty()) {
+                return;
+            }
+            chatRecordMapper.insert(chatRecord);
+            chatSessionMapper.upsertBatch(ChatSessionService.summarize(List.of(chatRecord)));
+        });
+    }
+
+    /**
+     * 去掉已删除会话的记录，需在写入事务内调用（墓碑查询的共享锁持有到事务提交）
+     */
+    private List<ChatRecord> withoutPurgedSessions(List<ChatRecord> records) {
+        Set<String> sessionIds = records.stream().map(ChatRecord::getSessionId).collect(Collectors.toSet());
+        List<String> purged = chatRecordPurgeMapper.selectPurgedSessionIds(sessionIds);
+        if (purged.isEmpty()) {
+            return records;
+        }
+        List<ChatRecord> live = records.stream().filter(chatRecord -> !purged.contains(chatRecord.getSessionId())).toList();
+        purgedRecords.increment(records.size() - live.size());
+        log.debug("[聊天记录] 会话已删除，丢弃 {} 条记录: sessionIds={}", records.size() - live.size(), purged);
+        return live;
+    }
+}
@@ -0,0 +1,242 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatRecordProperties;
+import com.xurx.springai.entity.TablePartition;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import com.xurx.springai.mapper.ChatSessionMapper;
+import com.xurx.springai.mapper.PartitionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天数据过期清理
+ * chat_record 与 SPRING_AI_CHAT_MEMORY 按自然月 RANGE 分区（分区名 pYYYYMM，末尾为 pmax），每次执行：
+ * 1. 从 pmax 拆出未来 futurePartitions 个月的分区，保证新数据总是落在可单独删除的月分区里
+ * 2. 整个分区都早于 now - retention 时直接 DROP PARTITION，不逐行删除
+ * 表尚未分区时 chat_record 退化为按 create_time 分块删除；dry-run 时只记录将要删除的分区和行
+ * <p>
+ * 多实例部署时每个节点都会按 cron 触发，分区 DDL 并发执行会互相冲突：执行前获取 MySQL 命名锁 {@value #LOCK_NAME}，
+ * 未获取到说明其它节点正在执行，本次跳过。锁持有在单独的连接上，节点宕机时随连接断开自动释放
+ */
+@Slf4j
+@Service
+public class ChatRetentionService {
+
+    static final String CHAT_RECORD = "chat_record";
+    static final String CHAT_MEMORY = "SPRING_AI_CHAT_MEMORY";
+    static final String MAX_PARTITION = "pmax";
+    static final String LOCK_NAME = "chat_retention";
+
+    private static final List<String> TABLES = List.of(CHAT_RECORD, CHAT_MEMORY);
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final PartitionMapper partitionMapper;
+    private final ChatRecordMapper chatRecordMapper;
+    private final ChatSessionMapper chatSessionMapper;
+    private final ChatRecordPurger chatRecordPurger;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final ChatRecordProperties.Retention properties;
+    private final MeterRegistry meterRegistry;
+    private final ZoneId zone;
+
+    public ChatRetentionService(PartitionMapper partitionMapper,
+                                ChatRecordMapper chatRecordMapper,
+                                ChatSessionMapper chatSessionMapper,
+                                ChatRecordPurger chatRecordPurger,
+                                SqlSessionFactory sqlSessionFactory,
+                                ChatRecordProperties chatRecordProperties,
+                                MeterRegistry meterRegistry) {
+        this.partitionMapper = partitionMapper;
+        this.chatRecordMapper = chatRecordMapper;
+        this.chatSessionMapper = chatSessionMapper;
+        this.chatRecordPurger = chatRecordPurger;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.properties = chatRecordProperties.getRetention();
+        this.meterRegistry = meterRegistry;
+        this.zone = ZoneId.of(properties.getZone());
+
+        for (String table : TABLES) {
+            createdCounter(table);
+            droppedCounter(table, true);
+            droppedCounter(table, false);
+        }
+        for (String outcome : new String[]{"success", "error"}) {
+            runTimer(outcome);
+        }
+        skippedCounter();
+    }
+
+    @Scheduled(cron = "${chat-record.retention.cron:0 30 3 * * *}", zone = "${chat-record.retention.zone:Asia/Shanghai}")
+    public void run() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        run(LocalDateTime.now(zone));
+    }
+
+    /**
+     * 持有命名锁执行一次清理；锁绑定在该 SqlSession 独占的连接上，清理本身走其它连接
+     */
+    void run(LocalDateTime now) {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            PartitionMapper lockMapper = session.getMapper(PartitionMapper.class);
+            if (!Integer.valueOf(1).equals(lockMapper.tryLock(LOCK_NAME))) {
+                skippedCounter().increment();
+                log.info("[数据清理] 其它实例正在执行，本次跳过");
+                return;
+            }
+            try {
+                maintainAll(now);
+            } finally {
+                lockMapper.releaseLock(LOCK_NAME);
+            }
+        }
+    }
+
+    private void maintainAll(LocalDateTime now) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        LocalDateTime cutoff = now.minus(properties.getRetention());
+        log.info("[数据清理] 开始: cutoff={}, dryRun={}", cutoff, properties.isDryRun());
+        try {
+            for (String table : TABLES) {
+                maintain(table, now.toLocalDate().withDayOfMonth(1), cutoff);
+            }
+            purgeSessionSummaries(cutoff);
+        } catch (RuntimeException e) {
+            outcome = "error";
+            log.error("[数据清理] 执行失败", e);
+        } finally {
+            runTimer(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void maintain(String table, LocalDate thisMonth, LocalDateTime cutoff) {
+        List<TablePartition> partitions = partitionMapper.selectPartitions(table);
+        if (partitions.isEmpty()) {
+            purgeUnpartitioned(table, cutoff);
+            return;
+        }
+        createFuturePartitions(table, partitions, thisMonth);
+        dropExpiredPartitions(table, partitions, cutoff);
+    }
+
+    /**
+     * 从最后一个有界分区的上界开始，逐月从 pmax 拆出新分区，直到覆盖 thisMonth + futurePartitions
+     */
+    private void createFuturePartitions(String table, List<TablePartition> partitions, LocalDate thisMonth) {
+        if (!MAX_PARTITION.equals(partitions.get(partitions.size() - 1).getName())) {
+            log.warn("[数据清理] {} 缺少 {} 分区，跳过预建分区", table, MAX_PARTITION);
+            return;
+        }
+        LocalDate next = partitions.stream()
+                .map(TablePartition::getLessThan)
+                .filter(Objects::nonNull)
+                .reduce((first, second) -> second)
+                .map(lessThan -> Instant.ofEpochSecond(lessThan).atZone(zone).toLocalDate().withDayOfMonth(1))
+                .orElse(thisMonth);
+        LocalDate until = thisMonth.plusMonths(properties.getFuturePartitions() + 1L);
+        for (; next.isBefore(until); next = next.plusMonths(1)) {
+            String name = PARTITION_NAME.format(next);
+            partitionMapper.splitMaxPartition(table, name, epochSecond(next.plusMonths(1).atStartOfDay()));
+            createdCounter(table).increment();
+            log.info("[数据清理] 已创建分区 {}.{}", table, name);
+        }
+    }
+
+    private void dropExpiredPartitions(String table, List<TablePartition> partitions, LocalDateTime cutoff) {
+        long cutoffEpoch = epochSecond(cutoff);
+        for (TablePartition partition : partitions) {
+            if (partition.getLessThan() == null || partition.getLessThan() > cutoffEpoch) {
+                continue;
+            }
+            if (properties.isDryRun()) {
+                log.info("[数据清理] dry-run，将删除分区 {}.{}（约 {} 行）", table, partition.getName(), partition.getTableRows());
+            } else {
+                partitionMapper.dropPartition(table, partition.getName());
+                log.info("[数据清理] 已删除分区 {}.{}（约 {} 行）", table, partition.getName(), partition.getTableRows());
+            }
+            droppedCounter(table, properties.isDryRun()).increment();
+        }
+    }
+
+    /**
+     * 表尚未按 migrations/chat-record-partitioning.sql 分区时的兜底：chat_record 走 idx_create_time 分块删除，
+     * SPRING_AI_CHAT_MEMORY 没有可用的时间索引，只提示
+     */
+    private void purgeUnpartitioned(String table, LocalDateTime cutoff) {
+        if (!CHAT_RECORD.equals(table)) {
+            log.warn("[数据清理] {} 未分区，跳过过期清理", table);
+            return;
+        }
+        if (properties.isDryRun()) {
+            log.info("[数据清理] dry-run，{} 未分区，将分块删除 create_time < {} 的记录", table, cutoff);
+            return;
+        }
+        long deleted = chatRecordPurger.deleteInChunks("retention", limit -> chatRecordMapper.deleteChunkBefore(cutoff, limit));
+        log.info("[数据清理] {} 未分区，已分块删除 {} 条过期记录", table, deleted);
+    }
+
+    /**
+     * 最后活跃时间早于 cutoff 的会话，其聊天记录已全部过期；早于 cutoff 完成的删除任务一并删除
+     */
+    private void purgeSessionSummaries(LocalDateTime cutoff) {
+        if (properties.isDryRun()) {
+            log.info("[数据清理] dry-run，将删除 update_time < {} 的会话摘要", cutoff);
+            return;
+        }
+        long deleted = chatRecordPurger.deleteInChunks("retention_summary",
+                limit -> chatSessionMapper.deleteChunkBefore(cutoff, limit));
+        log.info("[数据清理] 已删除 {} 个过期会话摘要", deleted);
+        // 早于 cutoff 完成的删除任务，被删除会话的记录即使有漏网的也已过期
+        long tombstones = chatRecordPurger.deleteFinishedBefore(cutoff);
+        log.info("[数据清理] 已删除 {} 个过期删除任务", tombstones);
+    }
+
+    private long epochSecond(LocalDateTime time) {
+        return time.atZone(zone).toEpochSecond();
+    }
+
+    private Counter createdCounter(String table) {
+        return Counter.builder("ai.retention.partitions.created")
+                .description("预建的月分区数")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    private Counter droppedCounter(String table, boolean dryRun) {
+        return Counter.builder("ai.retention.partitions.dropped")
+                .description("删除（dry-run 时为将要删除）的过期分区数")
+                .tag("table", table)
+                .tag("dry_run", String.valueOf(dryRun))
+                .register(meterRegistry);
+    }
+
+    private Counter skippedCounter() {
+        return Counter.builder("ai.retention.run.skipped")
+                .description("因其它实例持有清理锁而跳过的次数")
+                .register(meterRegistry);
+    }
+
+    private Timer runTimer(String outcome) {
+        return Timer.builder("ai.retention.run")
+                .description("过期清理任务耗时")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,110 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.dto.ChatSessionCursor;
+import com.xurx.springai.dto.CursorPage;
+import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.entity.ChatSession;
+import com.xurx.springai.mapper.ChatSessionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话列表：chat_session 由 ChatRecordWriter 在写入聊天记录的同一事务中维护，这里只负责读取和删除
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatSessionService {
+
+    /**
+     * 标题最大长度（字符）
+     */
+    static final int TITLE_LENGTH = 100;
+
+    /**
+     * 最后一条消息预览最大长度（字符）
+     */
+    static final int PREVIEW_LENGTH = 255;
+
+    private final ChatSessionMapper chatSessionMapper;
+
+    /**
+     * 分页查询用户的会话，最近活跃的会话在前
+     *
+     * @param cursor 上一页返回的游标，第一页为空
+     * @param limit  每页条数
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public CursorPage<ChatSession> getSessionsByUserId(String userId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), ChatRecordService.MAX_PAGE_SIZE);
+        List<ChatSession> rows = chatSessionMapper.selectPageByUserId(userId, ChatSessionCursor.decode(cursor), pageSize + 1);
+        return CursorPage.of(rows, pageSize, chatSession -> ChatSessionCursor.of(chatSession).encode());
+    }
+
+    /**
+     * 删除指定会话的摘要
+     */
+    public int deleteBySessionId(String sessionId) {
+        int deleted = chatSessionMapper.deleteBySessionId(sessionId);
+        log.debug("删除会话摘要: sessionId={}, 删除条数={}", sessionId, deleted);
+        return deleted;
+    }
+
+    /**
+     * 把一批聊天记录（按写入顺序）汇总为每个会话一行的增量
+     * 结果按 (user_id, session_id) 排序，并发的多行 upsert 以相同顺序加锁，避免死锁
+     */
+    static List<ChatSession> summarize(List<ChatRecord> records) {
+        Map<String, ChatSession> sessions = new LinkedHashMap<>();
+        for (ChatRecord chatRecord : records) {
+            LocalDateTime time = chatRecord.getCreateTime() != null ? chatRecord.getCreateTime() : LocalDateTime.now();
+            ChatSession session = sessions.computeIfAbsent(chatRecord.getUserId() + '\n' + chatRecord.getSessionId(), key -> {
+                ChatSession created = new ChatSession();
+                created.setUserId(chatRecord.getUserId());
+                created.setSessionId(chatRecord.getSessionId());
+                created.setTitle("");
+                created.setMessageCount(0);
+                created.setTotalTokens(0L);
+                created.setCreateTime(time);
+                return created;
+            });
+            if (session.getTitle().isEmpty() && "user".equals(chatRecord.getRole())) {
+                session.setTitle(abbreviate(chatRecord.getContent(), TITLE_LENGTH));
+            }
+            session.setLastMessage(abbreviate(chatRecord.getContent(), PREVIEW_LENGTH));
+            if (chatRecord.getModel() != null) {
+                session.setLastModel(chatRecord.getModel());
+            }
+            session.setMessageCount(session.getMessageCount() + 1);
+            if (chatRecord.getTokens() != null) {
+                session.setTotalTokens(session.getTotalTokens() + chatRecord.getTokens());
+            }
+            session.setUpdateTime(time);
+        }
+        List<ChatSession> result = new ArrayList<>(sessions.values());
+        result.sort(Comparator.comparing(ChatSession::getUserId).thenComparing(ChatSession::getSessionId));
+        return result;
+    }
+
+    /**
+     * 压缩空白并按字符（code point）截断，避免截断代理对
+     */
+    private static String abbreviate(String content, int maxLength) {
+        if (content == null) {
+            return "";
+        }
+        String text = content.strip().replaceAll("\\s+", " ");
+        if (text.codePointCount(0, text.length()) <= maxLength) {
+            return text;
+        }
+        return text.substring(0, text.offsetByCodePoints(0, maxLength - 1)) + "…";
+    }
+}
@@ -0,0 +1,245 @@
+package com.xurx.springai.service;
+
+import com.alibaba.cloud.ai.graph.action.AsyncNodeActionWithConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 意图图节点与执行阶段的耗时指标
+ * 每个节点 / 阶段统一记录 ai.graph.node.latency（耗时）、ai.graph.node.errors（失败次数）、ai.graph.node.active（执行中数量），
+ * 以 node 标签区分；耗时同时保留最近 {@link #RECENT_WINDOW} 内的 p50 / p95 / p99 供 actuator 端点查看
+ * <p>
+ * 节点返回流式响应时，耗时一直统计到流结束；流被下游取消时不计入耗时与失败
+ */
+@Component
+public class GraphNodeMetrics {
+
+    /**
+     * 图节点
+     */
+    public static final List<String> NODES = List.of("intent_recognition", "chitchat", "rag", "tool_call");
+
+    /**
+     * 节点之外的执行阶段：整张图、语义缓存查询、向量检索
+     */
+    public static final String GRAPH = "graph";
+    public static final String SEMANTIC_CACHE = "semantic_cache";
+    public static final String RETRIEVAL = "retrieval";
+
+    static final Duration RECENT_WINDOW = Duration.ofMinutes(2);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters> metersByNode = new ConcurrentHashMap<>();
+
+    public GraphNodeMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        // 预先注册已知节点与阶段的指标，避免热路径上查找
+        NODES.forEach(this::meters);
+        List.of(GRAPH, SEMANTIC_CACHE, RETRIEVAL).forEach(this::meters);
+    }
+
+    /**
+     * 包装图节点：统计节点执行耗时，结果中的流式响应会一直统计到流结束
+     */
+    public AsyncNodeActionWithConfig timed(String node, AsyncNodeActionWithConfig action) {
+        return (state, config) -> {
+            Execution execution = start(node);
+            try {
+                return action.apply(state, config)
+                        .whenComplete((result, error) -> {
+                            if (error != null) {
+                                execution.fail();
+                            }
+                        })
+                        .thenApply(result -> untilStreamsComplete(result, execution));
+            } catch (RuntimeException e) {
+                execution.fail();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * 统计同步阶段的耗时
+     */
+    public <T> T record(String phase, Supplier<T> supplier) {
+        Execution execution = start(phase);
+        try {
+            T result = supplier.get();
+            execution.succeed();
+            return result;
+        } catch (RuntimeException e) {
+            execution.fail();
+            throw e;
+        }
+    }
+
+    /**
+     * 统计 Reactor 阶段从订阅到结束的耗时
+     */
+    public <T> Flux<T> timed(String phase, Flux<T> flux) {
+        return Flux.defer(() -> {
+            Execution execution = start(phase);
+            return execution.observe(flux);
+        });
+    }
+
+    public <T> Mono<T> timed(String phase, Mono<T> mono) {
+        return Mono.defer(() -> {
+            Execution execution = start(phase);
+            return mono.doOnSuccess(value -> execution.succeed())
+                    .doOnError(e -> execution.fail())
+                    .doOnCancel(() -> execution.finish(SignalType.CANCEL));
+        });
+    }
+
+    /**
+     * 最近一段时间各节点 / 阶段的耗时快照（毫秒）
+     */
+    public Map<String, NodeLatency> snapshot() {
+        Map<String, NodeLatency> snapshot = new HashMap<>();
+        metersByNode.forEach((node, meters) -> {
+            HistogramSnapshot histogram = meters.latency.takeSnapshot();
+            Map<Double, Double> percentiles = new HashMap<>();
+            for (var value : histogram.percentileValues()) {
+                percentiles.put(value.percentile(), value.value(TimeUnit.MILLISECONDS));
+            }
+            snapshot.put(node, new NodeLatency(
+                    histogram.count(),
+                    (long) meters.errors.count(),
+                    meters.active.get(),
+                    percentiles.getOrDefault(0.5, 0.0),
+                    percentiles.getOrDefault(0.95, 0.0),
+                    percentiles.getOrDefault(0.99, 0.0),
+                    histogram.max(TimeUnit.MILLISECONDS)));
+        });
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> untilStreamsComplete(Map<String, Object> result, Execution execution) {
+        Map<String, Object> timed = null;
+        for (Map.Entry<String, Object> entry : result.entrySet()) {
+            if (entry.getValue() instanceof Flux<?> flux && timed == null) {
+                timed = new HashMap<>(result);
+                timed.put(entry.getKey(), execution.observe((Flux<Object>) flux));
+            }
+        }
+        if (timed == null) {
+            execution.succeed();
+            return result;
+        }
+        return timed;
+    }
+
+    private Execution start(String node) {
+        Meters meters = meters(node);
+        meters.active.incrementAndGet();
+        return new Execution(meters, System.nanoTime());
+    }
+
+    private Meters meters(String node) {
+        return metersByNode.computeIfAbsent(node, n -> {
+            AtomicInteger active = new AtomicInteger();
+            Gauge.builder("ai.graph.node.active", active, AtomicInteger::get)
+                    .description("正在执行的节点数")
+                    .tag("node", n)
+                    .register(meterRegistry);
+            return new Meters(
+                    Timer.builder("ai.graph.node.latency")
+                            .description("意图图节点 / 阶段耗时")
+                            .tag("node", n)
+                            .publishPercentiles(0.5, 0.95, 0.99)
+                            .publishPercentileHistogram()
+                            .distributionStatisticExpiry(RECENT_WINDOW)
+                            .register(meterRegistry),
+                    Counter.builder("ai.graph.node.errors")
+                            .description("意图图节点 / 阶段失败次数")
+                            .tag("node", n)
+                            .register(meterRegistry),
+                    active);
+        });
+    }
+
+    /**
+     * @param count  累计完成次数
+     * @param errors 累计失败次数
+     * @param active 当前执行中的数量
+     */
+    public record NodeLatency(long count, long errors, int active,
+                              double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+    }
+
+    private record Meters(Timer latency, Counter errors, AtomicInteger active) {
+    }
+
+    /**
+     * 一次节点 / 阶段执行，结束信号可能来自多个回调，只记录一次
+     */
+    private static final class Execution {
+
+        private final Meters meters;
+        private final long start;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Execution(Meters meters, long start) {
+            this.meters = meters;
+            this.start = start;
+        }
+
+        /**
+         * 在结束信号向下游传递之前记录，订阅方收到结束信号时指标已更新
+         */
+        <T> Flux<T> observe(Flux<T> flux) {
+            return flux.doOnComplete(this::succeed)
+                    .doOnError(e -> fail())
+                    .doOnCancel(() -> finish(SignalType.CANCEL));
+        }
+
+        void finish(SignalType signal) {
+            switch (signal) {
+                case ON_ERROR -> fail();
+                case CANCEL -> finish(false, false);
+                default -> succeed();
+            }
+        }
+
+        void succeed() {
+            finish(true, false);
+        }
+
+        void fail() {
+            finish(true, true);
+        }
+
+        private void finish(boolean recordLatency, boolean failed) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            meters.active.decrementAndGet();
+            if (recordLatency) {
+                meters.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (failed) {
+                meters.errors.increment();
+            }
+        }
+    }
+}
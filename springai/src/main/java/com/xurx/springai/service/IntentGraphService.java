@@ -1,28 +1,49 @@
 package com.xurx.springai.service;
 
 import com.alibaba.cloud.ai.graph.*;
+import com.alibaba.cloud.ai.graph.action.AsyncNodeActionWithConfig;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
+import com.xurx.springai.advisor.MetricAdvisor;
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.configuration.ExecutionConfiguration;
+import com.xurx.springai.dto.ChatStreamEvent;
+import com.xurx.springai.dto.TokenUsage;
+import com.xurx.springai.intent.IntentClassifier;
+import com.xurx.springai.intent.IntentRecognitionService;
+import com.xurx.springai.routing.BulkheadFullException;
+import com.xurx.springai.routing.ModelRouter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.tool.ToolCallbackProvider;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
 
 import jakarta.annotation.PostConstruct;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.alibaba.cloud.ai.graph.action.AsyncNodeAction.node_async;
 import static com.alibaba.cloud.ai.graph.action.AsyncEdgeAction.edge_async;
@@ -31,23 +52,78 @@ import static com.alibaba.cloud.ai.graph.action.AsyncEdgeAction.edge_async;
 @Slf4j
 public class IntentGraphService {
 
-    private final Map<String, ChatClient> chatClientMap;
+    /**
+     * RunnableConfig 元数据：本次执行的步骤事件通道
+     */
+    private static final String STEP_SINK = "stepSink";
+
+    /**
+     * RunnableConfig 元数据：本次执行的预测生成句柄
+     */
+    private static final String SPECULATION = "speculation";
+
+    /**
+     * RunnableConfig 元数据：接收本次回答 token 用量的 {@code AtomicReference<TokenUsage>}
+     */
+    private static final String USAGE = "usage";
+
+    /**
+     * RunnableConfig 元数据：会话 ID，回答节点据此读写会话记忆
+     */
+    private static final String CONVERSATION_ID = "conversationId";
+
+    private final ModelRouter modelRouter;
     private final RetrievalAugmentationAdvisor retrievalAugmentationAdvisor;
     private final ToolCallbackProvider mcpToolCallbackProvider;
 
-    @Value("classpath:prompts/intent-classification.txt")
-    private Resource intentPromptResource;
+    private final IntentRecognitionService intentRecognitionService;
+    private final ChatPipelineProperties.Speculation speculation;
 
-    private CompiledGraph intentGraph;
+    /**
+     * 预测意图不受支持时在本服务内关闭预测生成，不修改共享的配置对象
+     */
+    private final boolean speculationEnabled;
+    private final ChatPipelineProperties.Hedging hedging;
+    private final SpeculationMetrics speculationMetrics;
+    private final SemanticCacheService semanticCacheService;
+    private final RequestCoalescer requestCoalescer;
+    private final GraphNodeMetrics graphNodeMetrics;
+    private final ChatMemory chatMemory;
+    private final Scheduler blockingScheduler;
 
-    private static final Set<String> VALID_INTENTS = Set.of("chitchat", "rag", "tool_call");
+    private CompiledGraph intentGraph;
 
-    public IntentGraphService(Map<String, ChatClient> chatClientMap,
+    public IntentGraphService(ModelRouter modelRouter,
                               RetrievalAugmentationAdvisor retrievalAugmentationAdvisor,
-                              ToolCallbackProvider mcpToolCallbackProvider) {
-        this.chatClientMap = chatClientMap;
+                              ToolCallbackProvider mcpToolCallbackProvider,
+                              IntentRecognitionService intentRecognitionService,
+                              ChatPipelineProperties chatPipelineProperties,
+                              SpeculationMetrics speculationMetrics,
+                              SemanticCacheService semanticCacheService,
+                              RequestCoalescer requestCoalescer,
+                              GraphNodeMetrics graphNodeMetrics,
+                              ChatMemory chatMemory,
+                              @Qualifier(ExecutionConfiguration.BLOCKING_SCHEDULER) Scheduler blockingScheduler) {
+        this.modelRouter = modelRouter;
         this.retrievalAugmentationAdvisor = retrievalAugmentationAdvisor;
         this.mcpToolCallbackProvider = mcpToolCallbackProvider;
+        this.intentRecognitionService = intentRecognitionService;
+        this.speculation = chatPipelineProperties.getSpeculation();
+        this.hedging = chatPipelineProperties.getHedging();
+        this.speculationMetrics = speculationMetrics;
+        this.semanticCacheService = semanticCacheService;
+        this.requestCoalescer = requestCoalescer;
+        this.graphNodeMetrics = graphNodeMetrics;
+        this.chatMemory = chatMemory;
+        this.blockingScheduler = blockingScheduler;
+
+        // 工具调用可能有副作用，不允许预先执行
+        String predictedIntent = speculation.getPredictedIntent();
+        boolean supported = IntentClassifier.VALID_INTENTS.contains(predictedIntent) && !"tool_call".equals(predictedIntent);
+        if (speculation.isEnabled() && !supported) {
+            log.warn("[预测生成] 不支持预测意图 '{}'，已关闭预测生成", predictedIntent);
+        }
+        this.speculationEnabled = supported;
     }
 
     @PostConstruct
@@ -64,82 +140,22 @@ public class IntentGraphService {
         StateGraph stateGraph = new StateGraph("intentGraph", keyStrategyFactory);
 
         // intent_recognition 节点：意图分类
-        stateGraph.addNode("intent_recognition", node_async(state -> {
+        stateGraph.addNode("intent_recognition", graphNodeMetrics.timed("intent_recognition", AsyncNodeActionWithConfig.of(node_async(state -> {
             String message = state.value("message", String.class).orElse("");
             String model = state.value("model", String.class).orElse("qwen");
             log.info("[意图识别] 用户输入={}, 模型={}", message, model);
 
-            ChatClient chatClient = chatClientMap.get(model);
-
-            PromptTemplate template = new PromptTemplate(intentPromptResource);
-            String intentPrompt = template.render(Map.of("message", message));
-
-            String intent = chatClient.prompt()
-                    .user(intentPrompt)
-                    .call()
-                    .content()
-                    .trim()
-                    .toLowerCase();
-
-            // 兜底逻辑：如果模型返回了无法识别的意图，则默认降级为闲聊
-            if (!VALID_INTENTS.contains(intent)) {
-                log.warn("[意图识别] 无法识别 '{}'，降级为闲聊", intent);
-                intent = "chitchat";
-            }
+            String intent = intentRecognitionService.recognize(message, model).getIntent();
 
             log.info("[意图识别] 分类结果：{}", intent);
             return Map.of("intent", intent);
-        }));
-
-        // chitchat 节点：闲聊
-        stateGraph.addNode("chitchat", node_async(state -> {
-            String message = state.value("message", String.class).orElse("");
-            String model = state.value("model", String.class).orElse("qwen");
-            log.info("[闲聊] 处理消息：{}", message);
-
-            ChatClient chatClient = chatClientMap.get(model);
-            String response = chatClient.prompt()
-                    .user(message)
-                    .call()
-                    .content();
-
-            log.info("[闲聊] 回复已生成");
-            return Map.of("response", response);
-        }));
-
-        // rag 节点：知识库检索
-        stateGraph.addNode("rag", node_async(state -> {
-            String message = state.value("message", String.class).orElse("");
-            String model = state.value("model", String.class).orElse("qwen");
-            log.info("[知识库检索] 处理消息：{}", message);
-
-            ChatClient chatClient = chatClientMap.get(model);
-            String response = chatClient.prompt()
-                    .advisors(retrievalAugmentationAdvisor)
-                    .user(message)
-                    .call()
-                    .content();
-
-            log.info("[知识库检索] 回复已生成");
-            return Map.of("response", response);
-        }));
-
-        // tool_call 节点：工具调用
-        stateGraph.addNode("tool_call", node_async(state -> {
-            String message = state.value("message", String.class).orElse("");
-            String model = state.value("model", String.class).orElse("qwen");
-            log.info("[工具调用] 处理消息：{}", message);
+        }))));
 
-            ChatClient chatClient = chatClientMap.get(model);
-            String response = chatClient.prompt()
-                    .toolCallbacks(mcpToolCallbackProvider.getToolCallbacks())
-                    .user(message)
-                    .call()
-                    .content();
-
-            log.info("[工具调用] 回复已生成");
-            return Map.of("response", response);
-        }));
+        // 回答节点：返回模型的流式响应，流式执行时逐 token 输出，阻塞执行时由图聚合为完整回复
+        // 所有节点经 GraphNodeMetrics 包装，统计耗时、失败次数与执行中数量
+        stateGraph.addNode("chitchat", graphNodeMetrics.timed("chitchat", answerNode("chitchat")));
+        stateGraph.addNode("rag", graphNodeMetrics.timed("rag", answerNode("rag")));
+        stateGraph.addNode("tool_call", graphNodeMetrics.timed("tool_call", answerNode("tool_call")));
 
         // 边定义
         stateGraph.addEdge(StateGraph.START, "intent_recognition");
@@ -159,19 +175,26 @@ public class IntentGraphService {
         stateGraph.addEdge("rag", StateGraph.END);
         stateGraph.addEdge("tool_call", StateGraph.END);
 
-        this.intentGraph = stateGraph.compile();
+        // 节点开始 / 完成由生命周期监听转换为步骤事件
+        this.intentGraph = stateGraph.compile(CompileConfig.builder()
+                .withLifecycleListener(new StepEventListener())
+                .build());
         log.info("意图识别图编译完成");
     }
 
     /**
      * 执行意图识别图，返回最终响应结果
      */
-    public String execute(String message, String model) {
+    public String execute(String message, String requestedModel) {
+        String model = modelRouter.resolve(requestedModel);
         log.info("[IntentGraphService] execute: message={}, model={}", message, model);
         try {
             Optional<OverAllState> result = intentGraph.invoke(Map.of("message", message, "model", model));
             if (result.isPresent()) {
-                return result.get().value("response", String.class).orElse("抱歉，处理请求时出现问题。");
+                return result.get().value("response")
+                        .map(response -> response instanceof AssistantMessage assistantMessage
+                                ? assistantMessage.getText() : String.valueOf(response))
+                        .orElse("抱歉，处理请求时出现问题。");
             }
             return "抱歉，处理请求时出现问题。";
         } catch (Exception e) {
@@ -181,101 +204,250 @@ public class IntentGraphService {
     }
 
     /**
-     * 执行意图识别图，返回分步骤的 SSE 流（包括步骤事件、流式 token 和完成事件）
+     * 流式执行意图识别图，返回分步骤的类型化事件流（包括步骤事件、流式 token 和完成事件）
      */
-    public Flux<ServerSentEvent<String>> executeWithSteps(String message, String model) {
-        ObjectMapper mapper = new ObjectMapper();
-        ChatClient chatClient = chatClientMap.get(model);
+    public Flux<ChatStreamEvent> executeWithSteps(String message, String model) {
+        return executeWithSteps(message, model, null);
+    }
 
-        log.info("[executeWithSteps] 开始处理, message={}, model={}", message, model);
+    /**
+     * 流式执行意图识别图，回答时带上会话历史并把本轮问答写入会话记忆
+     *
+     * @param conversationId 会话 ID，为空时不使用会话记忆
+     */
+    public Flux<ChatStreamEvent> executeWithSteps(String message, String requestedModel, String conversationId) {
+        return Flux.defer(() -> {
+                    // model=auto 在本次执行开始时解析为具体模型，意图识别与回答使用同一模型
+                    String model = modelRouter.resolve(requestedModel);
+                    log.info("[executeWithSteps] 开始处理, message={}, model={}", message, model);
+
+                    Sinks.Many<ChatStreamEvent> steps = Sinks.many().unicast().onBackpressureBuffer();
+                    AtomicReference<TokenUsage> usage = new AtomicReference<>();
+                    RunnableConfig.Builder config = RunnableConfig.builder()
+                            .addMetadata(STEP_SINK, steps)
+                            .addMetadata(USAGE, usage);
+                    if (conversationId != null) {
+                        config.addMetadata(CONVERSATION_ID, conversationId);
+                    }
+                    SpeculativeRun speculativeRun = speculationEnabled && speculation.isEnabledFor(model)
+                            ? new SpeculativeRun(message, model, usage, conversationId) : null;
+                    if (speculativeRun != null) {
+                        config.addMetadata(SPECULATION, speculativeRun);
+                    }
 
-        // Phase 1: 立即发出"正在识别意图"
-        Flux<ServerSentEvent<String>> phase1 = Flux.just(
-                buildStepEvent(mapper, "intent_recognition", "processing", null, "正在识别意图...")
-        );
+                    Flux<ChatStreamEvent> outputs = intentGraph.stream(Map.of("message", message, "model", model), config.build())
+                            .<ChatStreamEvent>handle((output, sink) -> {
+                                if (output.isEND()) {
+                                    sink.next(ChatStreamEvent.done(usage.get()));
+                                } else if (output instanceof StreamingOutput<?> streamingOutput
+                                        && StringUtils.hasLength(streamingOutput.chunk())) {
+                                    sink.next(ChatStreamEvent.token(streamingOutput.chunk()));
+                                }
+                            })
+                            .doOnTerminate(steps::tryEmitComplete);
+
+                    // 步骤事件与节点输出在同一执行线程上依次产生，合并后保持先后顺序
+                    return graphNodeMetrics.timed(GraphNodeMetrics.GRAPH, Flux.merge(steps.asFlux(), outputs))
+                            .doFinally(signal -> {
+                                if (speculativeRun != null) {
+                                    speculativeRun.dispose();
+                                }
+                            });
+                })
+                // 意图识别节点是阻塞调用，整张图放到阻塞调度器上执行
+                .subscribeOn(blockingScheduler)
+                .doOnError(e -> log.error("[executeWithSteps] 流式处理异常", e))
+                .onErrorResume(e -> Flux.just(ChatStreamEvent.error(errorMessage(e))));
+    }
 
-        // Phase 2: 意图识别(阻塞) → 步骤事件 → 流式 token → done
-        Flux<ServerSentEvent<String>> phase2 = Mono.fromCallable(() -> {
-                    log.info("[意图识别] 用户输入={}, 模型={}", message, model);
-                    PromptTemplate template = new PromptTemplate(intentPromptResource);
-                    String intentPrompt = template.render(Map.of("message", message));
-                    String intent = chatClient.prompt()
-                            .user(intentPrompt)
-                            .call()
-                            .content()
-                            .trim()
-                            .toLowerCase();
-                    if (!VALID_INTENTS.contains(intent)) {
-                        log.warn("[意图识别] 无法识别 '{}'，降级为闲聊", intent);
-                        intent = "chitchat";
-                    }
-                    log.info("[意图识别] 分类结果：{}", intent);
-                    return intent;
+    /**
+     * 回答节点：预测生成命中时复用已缓存的响应，否则查询语义缓存或调用模型生成
+     */
+    private AsyncNodeActionWithConfig answerNode(String intent) {
+        String intentLabel = getIntentLabel(intent);
+        return AsyncNodeActionWithConfig.node_async((state, config) -> {
+            String message = state.value("message", String.class).orElse("");
+            String model = state.value("model", String.class).orElse("qwen");
+            log.info("[{}] 处理消息：{}", intentLabel, message);
+
+            Consumer<TokenUsage> usageListener = usageListener(config);
+            String conversationId = config.metadata(CONVERSATION_ID).map(String::valueOf).orElse(null);
+            ModelRouter.QueueListener queueListener = queueListener(config, intent);
+            Flux<ChatResponse> response = config.metadata(SPECULATION)
+                    .map(SpeculativeRun.class::cast)
+                    .map(speculativeRun -> speculativeRun.resolve(intent, message, model, queueListener))
+                    .orElseGet(() -> cachedOrGenerated(intent, message, model, usageListener, conversationId, queueListener));
+            return Map.of("response", response);
+        });
+    }
+
+    /**
+     * 语义缓存命中时回放历史答案，否则调用模型生成并在完成后写入缓存；
+     * 同时进行的相同请求合并为一次模型调用
+     * <p>
+     * 缓存的答案不带会话历史，会话已有历史时回答依赖上下文，既不查询也不写入缓存；
+     * 命中时模型调用被跳过，本轮问答由这里写入会话记忆
+     */
+    private Flux<ChatResponse> cachedOrGenerated(String intent, String message, String model,
+                                                 Consumer<TokenUsage> usageListener, String conversationId,
+                                                 ModelRouter.QueueListener queueListener) {
+        boolean cacheEnabled = semanticCacheService.isEnabledFor(intent);
+        // 只在缓存或合并需要时读取会话记忆
+        boolean firstTurn = (cacheEnabled || requestCoalescer.isEnabledFor(intent)) && !hasHistory(conversationId);
+        if (!cacheEnabled || !firstTurn) {
+            if (cacheEnabled) {
+                log.debug("[语义缓存] 会话已有历史，跳过缓存：conversationId={}", conversationId);
+            }
+            return generated(intent, message, model, usageListener, conversationId, queueListener, firstTurn, false);
+        }
+        return graphNodeMetrics.timed(GraphNodeMetrics.SEMANTIC_CACHE, semanticCacheService.lookup(message, model, intent))
+                .map(answer -> {
+                    log.info("[语义缓存] 命中：intent={}", intent);
+                    return remembered(semanticCacheService.replay(answer).map(IntentGraphService::toChatResponse),
+                            conversationId, message);
                 })
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMapMany(intent -> {
-                    String intentLabel = getIntentLabel(intent);
-                    log.info("[{}] 处理消息：{}", intentLabel, message);
-
-                    Flux<ServerSentEvent<String>> stepEvents = Flux.just(
-                            buildStepEvent(mapper, "intent_recognition", "complete", intent, "意图识别完成：" + intentLabel),
-                            buildStepEvent(mapper, intent, "processing", null, "正在" + intentLabel + "...")
-                    );
-
-                    Flux<String> tokenStream = switch (intent) {
-                        case "rag" -> chatClient.prompt()
-                                .advisors(retrievalAugmentationAdvisor)
-                                .user(message).stream().content();
-                        case "tool_call" -> chatClient.prompt()
-                                .toolCallbacks(mcpToolCallbackProvider.getToolCallbacks())
-                                .user(message).stream().content();
-                        default -> chatClient.prompt()
-                                .user(message).stream().content();
-                    };
-
-                    Flux<ServerSentEvent<String>> tokenEvents = tokenStream.map(token -> {
-                        try {
-                            return ServerSentEvent.<String>builder()
-                                    .event("token")
-                                    .data(mapper.writeValueAsString(Map.of("content", token)))
-                                    .build();
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
+                .switchIfEmpty(Mono.fromSupplier(() ->
+                        generated(intent, message, model, usageListener, conversationId, queueListener, true, true)))
+                .flatMapMany(Function.identity());
+    }
 
-                    Flux<ServerSentEvent<String>> doneEvent = Flux.just(
-                            ServerSentEvent.<String>builder().event("done").data("{}").build()
-                    );
+    /**
+     * 调用模型生成，cacheable 为 true 时完成后写入语义缓存；合并的请求共用一次调用，缓存也只写入一次
+     * <p>
+     * 已确认会话没有历史（firstTurn）时提示词与会话无关：不带会话 ID 调用，不同会话的相同首轮问题可以合并，
+     * 每个请求在完成后把本轮问答写入自己的会话记忆；否则带会话 ID 调用，由会话记忆顾问拼接历史并写回
+     */
+    private Flux<ChatResponse> generated(String intent, String message, String model,
+                                         Consumer<TokenUsage> usageListener, String conversationId,
+                                         ModelRouter.QueueListener queueListener, boolean firstTurn, boolean cacheable) {
+        String promptConversationId = firstTurn ? null : conversationId;
+        Flux<ChatResponse> responses = requestCoalescer.coalesce(intent, model, message, promptConversationId,
+                sharedUsage -> {
+                    Flux<ChatResponse> generated = routedStream(intent, message, model, sharedUsage, promptConversationId, queueListener);
+                    return cacheable ? storeOnComplete(generated, intent, message, model) : generated;
+                },
+                usageListener);
+        return firstTurn ? remembered(responses, conversationId, message) : responses;
+    }
 
-                    return Flux.concat(stepEvents, tokenEvents, doneEvent);
-                });
+    private Flux<ChatResponse> storeOnComplete(Flux<ChatResponse> responses, String intent, String message, String model) {
+        StringBuilder answer = new StringBuilder();
+        return responses.doOnNext(response -> answer.append(textOf(response)))
+                .doOnComplete(() -> semanticCacheService.store(message, model, intent, answer.toString()));
+    }
 
-        return Flux.concat(phase1, phase2)
-                .doOnError(e -> log.error("[executeWithSteps] 流式处理异常", e))
-                .onErrorResume(e -> {
-                    try {
-                        return Flux.just(ServerSentEvent.<String>builder()
-                                .event("error")
-                                .data(mapper.writeValueAsString(Map.of("message", "处理请求时发生错误：" + e.getMessage())))
-                                .build());
-                    } catch (Exception ex) {
-                        return Flux.empty();
+    /**
+     * 经模型路由流式生成：请求的模型熔断或在首 token 前失败时转移到备用模型；
+     * 开启对冲的意图在首 token 超过对冲延迟时同时请求备用模型，先输出者胜出
+     *
+     * @param queueListener 在模型舱壁中排队时回调，可以为空
+     */
+    private Flux<ChatResponse> routedStream(String intent, String message, String model,
+                                            Consumer<TokenUsage> usageListener, String conversationId,
+                                            ModelRouter.QueueListener queueListener) {
+        Function<ChatClient, Flux<ChatResponse>> call =
+                chatClient -> responseStream(intent, message, chatClient, usageListener, conversationId);
+        return hedging.isEnabledFor(intent)
+                ? modelRouter.hedgedStream(model, call, queueListener)
+                : modelRouter.stream(model, call, queueListener);
+    }
+
+    /**
+     * 回答在模型舱壁中排队时，以回答节点的 processing 步骤事件推送排队位置
+     */
+    private ModelRouter.QueueListener queueListener(RunnableConfig config, String intent) {
+        return (model, position) -> emitStep(config, ChatStreamEvent.step(intent, "processing", null,
+                "模型 " + model + " 繁忙，排队中（第 " + position + " 位）..."));
+    }
+
+    /**
+     * 调用模型流式生成，MetricAdvisor 按意图记录指标并在成功结束时回调 token 用量；
+     * 带会话 ID 时由 ConversationMemoryAdvisor 拼接会话历史并在成功结束后写回
+     */
+    private Flux<ChatResponse> responseStream(String intent, String message, ChatClient chatClient,
+                                              Consumer<TokenUsage> usageListener, String conversationId) {
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt()
+                .advisors(advisor -> {
+                    advisor.param(MetricAdvisor.INTENT, intent)
+                            .param(MetricAdvisor.USAGE_LISTENER, usageListener);
+                    if (conversationId != null) {
+                        advisor.param(ChatMemory.CONVERSATION_ID, conversationId);
                     }
                 });
+        return switch (intent) {
+            case "rag" -> request
+                    .advisors(retrievalAugmentationAdvisor)
+                    .user(message).stream().chatResponse();
+            case "tool_call" -> request
+                    .toolCallbacks(mcpToolCallbackProvider.getToolCallbacks())
+                    .user(message).stream().chatResponse();
+            default -> request
+                    .user(message).stream().chatResponse();
+        };
     }
 
-    private ServerSentEvent<String> buildStepEvent(ObjectMapper mapper, String node, String status, String intent, String message) {
-        try {
-            Map<String, Object> data = new HashMap<>(Map.of("node", node, "status", status, "message", message));
-            if (intent != null) data.put("intent", intent);
-            return ServerSentEvent.<String>builder()
-                    .event("step")
-                    .data(mapper.writeValueAsString(data))
-                    .build();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    /**
+     * 本次执行的 token 用量回调；阻塞执行时没有接收方，直接丢弃
+     */
+    @SuppressWarnings("unchecked")
+    private static Consumer<TokenUsage> usageListener(RunnableConfig config) {
+        return config.metadata(USAGE)
+                .map(usage -> (Consumer<TokenUsage>) ((AtomicReference<TokenUsage>) usage)::set)
+                .orElse(usage -> {
+                });
+    }
+
+    /**
+     * 舱壁拒绝原样提示稍后重试（图执行可能包装异常，按异常链查找），其余错误带上统一前缀
+     */
+    private static String errorMessage(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkheadFullException) {
+                return cause.getMessage();
+            }
         }
+        return "处理请求时发生错误：" + e.getMessage();
+    }
+
+    /**
+     * 会话记忆中是否已有历史消息，不带会话 ID 视为没有
+     */
+    private boolean hasHistory(String conversationId) {
+        return conversationId != null && !chatMemory.get(conversationId).isEmpty();
+    }
+
+    /**
+     * 没有经过会话记忆顾问的回答（语义缓存回放、首轮合并调用），成功结束后把本轮问答写入会话记忆
+     */
+    private Flux<ChatResponse> remembered(Flux<ChatResponse> responses, String conversationId, String message) {
+        if (conversationId == null) {
+            return responses;
+        }
+        return Flux.defer(() -> {
+            StringBuilder answer = new StringBuilder();
+            return responses.doOnNext(response -> answer.append(textOf(response)))
+                    .doOnComplete(() -> {
+                        if (!answer.isEmpty()) {
+                            chatMemory.add(conversationId, List.of(new UserMessage(message), new AssistantMessage(answer.toString())));
+                        }
+                    });
+        });
+    }
+
+    private static ChatResponse toChatResponse(String chunk) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(chunk))));
+    }
+
+    private static String textOf(ChatResponse response) {
+        Generation result = response.getResult();
+        if (result == null || result.getOutput().getText() == null) {
+            return "";
+        }
+        return result.getOutput().getText();
+    }
+
+    private String getNodeLabel(String node) {
+        return "intent_recognition".equals(node) ? "识别意图" : getIntentLabel(node);
     }
 
     private String getIntentLabel(String intent) {
@@ -286,4 +458,96 @@ public class IntentGraphService {
             default -> "处理";
         };
     }
+
+    /**
+     * 把节点开始 / 完成转换为步骤事件，写入本次执行的步骤事件通道（阻塞执行时没有通道，直接忽略）
+     */
+    private class StepEventListener implements GraphLifecycleListener {
+
+        @Override
+        public void before(String nodeId, Map<String, Object> state, RunnableConfig config, Long curTime) {
+            emitStep(config, ChatStreamEvent.step(nodeId, "processing", null, "正在" + getNodeLabel(nodeId) + "..."));
+        }
+
+        @Override
+        public void after(String nodeId, Map<String, Object> state, RunnableConfig config, Long curTime) {
+            if ("intent_recognition".equals(nodeId)) {
+                String intent = String.valueOf(state.get("intent"));
+                emitStep(config, ChatStreamEvent.step(nodeId, "complete", intent, "意图识别完成：" + getIntentLabel(intent)));
+            } else {
+                emitStep(config, ChatStreamEvent.step(nodeId, "complete", null, getNodeLabel(nodeId) + "完成"));
+            }
+        }
+    }
+
+    /**
+     * 写入本次执行的步骤事件通道（阻塞执行时没有通道，直接忽略）
+     */
+    @SuppressWarnings("unchecked")
+    private static void emitStep(RunnableConfig config, ChatStreamEvent event) {
+        config.metadata(STEP_SINK).ifPresent(sink -> ((Sinks.Many<ChatStreamEvent>) sink).tryEmitNext(event));
+    }
+
+    /**
+     * 预测式生成：意图识别的同时预先生成预测分支的回答并缓存，
+     * 回答节点命中预测则直接放行已缓存的响应，未命中则取消预生成的上游流并按实际意图重新生成
+     * <p>
+     * 与 {@link #generated} 相同：会话没有历史时不带会话 ID 预生成，命中后写入语义缓存与会话记忆；
+     * 会话已有历史时带会话 ID 预生成，回答依赖上下文，不写入语义缓存
+     */
+    private class SpeculativeRun {
+
+        private final String predictedIntent = speculation.getPredictedIntent();
+        private final long start = System.nanoTime();
+        private final AtomicInteger bufferedTokens = new AtomicInteger();
+        private final AtomicLong firstTokenNanos = new AtomicLong(-1);
+        private final ConnectableFlux<ChatResponse> responses;
+        private final Disposable connection;
+        private final Consumer<TokenUsage> usageListener;
+        private final String conversationId;
+        private final boolean firstTurn;
+
+        SpeculativeRun(String message, String model, AtomicReference<TokenUsage> usage, String conversationId) {
+            this.usageListener = usage::set;
+            this.conversationId = conversationId;
+            this.firstTurn = !hasHistory(conversationId);
+            this.responses = routedStream(predictedIntent, message, model, usageListener,
+                            firstTurn ? null : conversationId, null)
+                    .doOnNext(response -> {
+                        if (bufferedTokens.getAndIncrement() == 0) {
+                            firstTokenNanos.set(System.nanoTime() - start);
+                        }
+                    })
+                    .replay();
+            this.connection = responses.connect();
+        }
+
+        Flux<ChatResponse> resolve(String intent, String message, String model, ModelRouter.QueueListener queueListener) {
+            long intentNanos = System.nanoTime() - start;
+            if (predictedIntent.equals(intent)) {
+                log.info("[预测生成] 命中：intent={}, 已缓存 token={}", intent, bufferedTokens.get());
+                speculationMetrics.hit(model);
+                // 节省的首 token 耗时 = min(意图识别耗时, 预生成首 token 耗时)
+                AtomicBoolean firstToken = new AtomicBoolean(true);
+                Flux<ChatResponse> replayed = responses.doOnNext(response -> {
+                    if (firstToken.getAndSet(false)) {
+                        speculationMetrics.ttftSaved(model, Math.min(intentNanos, firstTokenNanos.get()));
+                    }
+                });
+                if (!firstTurn) {
+                    log.debug("[语义缓存] 会话已有历史，预测生成的回答不写入缓存：conversationId={}", conversationId);
+                    return replayed;
+                }
+                return remembered(storeOnComplete(replayed, intent, message, model), conversationId, message);
+            }
+            connection.dispose();
+            log.info("[预测生成] 未命中：预测={}, 实际={}, 丢弃 token={}", predictedIntent, intent, bufferedTokens.get());
+            speculationMetrics.miss(model, bufferedTokens.get());
+            return cachedOrGenerated(intent, message, model, usageListener, conversationId, queueListener);
+        }
+
+        void dispose() {
+            connection.dispose();
+        }
+    }
 }
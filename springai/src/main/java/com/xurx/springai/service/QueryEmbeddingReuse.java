@@ -0,0 +1,84 @@
+package com.xurx.springai.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 语义缓存向量索引使用的向量模型
+ * 查询时把问题的向量按原文暂存，未命中后写入同一问题时直接复用，避免一次请求向量化两次
+ * 暂存只需覆盖一次回答的生成时间，过期或淘汰后退回正常向量化
+ */
+class QueryEmbeddingReuse implements EmbeddingModel {
+
+    private static final int MAXIMUM_SIZE = 1_000;
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final EmbeddingModel delegate;
+    private final Cache<String, float[]> queryEmbeddings = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(TTL)
+            .build();
+
+    QueryEmbeddingReuse(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 相似度查询：向量化问题并暂存
+     */
+    @Override
+    public float[] embed(String text) {
+        float[] embedding = delegate.embed(text);
+        queryEmbeddings.put(text, embedding);
+        return embedding;
+    }
+
+    /**
+     * 写入缓存：所有文档都有暂存的查询向量时直接使用并移除，否则整体交给被包装的模型
+     */
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        List<float[]> embeddings = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            float[] embedding = queryEmbeddings.getIfPresent(document.getText());
+            if (embedding == null) {
+                return delegate.embed(documents, options, batchingStrategy);
+            }
+            embeddings.add(embedding);
+        }
+        documents.forEach(document -> queryEmbeddings.invalidate(document.getText()));
+        return embeddings;
+    }
+
+    /**
+     * 命中后不会再写入，提前释放暂存的向量
+     */
+    void discard(String text) {
+        queryEmbeddings.invalidate(text);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
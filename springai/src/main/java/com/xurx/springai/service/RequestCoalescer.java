@@ -0,0 +1,181 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.dto.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 单飞合并：同时进行的相同请求（模型、意图、规范化后的消息相同）只调用一次模型
+ * 第一个请求发起调用，之后加入的请求订阅同一个 replay 流，先收到已输出的响应再接收后续响应
+ * <p>
+ * 任一请求取消只退出自己的订阅，所有请求都取消后才取消模型调用；调用结束即移除，之后的相同请求重新调用
+ * 调用方只在提示词拼接了会话历史时传入会话 ID，这类请求只与同一会话中的相同请求合并（如重复提交、前端重试）；
+ * 会话还没有历史的首轮问题不带会话 ID，不同会话的相同问题可以合并
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ChatPipelineProperties.Coalescing properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 合并键 -> 进行中的调用
+     */
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(ChatPipelineProperties chatPipelineProperties, MeterRegistry meterRegistry) {
+        this.properties = chatPipelineProperties.getCoalescing();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("ai.chat.coalescing.inflight", inFlight, Map::size)
+                .description("可被合并的进行中模型调用数")
+                .register(meterRegistry);
+        properties.getIntents().forEach(this::coalesced);
+    }
+
+    /**
+     * 意图是否开启请求合并
+     */
+    public boolean isEnabledFor(String intent) {
+        return properties.isEnabledFor(intent);
+    }
+
+    /**
+     * 合并同时进行的相同请求，意图未开启合并时直接调用
+     *
+     * @param conversationId 提示词拼接了会话历史时为会话 ID，为空表示提示词与会话无关
+     * @param call           发起模型调用，参数为接收 token 用量的回调
+     * @param usageListener  本次请求的 token 用量回调，合并的请求在流成功结束时收到同一份用量
+     */
+    public Flux<ChatResponse> coalesce(String intent, String model, String message, String conversationId,
+                                       Function<Consumer<TokenUsage>, Flux<ChatResponse>> call,
+                                       Consumer<TokenUsage> usageListener) {
+        if (!properties.isEnabledFor(intent)) {
+            return call.apply(usageListener);
+        }
+        String key = key(intent, model, message, conversationId);
+        return Flux.defer(() -> {
+            while (true) {
+                InFlight existing = inFlight.get(key);
+                if (existing != null && existing.join()) {
+                    coalesced(intent).increment();
+                    log.info("[请求合并] 加入进行中的调用：intent={}, model={}", intent, model);
+                    return existing.responses(usageListener);
+                }
+                // 已结束但尚未移除的调用直接替换
+                InFlight created = new InFlight(key, call);
+                boolean published = existing == null
+                        ? inFlight.putIfAbsent(key, created) == null
+                        : inFlight.replace(key, existing, created);
+                if (published) {
+                    created.connect();
+                    return created.responses(usageListener);
+                }
+            }
+        });
+    }
+
+    /**
+     * 合并键：消息忽略首尾空白、连续空白与大小写
+     */
+    static String key(String intent, String model, String message, String conversationId) {
+        String normalized = WHITESPACE.matcher(message.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+        return String.join("\u0000", model, intent, conversationId != null ? conversationId : "", normalized);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private Counter coalesced(String intent) {
+        return coalescedCounters.computeIfAbsent(intent, key -> Counter.builder("ai.chat.coalesced")
+                .description("合并到进行中模型调用的请求数")
+                .tag("intent", key)
+                .register(meterRegistry));
+    }
+
+    /**
+     * 进行中的调用：发起者创建时即计为一个订阅者，订阅者全部退出后取消模型调用
+     */
+    private class InFlight {
+
+        private final String key;
+        private final AtomicReference<TokenUsage> usage = new AtomicReference<>();
+        private final ConnectableFlux<ChatResponse> responses;
+        private volatile Disposable connection;
+        private int subscribers = 1;
+        private boolean closed;
+
+        InFlight(String key, Function<Consumer<TokenUsage>, Flux<ChatResponse>> call) {
+            this.key = key;
+            // 调用结束时先移除，之后的相同请求不再加入已结束的调用
+            this.responses = Flux.defer(() -> call.apply(usage::set))
+                    .doOnTerminate(this::close)
+                    .replay();
+        }
+
+        void connect() {
+            connection = responses.connect();
+        }
+
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            subscribers++;
+            return true;
+        }
+
+        /**
+         * 订阅者的视图：成功结束时转交 token 用量，结束或取消时退出
+         */
+        Flux<ChatResponse> responses(Consumer<TokenUsage> usageListener) {
+            return responses
+                    .doOnComplete(() -> {
+                        TokenUsage tokenUsage = usage.get();
+                        if (tokenUsage != null) {
+                            usageListener.accept(tokenUsage);
+                        }
+                    })
+                    .doFinally(signal -> leave());
+        }
+
+        private void leave() {
+            boolean cancel;
+            synchronized (this) {
+                cancel = --subscribers == 0 && !closed;
+                closed = closed || cancel;
+            }
+            if (cancel) {
+                inFlight.remove(key, this);
+                connection.dispose();
+            }
+        }
+
+        private void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            inFlight.remove(key, this);
+        }
+    }
+}
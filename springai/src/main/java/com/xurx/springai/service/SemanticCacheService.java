@@ -0,0 +1,215 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.configuration.ExecutionConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 语义响应缓存
+ * 将用户问题向量化后写入独立的 Redis 向量索引，相似问题直接回放历史答案而不调用对话模型
+ * 未命中后写入时复用查询阶段的问题向量，每个问题只向量化一次
+ */
+@Slf4j
+@Service
+public class SemanticCacheService {
+
+    private static final String KB_VERSION_KEY_SUFFIX = "kb-version";
+    private static final List<String> CACHEABLE_INTENTS = List.of("chitchat", "rag");
+
+    private final ChatPipelineProperties.SemanticCache properties;
+    private final VectorStore knowledgeBaseStore;
+    private final EmbeddingModel embeddingModel;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler blockingScheduler;
+
+    private final Map<String, Counter> hitCounters = new HashMap<>();
+    private final Map<String, Counter> missCounters = new HashMap<>();
+    private Timer lookupTimer;
+
+    private JedisPooled jedis;
+    private QueryEmbeddingReuse cacheEmbeddingModel;
+    private RedisVectorStore cacheStore;
+
+    public SemanticCacheService(ChatPipelineProperties chatPipelineProperties,
+                                VectorStore vectorStore,
+                                EmbeddingModel embeddingModel,
+                                MeterRegistry meterRegistry,
+                                @Qualifier(ExecutionConfiguration.BLOCKING_SCHEDULER) Scheduler blockingScheduler) {
+        this.properties = chatPipelineProperties.getSemanticCache();
+        this.knowledgeBaseStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.meterRegistry = meterRegistry;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String intent : CACHEABLE_INTENTS) {
+            hitCounters.put(intent, counter(intent, "hit"));
+            missCounters.put(intent, counter(intent, "miss"));
+        }
+        lookupTimer = Timer.builder("ai.semantic.cache.lookup.latency")
+                .description("语义缓存查询耗时（含向量化）")
+                .register(meterRegistry);
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            // 复用知识库向量存储的 Redis 连接池，缓存索引不注册为 Bean，避免影响 VectorStore 自动配置
+            this.jedis = knowledgeBaseStore.<JedisPooled>getNativeClient()
+                    .orElseThrow(() -> new IllegalStateException("VectorStore 不是 Redis 向量存储"));
+            this.cacheEmbeddingModel = new QueryEmbeddingReuse(embeddingModel);
+            RedisVectorStore store = RedisVectorStore.builder(jedis, cacheEmbeddingModel)
+                    .indexName(properties.getIndexName())
+                    .prefix(properties.getPrefix())
+                    .metadataFields(
+                            RedisVectorStore.MetadataField.tag("model"),
+                            RedisVectorStore.MetadataField.tag("intent"),
+                            RedisVectorStore.MetadataField.tag("kbVersion"),
+                            RedisVectorStore.MetadataField.text("answer"))
+                    .initializeSchema(true)
+                    .build();
+            store.afterPropertiesSet();
+            this.cacheStore = store;
+            log.info("[语义缓存] 已初始化，索引={}", properties.getIndexName());
+        } catch (Exception e) {
+            log.warn("[语义缓存] 初始化失败，已禁用语义缓存", e);
+        }
+    }
+
+    /**
+     * 当前意图是否启用语义缓存
+     */
+    public boolean isEnabledFor(String intent) {
+        return cacheStore != null && properties.policyFor(intent) != null;
+    }
+
+    /**
+     * 查询相似问题的历史答案
+     *
+     * @return 命中时返回答案，否则为空
+     */
+    public Mono<String> lookup(String message, String model, String intent) {
+        if (!isEnabledFor(intent)) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> lookupTimer.record(() -> search(message, model, intent)))
+                .subscribeOn(blockingScheduler)
+                .flatMap(answer -> answer.isEmpty() ? Mono.<String>empty() : Mono.just(answer))
+                .doOnNext(answer -> {
+                    hitCounters.get(intent).increment();
+                    cacheEmbeddingModel.discard(message);
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> missCounters.get(intent).increment()))
+                .onErrorResume(e -> {
+                    log.warn("[语义缓存] 查询失败，跳过缓存", e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 将答案按固定长度切分为 token 流回放
+     */
+    public Flux<String> replay(String answer) {
+        int chunkSize = Math.max(1, properties.getReplayChunkSize());
+        List<String> chunks = new ArrayList<>();
+        int offset = 0;
+        int codePoints = answer.codePointCount(0, answer.length());
+        for (int i = 0; i < codePoints; i += chunkSize) {
+            int end = answer.offsetByCodePoints(offset, Math.min(chunkSize, codePoints - i));
+            chunks.add(answer.substring(offset, end));
+            offset = end;
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    /**
+     * 异步写入缓存，不阻塞响应流
+     */
+    public void store(String message, String model, String intent, String answer) {
+        ChatPipelineProperties.IntentPolicy policy = properties.policyFor(intent);
+        if (cacheStore == null || policy == null || answer == null || answer.isBlank()) {
+            return;
+        }
+        Mono.fromRunnable(() -> {
+                    String id = UUID.randomUUID().toString();
+                    Document document = Document.builder()
+                            .id(id)
+                            .text(message)
+                            .metadata(Map.of(
+                                    "model", model,
+                                    "intent", intent,
+                                    "kbVersion", currentKbVersion(),
+                                    "answer", answer))
+                            .build();
+                    cacheStore.add(List.of(document));
+                    jedis.expire(properties.getPrefix() + id, policy.getTtl().toSeconds());
+                })
+                .subscribeOn(blockingScheduler)
+                .subscribe(null, e -> log.warn("[语义缓存] 写入失败", e));
+    }
+
+    /**
+     * 知识库重新导入后调用，使依赖旧知识库的缓存失效
+     */
+    public void invalidateKnowledgeBase() {
+        if (jedis == null) {
+            return;
+        }
+        long version = jedis.incr(properties.getPrefix() + KB_VERSION_KEY_SUFFIX);
+        log.info("[语义缓存] 知识库已更新，缓存版本={}", version);
+    }
+
+    private String search(String message, String model, String intent) {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        SearchRequest searchRequest = SearchRequest.builder()
+                .query(message)
+                .topK(1)
+                .similarityThreshold(properties.getSimilarityThreshold())
+                .filterExpression(b.and(
+                        b.and(b.eq("model", model), b.eq("intent", intent)),
+                        b.eq("kbVersion", currentKbVersion())).build())
+                .build();
+        List<Document> documents = cacheStore.similaritySearch(searchRequest);
+        if (documents.isEmpty()) {
+            return "";
+        }
+        Object answer = documents.get(0).getMetadata().get("answer");
+        return answer == null ? "" : answer.toString();
+    }
+
+    private String currentKbVersion() {
+        String version = jedis.get(properties.getPrefix() + KB_VERSION_KEY_SUFFIX);
+        return version == null ? "0" : version;
+    }
+
+    private Counter counter(String intent, String result) {
+        return Counter.builder("ai.semantic.cache")
+                .description("语义缓存查询结果")
+                .tags("intent", intent, "result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,78 @@
+package com.xurx.springai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预测式生成指标
+ * 按模型统计预测命中率、预测失败浪费的 token 数以及命中时节省的首 token 耗时
+ */
+@Component
+public class SpeculationMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters> metersByModel = new ConcurrentHashMap<>();
+
+    public SpeculationMetrics(MeterRegistry meterRegistry, Map<String, ChatClient> chatClientMap) {
+        this.meterRegistry = meterRegistry;
+        // 预先注册已知模型的指标，避免热路径上查找
+        chatClientMap.keySet().forEach(this::meters);
+    }
+
+    /**
+     * 预测命中
+     */
+    public void hit(String model) {
+        meters(model).hit.increment();
+    }
+
+    /**
+     * 预测命中时节省的首 token 耗时
+     */
+    public void ttftSaved(String model, long savedNanos) {
+        meters(model).ttftSaved.record(savedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 预测失败
+     *
+     * @param model        模型标识
+     * @param wastedTokens 被丢弃的预生成 token 数
+     */
+    public void miss(String model, int wastedTokens) {
+        Meters meters = meters(model);
+        meters.miss.increment();
+        meters.wastedTokens.record(wastedTokens);
+    }
+
+    private Meters meters(String model) {
+        return metersByModel.computeIfAbsent(model, m -> new Meters(
+                Counter.builder("ai.speculation")
+                        .description("预测式生成结果")
+                        .tags("model", m, "outcome", "hit")
+                        .register(meterRegistry),
+                Counter.builder("ai.speculation")
+                        .description("预测式生成结果")
+                        .tags("model", m, "outcome", "miss")
+                        .register(meterRegistry),
+                DistributionSummary.builder("ai.speculation.wasted.tokens")
+                        .description("预测失败时丢弃的 token 数")
+                        .tag("model", m)
+                        .register(meterRegistry),
+                Timer.builder("ai.speculation.ttft.saved")
+                        .description("预测命中时节省的首 token 耗时")
+                        .tag("model", m)
+                        .register(meterRegistry)));
+    }
+
+    private record Meters(Counter hit, Counter miss, DistributionSummary wastedTokens, Timer ttftSaved) {
+    }
+}
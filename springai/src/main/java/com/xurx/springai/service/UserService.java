@@ -1,32 +1,64 @@
 package com.xurx.springai.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xurx.springai.configuration.UserProperties;
 import com.xurx.springai.entity.User;
 import com.xurx.springai.mapper.UserMapper;
 import com.xurx.springai.utils.PasswordEncoder;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserService {
 
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
 
     /**
-     * 根据userId查询用户，如果不存在则创建
+     * 已确认存在的用户ID，命中率通过 cache.gets{cache=user} 指标暴露
      */
-    public User getOrCreateUser(String userId) {
-        User user = userMapper.selectByUserId(userId);
-        if (user == null) {
-            user = new User();
-            user.setUserId(userId);
-            userMapper.insert(user);
+    private final boolean cacheEnabled;
+    private final Cache<String, Boolean> knownUsers;
+
+    public UserService(UserMapper userMapper, PasswordEncoder passwordEncoder,
+                       UserProperties userProperties, MeterRegistry meterRegistry) {
+        this.userMapper = userMapper;
+        this.passwordEncoder = passwordEncoder;
+        UserProperties.Cache properties = userProperties.getCache();
+        this.cacheEnabled = properties.isEnabled();
+        this.knownUsers = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownUsers, "user");
+    }
+
+    /**
+     * 确保用户存在，不存在则创建
+     * 命中缓存时不访问数据库；未命中时执行一次幂等 upsert，同一用户ID的并发请求只会有一个执行 upsert
+     */
+    public void ensureUserExists(String userId) {
+        if (!cacheEnabled) {
+            upsertUser(userId);
+            return;
+        }
+        knownUsers.get(userId, id -> {
+            upsertUser(id);
+            return Boolean.TRUE;
+        });
+    }
+
+    private void upsertUser(String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        if (userMapper.insertIfAbsent(user) > 0) {
             log.info("创建新用户: {}", userId);
         }
-        return user;
     }
 
     /**
@@ -73,6 +105,7 @@ public class UserService {
         user.setEmail(email);
 
         userMapper.insert(user);
+        knownUsers.put(userId, Boolean.TRUE);
         log.info("用户注册成功: username={}, userId={}", username, userId);
 
         return user;
@@ -0,0 +1,49 @@
+package com.xurx.springai.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.xurx.springai.dto.ChatStreamEvent;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天流式事件序列化工具类
+ * 复用 Spring 容器中预配置的 ObjectMapper，整个应用共享同一个线程安全的 ObjectWriter
+ */
+@Component
+public class ChatStreamEventWriter {
+
+    private final ObjectWriter writer;
+
+    public ChatStreamEventWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(ChatStreamEvent.class);
+    }
+
+    /**
+     * 将事件转换为 SSE
+     *
+     * @param event 聊天流式事件
+     * @return SSE 事件
+     */
+    public ServerSentEvent<String> toServerSentEvent(ChatStreamEvent event) {
+        return ServerSentEvent.<String>builder()
+                .event(event.getType().getEventName())
+                .data(write(event))
+                .build();
+    }
+
+    /**
+     * 序列化事件数据
+     *
+     * @param event 聊天流式事件
+     * @return JSON 字符串
+     */
+    public String write(ChatStreamEvent event) {
+        try {
+            return writer.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize chat stream event", e);
+        }
+    }
+}
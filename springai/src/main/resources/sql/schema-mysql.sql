@@ -1,3 +1,4 @@
+-- 按月 RANGE 分区，过期分区由 ChatRetentionService 整块删除，未来月份分区由其从 pmax 自动拆出
 CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
  `conversation_id` VARCHAR(36) NOT NULL,
  `content` TEXT NOT NULL,
@@ -5,4 +6,8 @@ CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
  `timestamp` TIMESTAMP NOT NULL,
 
  INDEX `SPRING_AI_CHAT_MEMORY_CONVERSATION_ID_TIMESTAMP_IDX` (`conversation_id`, `timestamp`)
+)
+PARTITION BY RANGE (UNIX_TIMESTAMP(`timestamp`)) (
+ PARTITION `p_init` VALUES LESS THAN (UNIX_TIMESTAMP('2026-10-01 00:00:00')),
+ PARTITION `pmax` VALUES LESS THAN MAXVALUE
 );
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.xurx.springai.advisor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationMemoryAdvisorTest {
+
+    private final ChatMemory chatMemory = MessageWindowChatMemory.builder().maxMessages(10).build();
+    private final AtomicReference<Prompt> lastPrompt = new AtomicReference<>();
+    private final ChatClient chatClient = ChatClient.builder(new ChatModel() {
+                @Override
+                public ChatResponse call(Prompt prompt) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Flux<ChatResponse> stream(Prompt prompt) {
+                    lastPrompt.set(prompt);
+                    return Flux.just("好", "的")
+                            .map(token -> new ChatResponse(List.of(new Generation(new AssistantMessage(token)))));
+                }
+            })
+            .defaultSystem("你是助手")
+            .defaultAdvisors(new ConversationMemoryAdvisor(chatMemory))
+            .build();
+
+    @Test
+    void prependsHistoryAfterSystemMessageAndRemembersCompletedTurn() {
+        stream("s1", "第一个问题").blockLast(Duration.ofSeconds(5));
+        stream("s1", "第二个问题").blockLast(Duration.ofSeconds(5));
+
+        List<Message> sent = lastPrompt.get().getInstructions();
+        assertEquals(List.of(MessageType.SYSTEM, MessageType.USER, MessageType.ASSISTANT, MessageType.USER),
+                sent.stream().map(Message::getMessageType).toList());
+        assertEquals("第一个问题", sent.get(1).getText());
+        assertEquals("好的", sent.get(2).getText());
+        assertEquals(4, chatMemory.get("s1").size());
+    }
+
+    @Test
+    void cancelledStreamLeavesNoHalfTurn() {
+        stream("s1", "问题").take(1).blockLast(Duration.ofSeconds(5));
+
+        assertTrue(chatMemory.get("s1").isEmpty());
+    }
+
+    @Test
+    void callsWithoutConversationIdBypassMemory() {
+        chatClient.prompt().user("问题").stream().chatResponse().blockLast(Duration.ofSeconds(5));
+
+        assertTrue(chatMemory.get(ChatMemory.DEFAULT_CONVERSATION_ID).isEmpty());
+        assertEquals(2, lastPrompt.get().getInstructions().size());
+    }
+
+    private Flux<ChatResponse> stream(String conversationId, String message) {
+        return chatClient.prompt()
+                .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
+                .user(message)
+                .stream().chatResponse();
+    }
+}
@@ -0,0 +1,152 @@
+package com.xurx.springai.advisor;
+
+import com.xurx.springai.dto.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricAdvisorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void recordsStreamMetricsUnderIntentAndReportsUsageBeforeCompletion() {
+        ChatClient chatClient = chatClient(Flux.just(chunk("你", null), chunk("好", null), chunk("", new DefaultUsage(12, 5)))
+                .delayElements(Duration.ofMillis(5)));
+        AtomicReference<TokenUsage> usage = new AtomicReference<>();
+        AtomicReference<TokenUsage> seenAtCompletion = new AtomicReference<>();
+
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "rag")
+                        .param(MetricAdvisor.USAGE_LISTENER, (Consumer<TokenUsage>) usage::set))
+                .user("hi")
+                .stream().chatResponse()
+                .doOnComplete(() -> seenAtCompletion.set(usage.get()))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(new TokenUsage(12, 5), seenAtCompletion.get());
+        assertEquals(1, meterRegistry.get("ai.chat.ttft")
+                .tags("model", "qwen", "intent", "rag", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("ai.chat.inter.token.latency")
+                .tags("model", "qwen", "intent", "rag", "outcome", "success").timer().count());
+        assertEquals(5, meterRegistry.get("ai.chat.completion.tokens")
+                .tags("model", "qwen", "intent", "rag", "outcome", "success").summary().totalAmount());
+        assertEquals(12, meterRegistry.get("ai.chat.prompt.tokens")
+                .tags("model", "qwen", "intent", "rag", "outcome", "success").summary().totalAmount());
+        // 原有的不带标签的累计计数器保持不变
+        assertEquals(12, meterRegistry.get("ai.prompt.tokens").counter().count());
+        assertEquals(5, meterRegistry.get("ai.completion.tokens").counter().count());
+        assertEquals(17, meterRegistry.get("ai.total.tokens").counter().count());
+    }
+
+    @Test
+    void registersOnlyObservedTagCombinations() {
+        ChatClient chatClient = chatClient(Flux.just(chunk("a", null)));
+        assertTrue(meterRegistry.find("ai.chat.duration").timers().isEmpty());
+
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "rag"))
+                .user("hi")
+                .call().content();
+
+        assertEquals(1, meterRegistry.find("ai.chat.duration").timers().size());
+        assertEquals(1, meterRegistry.get("ai.chat.duration")
+                .tags("model", "qwen", "intent", "rag", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void disabledCallsRecordNothing() {
+        ChatClient chatClient = chatClient(Flux.just(chunk("a", null), chunk("b", null)));
+
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "intent").param(MetricAdvisor.DISABLED, true))
+                .user("hi")
+                .stream().chatResponse()
+                .blockLast(Duration.ofSeconds(5));
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "intent").param(MetricAdvisor.DISABLED, true))
+                .user("hi")
+                .call().content();
+
+        assertTrue(meterRegistry.find("ai.chat.duration").timers().isEmpty());
+        assertEquals(0, meterRegistry.get("ai.total.tokens").counter().count());
+    }
+
+    @Test
+    void estimatesCompletionTokensFromChunksWhenProviderOmitsUsage() {
+        ChatClient chatClient = chatClient(Flux.just(chunk("a", null), chunk("b", null), chunk("c", null)));
+        AtomicReference<TokenUsage> usage = new AtomicReference<>();
+
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.USAGE_LISTENER, (Consumer<TokenUsage>) usage::set))
+                .user("hi")
+                .stream().chatResponse()
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(new TokenUsage(0, 3), usage.get());
+        assertEquals(1, meterRegistry.get("ai.chat.duration")
+                .tags("model", "qwen", "intent", "none", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void cancelledStreamIsTaggedAndDoesNotReportUsage() {
+        ChatClient chatClient = chatClient(Flux.just(chunk("a", null), chunk("b", null), chunk("c", null)));
+        AtomicReference<TokenUsage> usage = new AtomicReference<>();
+
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(MetricAdvisor.INTENT, "chitchat")
+                        .param(MetricAdvisor.USAGE_LISTENER, (Consumer<TokenUsage>) usage::set))
+                .user("hi")
+                .stream().chatResponse()
+                .take(1)
+                .blockLast(Duration.ofSeconds(5));
+
+        assertNull(usage.get());
+        assertEquals(1, meterRegistry.get("ai.chat.duration")
+                .tags("model", "qwen", "intent", "chitchat", "outcome", "cancelled").timer().count());
+        assertNull(meterRegistry.find("ai.chat.duration")
+                .tags("model", "qwen", "intent", "chitchat", "outcome", "success").timer());
+    }
+
+    private ChatClient chatClient(Flux<ChatResponse> stream) {
+        ChatModel chatModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return stream.blockLast();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return stream;
+            }
+        };
+        return ChatClient.builder(chatModel)
+                .defaultAdvisors(new MetricAdvisor(meterRegistry, "qwen"))
+                .build();
+    }
+
+    private static ChatResponse chunk(String text, DefaultUsage usage) {
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+        if (usage != null) {
+            metadata.usage(usage);
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+    }
+}
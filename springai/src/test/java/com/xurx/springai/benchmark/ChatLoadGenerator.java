@@ -0,0 +1,214 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.dto.ChatRequest;
+import com.xurx.springai.dto.ChatStreamEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /chat SSE 压测：以固定并发（闭环，每个并发完成一个请求后立即发起下一个）请求 /chat，
+ * 统计吞吐、首 token 耗时与端到端耗时的 p50 / p90 / p99
+ * <p>
+ * 通常对 stub profile 启动的应用压测（见 {@link com.xurx.springai.stub.StubSpringaiApplication}），
+ * 结果反映应用自身的开销而不是模型供应商的波动：
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="--url=http://localhost:8080 --concurrency=200 --duration=60s"
+ * </pre>
+ * 参数：--url、--concurrency、--requests（请求总数）或 --duration（持续时间，优先）、--model、
+ * --unique（不同问题的数量，越小越容易命中请求合并与语义缓存）、--user-id（为空时不写聊天记录）
+ */
+@Slf4j
+public class ChatLoadGenerator {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<ChatStreamEvent>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final String[] QUESTIONS = {
+            "你好", "红烧肉怎么做", "番茄炒蛋需要哪些食材", "今天吃点什么好", "宫保鸡丁的做法", "清蒸鱼蒸多久"
+    };
+
+    private final WebClient webClient;
+    private final Options options;
+
+    public ChatLoadGenerator(Options options) {
+        this.options = options;
+        this.webClient = WebClient.builder()
+                .baseUrl(options.url())
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(1024 * 1024))
+                .build();
+    }
+
+    public static void main(String[] args) {
+        Options options = Options.parse(args);
+        log.info("压测开始：{}", options);
+        Report report = new ChatLoadGenerator(options).run();
+        report.print();
+    }
+
+    /**
+     * 按 --duration 或 --requests 发起请求直到结束，阻塞返回统计结果
+     */
+    public Report run() {
+        List<Result> results = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        long deadline = options.duration() != null ? start + options.duration().toNanos() : Long.MAX_VALUE;
+        Flux.range(0, Integer.MAX_VALUE)
+                .takeWhile(i -> options.duration() != null ? System.nanoTime() < deadline : i < options.requests())
+                .flatMap(i -> request(i).doOnNext(results::add), options.concurrency())
+                .blockLast();
+        return new Report(new ArrayList<>(results), System.nanoTime() - start);
+    }
+
+    /**
+     * 单个 /chat 请求：首个 token 事件计为首 token，done 事件之前收到 error 事件或连接异常计为失败
+     */
+    private Mono<Result> request(int index) {
+        String message = QUESTIONS[index % options.unique() % QUESTIONS.length]
+                + (options.unique() > QUESTIONS.length ? " #" + index % options.unique() : "");
+        ChatRequest chatRequest = new ChatRequest(options.model(), message, options.userId(), UUID.randomUUID().toString());
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            long[] firstToken = {-1};
+            int[] tokens = {0};
+            boolean[] failed = {false};
+            return webClient.post()
+                    .uri("/chat")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(chatRequest)
+                    .retrieve()
+                    .bodyToFlux(EVENT_TYPE)
+                    .doOnNext(event -> {
+                        String name = event.event();
+                        if ("token".equals(name)) {
+                            if (firstToken[0] < 0) {
+                                firstToken[0] = System.nanoTime() - start;
+                            }
+                            tokens[0]++;
+                        } else if ("error".equals(name) || "response".equals(name)) {
+                            failed[0] = true;
+                        }
+                    })
+                    .then(Mono.fromSupplier(() -> new Result(!failed[0] && firstToken[0] >= 0, firstToken[0],
+                            System.nanoTime() - start, tokens[0])))
+                    .onErrorResume(e -> {
+                        log.debug("请求失败：{}", e.toString());
+                        return Mono.just(new Result(false, -1, System.nanoTime() - start, tokens[0]));
+                    });
+        });
+    }
+
+    /**
+     * 压测参数
+     */
+    public record Options(String url, int concurrency, int requests, Duration duration, String model, int unique,
+                          String userId) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("参数格式为 --name=value：" + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            String duration = values.get("duration");
+            return new Options(
+                    values.getOrDefault("url", "http://localhost:8080"),
+                    Integer.parseInt(values.getOrDefault("concurrency", "50")),
+                    Integer.parseInt(values.getOrDefault("requests", "1000")),
+                    duration != null ? parseDuration(duration) : null,
+                    values.getOrDefault("model", "qwen"),
+                    Integer.parseInt(values.getOrDefault("unique", "1000000")),
+                    values.get("user-id"));
+        }
+
+        private static Duration parseDuration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.parse(value);
+        }
+    }
+
+    /**
+     * 单个请求的结果，耗时单位为纳秒，没有收到 token 时首 token 耗时为 -1
+     */
+    public record Result(boolean success, long ttftNanos, long e2eNanos, int tokens) {
+    }
+
+    /**
+     * 压测统计：百分位只统计成功的请求
+     */
+    public record Report(List<Result> results, long elapsedNanos) {
+
+        public long successes() {
+            return results.stream().filter(Result::success).count();
+        }
+
+        public long errors() {
+            return results.size() - successes();
+        }
+
+        public double throughput() {
+            return successes() / (elapsedNanos / 1e9);
+        }
+
+        public double tokensPerSecond() {
+            return results.stream().mapToLong(Result::tokens).sum() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * 成功请求首 token 耗时的百分位（毫秒）
+         */
+        public long ttftMillis(double percentile) {
+            return percentile(results.stream().filter(Result::success).map(Result::ttftNanos).toList(), percentile);
+        }
+
+        /**
+         * 成功请求端到端耗时的百分位（毫秒）
+         */
+        public long e2eMillis(double percentile) {
+            return percentile(results.stream().filter(Result::success).map(Result::e2eNanos).toList(), percentile);
+        }
+
+        void print() {
+            log.info("{}", String.format("%-10s %-10s %-8s %-12s %-12s", "requests", "elapsed(s)", "errors", "req/s", "tokens/s"));
+            log.info("{}", String.format("%-10d %-10.1f %-8d %-12.1f %-12.1f", results.size(), elapsedNanos / 1e9,
+                    errors(), throughput(), tokensPerSecond()));
+            log.info("{}", String.format("%-10s %-10s %-10s %-10s", "(ms)", "p50", "p90", "p99"));
+            log.info("{}", String.format("%-10s %-10d %-10d %-10d", "ttft", ttftMillis(0.50), ttftMillis(0.90), ttftMillis(0.99)));
+            log.info("{}", String.format("%-10s %-10d %-10d %-10d", "e2e", e2eMillis(0.50), e2eMillis(0.90), e2eMillis(0.99)));
+        }
+
+        private static long percentile(List<Long> nanos, double percentile) {
+            if (nanos.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(nanos);
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.xurx.springai.benchmark;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 压测工具自测：本地桩服务按 /chat 的 SSE 格式输出步骤、token 与完成事件，每 10 个请求有一个返回 error 事件
+ */
+class ChatLoadGeneratorTest {
+
+    private static final Duration TTFT = Duration.ofMillis(50);
+    private static final int TOKENS = 5;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private DisposableServer server;
+
+    @BeforeEach
+    void startStubServer() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/chat", (request, response) -> request.receive().then()
+                        .thenMany(response.header("Content-Type", MediaType.TEXT_EVENT_STREAM_VALUE)
+                                .sendString(events(requests.incrementAndGet() % 10 == 0)))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.disposeNow();
+    }
+
+    @Test
+    void reportsThroughputAndLatencyPercentiles() {
+        ChatLoadGenerator.Options options = ChatLoadGenerator.Options.parse(new String[]{
+                "--url=http://127.0.0.1:" + server.port(), "--concurrency=20", "--requests=200", "--unique=3"});
+
+        ChatLoadGenerator.Report report = new ChatLoadGenerator(options).run();
+
+        assertEquals(200, report.results().size());
+        assertEquals(20, report.errors());
+        assertTrue(report.ttftMillis(0.50) >= TTFT.toMillis());
+        assertTrue(report.e2eMillis(0.99) >= report.ttftMillis(0.99));
+        assertTrue(report.throughput() > 0);
+        assertEquals(200 * TOKENS, report.results().stream().mapToInt(ChatLoadGenerator.Result::tokens).sum());
+    }
+
+    private static Flux<String> events(boolean error) {
+        Flux<String> tokens = Flux.range(0, TOKENS)
+                .delayElements(Duration.ofMillis(2))
+                .delaySubscription(TTFT)
+                .map(i -> "event:token\ndata:{\"content\":\"t" + i + "\"}\n\n");
+        String last = error
+                ? "event:error\ndata:{\"message\":\"模型调用失败\"}\n\n"
+                : "event:done\ndata:{\"usage\":{\"promptTokens\":10,\"completionTokens\":5}}\n\n";
+        return Flux.concat(Flux.just("event:step\ndata:{\"node\":\"intent\",\"status\":\"processing\"}\n\n"),
+                tokens, Flux.just(last));
+    }
+}
@@ -0,0 +1,180 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.configuration.ModelArgsProperties;
+import com.xurx.springai.routing.ModelHttpTransports;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 模型连接池压测：本地桩服务模拟模型接口，统计服务端建立的 TCP 连接数
+ * 阻塞调用（RestClient）与流式调用（WebClient）各占一半，并发数高于连接池上限
+ * 连接池开启 keep-alive 时所有请求复用少量连接，关闭时每个请求新建一个连接
+ */
+@Slf4j
+@Tag("loadtest")
+class ModelTransportLoadTest {
+
+    private static final int REQUESTS = 400;
+    private static final int CONCURRENCY = 32;
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int WARMUP_CONNECTIONS = 4;
+    private static final Duration LATENCY = Duration.ofMillis(5);
+    private static final int TOKENS = 5;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private DisposableServer server;
+
+    @BeforeEach
+    void startStubServer() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .doOnChannelInit((observer, channel, remoteAddress) -> connections.incrementAndGet())
+                .route(routes -> routes
+                        // 预热请求稍作停留，保证并发的预热请求各占一个连接
+                        .head("/v1", (request, response) -> Mono.delay(Duration.ofMillis(50)).then(response.send()))
+                        .post("/v1/chat/completions", (request, response) -> request.receive().then()
+                                .then(Mono.delay(LATENCY))
+                                .then(response.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                                        .sendString(Mono.just("{\"content\":\"ok\"}")).then()))
+                        .post("/v1/chat/stream", (request, response) -> request.receive().then()
+                                .thenMany(response.header("Content-Type", MediaType.TEXT_EVENT_STREAM_VALUE)
+                                        .sendString(Flux.range(0, TOKENS)
+                                                .delayElements(Duration.ofMillis(1))
+                                                .map(i -> "data: token-" + i + "\n\n")))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.disposeNow();
+    }
+
+    @Test
+    void pooledTransportReusesConnections() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelHttpTransports pooled = transports(true, meterRegistry);
+        int pooledConnections;
+        long pooledMillis;
+        int peakPending;
+        try {
+            assertEquals(WARMUP_CONNECTIONS, pooled.warmup().block(Duration.ofSeconds(10)));
+            assertEquals(WARMUP_CONNECTIONS, connections.get());
+            // 响应结束后连接异步归还连接池，等待全部预热连接变为空闲
+            Mono.fromSupplier(() -> gauge(meterRegistry, "ai.model.http.pool.idle"))
+                    .filter(idle -> idle == WARMUP_CONNECTIONS)
+                    .repeatWhenEmpty(100, ticks -> ticks.delayElements(Duration.ofMillis(10)))
+                    .block(Duration.ofSeconds(5));
+
+            AtomicInteger pending = new AtomicInteger();
+            long start = System.nanoTime();
+            Flux.interval(Duration.ofMillis(5))
+                    .doOnNext(tick -> pending.accumulateAndGet(gauge(meterRegistry, "ai.model.http.pool.pending"), Math::max))
+                    .takeUntilOther(run(pooled))
+                    .blockLast(Duration.ofMinutes(1));
+            pooledMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            pooledConnections = connections.get();
+            peakPending = pending.get();
+            assertEquals(0, gauge(meterRegistry, "ai.model.http.pool.active"));
+        } finally {
+            pooled.dispose();
+        }
+
+        connections.set(0);
+        ModelHttpTransports unpooled = transports(false, new SimpleMeterRegistry());
+        int unpooledConnections;
+        long unpooledMillis;
+        try {
+            long start = System.nanoTime();
+            run(unpooled).block(Duration.ofMinutes(1));
+            unpooledMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            unpooledConnections = connections.get();
+        } finally {
+            unpooled.dispose();
+        }
+
+        log.info("{}", String.format("%-12s %-10s %-14s %-14s %-10s", "transport", "requests", "connections", "elapsed(ms)", "peak pending"));
+        log.info("{}", String.format("%-12s %-10d %-14d %-14d %-10d", "pooled", REQUESTS, pooledConnections, pooledMillis, peakPending));
+        log.info("{}", String.format("%-12s %-10d %-14d %-14d %-10s", "no-reuse", REQUESTS, unpooledConnections, unpooledMillis, "-"));
+
+        // 预热的连接被复用，连接总数不超过连接池上限
+        assertTrue(pooledConnections <= MAX_CONNECTIONS);
+        assertEquals(REQUESTS, unpooledConnections);
+    }
+
+    /**
+     * 以 CONCURRENCY 的并发交替发起阻塞调用与流式调用
+     */
+    private Mono<Void> run(ModelHttpTransports transports) {
+        String baseUrl = baseUrl();
+        RestClient restClient = RestClient.builder()
+                .requestFactory(transports.requestFactory())
+                .baseUrl(baseUrl)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .clientConnector(transports.connector())
+                .baseUrl(baseUrl)
+                .build();
+        return Flux.range(0, REQUESTS)
+                .flatMap(i -> i % 2 == 0
+                        ? Mono.fromCallable(() -> restClient.post()
+                                .uri("/chat/completions")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body("{}")
+                                .retrieve()
+                                .body(String.class))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then()
+                        : webClient.post()
+                        .uri("/chat/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .bodyToFlux(String.class)
+                        .then(), CONCURRENCY)
+                .then();
+    }
+
+    private ModelHttpTransports transports(boolean keepAlive, SimpleMeterRegistry meterRegistry) {
+        ModelArgsProperties.Transport transport = new ModelArgsProperties.Transport();
+        transport.setMaxConnections(MAX_CONNECTIONS);
+        transport.setPendingAcquireMaxCount(REQUESTS);
+        transport.setPendingAcquireTimeout(Duration.ofSeconds(30));
+        transport.setKeepAlive(keepAlive);
+        transport.setWarmupConnections(WARMUP_CONNECTIONS);
+        ModelArgsProperties.ModelCfg cfg = new ModelArgsProperties.ModelCfg();
+        cfg.setBaseUrl(baseUrl());
+        cfg.setTransport(transport);
+        ModelArgsProperties properties = new ModelArgsProperties();
+        properties.setModels(Map.of("stub", cfg));
+        return new ModelHttpTransports(properties, meterRegistry);
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.port() + "/v1";
+    }
+
+    private static int gauge(SimpleMeterRegistry meterRegistry, String name) {
+        return (int) meterRegistry.get(name).tag("pool", "stub").gauge().value();
+    }
+}
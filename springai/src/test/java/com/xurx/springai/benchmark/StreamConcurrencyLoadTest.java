@@ -0,0 +1,118 @@
+package com.xurx.springai.benchmark;
+
+import com.xurx.springai.configuration.ExecutionConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发 SSE 流压测：对比平台线程（boundedElastic）与虚拟线程两种执行模式下能同时支撑的流数量
+ * 每条模拟流与 /chat 一致：阻塞保存用户消息 → 阻塞意图识别 → 非阻塞流式 token → 阻塞保存助手回复
+ * 首 token 耗时 p99 不超过 SLA 视为该并发数被支撑
+ */
+@Slf4j
+@Tag("loadtest")
+class StreamConcurrencyLoadTest {
+
+    private static final long SAVE_MILLIS = 5;
+    private static final long INTENT_MILLIS = 50;
+    private static final int TOKENS = 10;
+    private static final Duration TOKEN_INTERVAL = Duration.ofMillis(10);
+    private static final long TTFT_SLA_MILLIS = 150;
+
+    @Test
+    void virtualThreadsSustainMoreConcurrentStreams() {
+        ExecutionConfiguration configuration = new ExecutionConfiguration();
+        Scheduler platform = configuration.boundedElasticScheduler();
+        Scheduler virtual = configuration.virtualThreadScheduler();
+
+        // 并发数按 boundedElastic 线程上限取倍数，保证在任何核数的机器上都能压过平台线程的上限
+        int cap = Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE;
+        List<Integer> levels = List.of(Math.max(1, cap / 2), cap * 2, cap * 8);
+
+        int platformSustained = 0;
+        int virtualSustained = 0;
+        log.info("{}", String.format("%-10s %-12s %-14s %-14s", "mode", "streams", "ttft p50(ms)", "ttft p99(ms)"));
+        try {
+            for (int streams : levels) {
+                long[] platformTtft = run(platform, streams);
+                long[] virtualTtft = run(virtual, streams);
+                log.info("{}", String.format("%-10s %-12d %-14d %-14d", "platform", streams, platformTtft[0], platformTtft[1]));
+                log.info("{}", String.format("%-10s %-12d %-14d %-14d", "virtual", streams, virtualTtft[0], virtualTtft[1]));
+                if (platformTtft[1] <= TTFT_SLA_MILLIS) {
+                    platformSustained = streams;
+                }
+                if (virtualTtft[1] <= TTFT_SLA_MILLIS) {
+                    virtualSustained = streams;
+                }
+            }
+        } finally {
+            virtual.dispose();
+        }
+        log.info("首 token p99 <= {}ms 时支撑的并发流：platform={}, virtual={}", TTFT_SLA_MILLIS, platformSustained, virtualSustained);
+
+        assertTrue(virtualSustained >= platformSustained);
+        assertTrue(virtualSustained == levels.get(levels.size() - 1));
+    }
+
+    /**
+     * 同时发起指定数量的模拟流，返回首 token 耗时的 p50 / p99
+     */
+    private long[] run(Scheduler scheduler, int streams) {
+        List<Long> ttft = Collections.synchronizedList(new ArrayList<>());
+        Flux.range(0, streams)
+                .flatMap(i -> simulatedStream(scheduler, ttft), streams)
+                .blockLast(Duration.ofMinutes(2));
+
+        List<Long> sorted = new ArrayList<>(ttft);
+        Collections.sort(sorted);
+        return new long[]{percentile(sorted, 0.50), percentile(sorted, 0.99)};
+    }
+
+    private Flux<String> simulatedStream(Scheduler scheduler, List<Long> ttft) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            Mono<Void> saveUserMessage = Mono.<Void>fromRunnable(() -> sleep(SAVE_MILLIS)).subscribeOn(scheduler);
+            Mono<String> intent = Mono.fromCallable(() -> {
+                sleep(INTENT_MILLIS);
+                return "chitchat";
+            }).subscribeOn(scheduler);
+            Mono<String> saveAssistantMessage = Mono.<String>fromRunnable(() -> sleep(SAVE_MILLIS)).subscribeOn(scheduler);
+
+            return saveUserMessage
+                    .then(intent)
+                    .flatMapMany(i -> Flux.interval(Duration.ZERO, TOKEN_INTERVAL).take(TOKENS).map(String::valueOf))
+                    .doOnNext(token -> {
+                        if ("0".equals(token)) {
+                            ttft.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                    })
+                    .concatWith(saveAssistantMessage);
+        });
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.xurx.springai.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ExecutionConfiguration.class);
+
+    @Test
+    void virtualThreadsEnabledSelectsVirtualThreadScheduler() {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            Scheduler scheduler = context.getBean(ExecutionConfiguration.BLOCKING_SCHEDULER, Scheduler.class);
+
+            assertTrue(runsOnVirtualThread(scheduler));
+        });
+    }
+
+    @Test
+    void platformThreadsUseGlobalBoundedElastic() {
+        contextRunner.run(context -> {
+            Scheduler scheduler = context.getBean(ExecutionConfiguration.BLOCKING_SCHEDULER, Scheduler.class);
+
+            assertSame(Schedulers.boundedElastic(), scheduler);
+            assertFalse(runsOnVirtualThread(scheduler));
+        });
+    }
+
+    private static boolean runsOnVirtualThread(Scheduler scheduler) {
+        return Boolean.TRUE.equals(Mono.fromCallable(() -> Thread.currentThread().isVirtual())
+                .subscribeOn(scheduler)
+                .block(Duration.ofSeconds(5)));
+    }
+}
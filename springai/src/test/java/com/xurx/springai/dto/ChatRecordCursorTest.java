@@ -0,0 +1,36 @@
+package com.xurx.springai.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatRecordCursorTest {
+
+    @Test
+    void roundTripsSessionIdsContainingSeparator() {
+        ChatRecordCursor cursor = new ChatRecordCursor("a|b", LocalDateTime.of(2025, 1, 2, 3, 4, 5), 42L);
+
+        assertEquals(cursor, ChatRecordCursor.decode(cursor.encode()));
+        assertNull(ChatRecordCursor.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> ChatRecordCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    void pageUsesExtraRowToDetectMore() {
+        CursorPage<Integer> page = CursorPage.of(List.of(5, 4, 3), 2, String::valueOf);
+        assertEquals(List.of(5, 4), page.getItems());
+        assertEquals("4", page.getNextCursor());
+        assertTrue(page.isHasMore());
+
+        CursorPage<Integer> last = CursorPage.of(List.of(2, 1), 2, String::valueOf);
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+}
@@ -0,0 +1,138 @@
+package com.xurx.springai.intent;
+
+import com.xurx.springai.configuration.IntentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntentRecognitionServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StubLlmIntentClassifier llmClassifier;
+    private IntentRecognitionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 使用 application.yaml 中真实配置的规则
+        IntentProperties properties = new Binder(ConfigurationPropertySources.from(
+                new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yaml"))))
+                .bind("intent", IntentProperties.class)
+                .get();
+
+        Map<String, String> labels = new HashMap<>();
+        for (LabelledUtterance sample : LabelledUtterance.loadCsv(new ClassPathResource("intent/intent-eval.csv"))) {
+            labels.put(sample.message(), sample.intent());
+        }
+
+        meterRegistry = new SimpleMeterRegistry();
+        llmClassifier = new StubLlmIntentClassifier(labels);
+        service = new IntentRecognitionService(
+                List.of(new RuleIntentClassifier(properties), llmClassifier), llmClassifier,
+                new IntentCache(properties, meterRegistry), properties, meterRegistry);
+    }
+
+    @Test
+    void rulesShortCircuitTheLlm() {
+        assertEquals("chitchat", service.recognize("你好！", "qwen").getIntent());
+        assertEquals("tool_call", service.recognize("1+1等于几", "qwen").getIntent());
+        assertEquals("tool_call", service.recognize("现在几点了", "qwen").getIntent());
+        assertEquals("rag", service.recognize("红烧肉怎么做", "qwen").getIntent());
+
+        assertEquals(0, llmClassifier.calls.get());
+        assertEquals(4, meterRegistry.get("ai.intent.fastpath").tag("outcome", "hit").counter().count());
+    }
+
+    @Test
+    void lowConfidenceFallsBackToLlm() {
+        IntentResult result = service.recognize("你会唱歌吗", "qwen");
+
+        assertEquals("llm", result.getSource());
+        assertEquals("chitchat", result.getIntent());
+        assertEquals(1, llmClassifier.calls.get());
+        assertEquals(1, meterRegistry.get("ai.intent.fastpath").tag("outcome", "miss").counter().count());
+    }
+
+    @Test
+    void llmResultsAreCachedByNormalizedMessageAndModel() {
+        service.recognize("你会唱歌吗", "qwen");
+        IntentResult cached = service.recognize("  你会唱歌吗？ ", "qwen");
+        service.recognize("你会唱歌吗", "deepseek");
+
+        assertEquals("cache", cached.getSource());
+        assertEquals("chitchat", cached.getIntent());
+        assertEquals(2, llmClassifier.calls.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "intent").tag("result", "hit").functionCounter().count());
+
+        service.invalidateCache();
+        service.recognize("你会唱歌吗", "qwen");
+        assertEquals(3, llmClassifier.calls.get());
+    }
+
+    @Test
+    void unrecognizedLlmOutputFallsBackWithoutCaching() {
+        IntentResult result = service.recognize("嗯嗯嗯嗯", "qwen");
+        service.recognize("嗯嗯嗯嗯", "qwen");
+
+        assertEquals("chitchat", result.getIntent());
+        assertEquals(LlmIntentClassifier.FALLBACK_SOURCE, result.getSource());
+        assertEquals(0.0, result.getConfidence());
+        assertEquals(2, llmClassifier.calls.get());
+    }
+
+    @Test
+    void evaluationReportsFastPathAgainstLlmBaseline() throws IOException {
+        List<LabelledUtterance> samples = LabelledUtterance.loadCsv(new ClassPathResource("intent/intent-eval.csv"));
+
+        IntentEvaluationReport report = new IntentEvaluator(service).evaluate(samples, "qwen", true);
+
+        assertEquals(samples.size(), report.getTotal());
+        assertTrue(report.getFastPathCoverage() > 0.5);
+        assertEquals(report.getFastPathCovered(), report.getFastPathCorrect(), () -> report.getMismatches().toString());
+        assertEquals(1.0, report.getLlmAccuracy());
+        assertEquals(1.0, report.getPipelineAccuracy());
+        // 离线评估不计入线上指标，大模型基线也不经过路由统计
+        assertEquals(0, llmClassifier.calls.get());
+        assertEquals(samples.size(), llmClassifier.unmeteredCalls.get());
+        assertEquals(0, meterRegistry.get("ai.intent.fastpath.latency").timer().count());
+        assertTrue(meterRegistry.get("ai.intent.classifier.latency").timers().stream().allMatch(timer -> timer.count() == 0));
+    }
+
+    /**
+     * 按标注结果返回意图的大模型替身
+     */
+    private static class StubLlmIntentClassifier extends LlmIntentClassifier {
+
+        private final Map<String, String> labels;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger unmeteredCalls = new AtomicInteger();
+
+        StubLlmIntentClassifier(Map<String, String> labels) {
+            super(null, null);
+            this.labels = labels;
+        }
+
+        @Override
+        public IntentResult classify(String message, String model) {
+            calls.incrementAndGet();
+            return toResult(labels.getOrDefault(message, "这句话既像闲聊也像提问"));
+        }
+
+        @Override
+        public IntentResult classifyUnmetered(String message, String model) {
+            unmeteredCalls.incrementAndGet();
+            return toResult(labels.getOrDefault(message, "这句话既像闲聊也像提问"));
+        }
+    }
+}
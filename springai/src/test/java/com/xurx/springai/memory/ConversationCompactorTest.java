@@ -0,0 +1,189 @@
+package com.xurx.springai.memory;
+
+import com.xurx.springai.configuration.ChatMemoryProperties;
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.configuration.ModelArgsProperties;
+import com.xurx.springai.configuration.PromptProperties;
+import com.xurx.springai.prompt.PromptRegistry;
+import com.xurx.springai.routing.ModelBulkheads;
+import com.xurx.springai.routing.ModelRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationCompactorTest {
+
+    private final AtomicReference<Runnable> afterRead = new AtomicReference<>();
+    private final InMemoryChatMemoryRepository store = new InMemoryChatMemoryRepository();
+    /**
+     * 读出会话后可以插入一次回调的存储
+     */
+    private final ChatMemoryRepository repository = new ChatMemoryRepository() {
+        @Override
+        public List<String> findConversationIds() {
+            return store.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            List<Message> messages = store.findByConversationId(conversationId);
+            Runnable hook = afterRead.getAndSet(null);
+            if (hook != null) {
+                hook.run();
+            }
+            return messages;
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            store.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            store.deleteByConversationId(conversationId);
+        }
+    };
+    private final SerializedChatMemory chatMemory = new SerializedChatMemory(
+            MessageWindowChatMemory.builder().chatMemoryRepository(repository).maxMessages(100).build());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger summaryCalls = new AtomicInteger();
+    private final AtomicReference<String> summaryPrompt = new AtomicReference<>();
+    private final ChatMemoryProperties properties = new ChatMemoryProperties();
+    private ConversationCompactor compactor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ChatModel cheapModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                summaryCalls.incrementAndGet();
+                summaryPrompt.set(prompt.getUserMessage().getText());
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("用户在问红烧肉的做法"))));
+            }
+        };
+        PromptProperties promptProperties = new PromptProperties();
+        promptProperties.setWatch(false);
+        PromptRegistry promptRegistry = new PromptRegistry(promptProperties, event -> {
+        });
+        promptRegistry.init();
+
+        properties.getCompaction().setTokenBudget(1000);
+        properties.getCompaction().setKeepRecentMessages(2);
+        // 摘要在调用线程上同步生成，便于断言
+        ModelRouter modelRouter = new ModelRouter(Map.of("qwen", ChatClient.builder(cheapModel).build()),
+                new ChatPipelineProperties(), new ModelBulkheads(new ModelArgsProperties(), meterRegistry), meterRegistry);
+        compactor = new ConversationCompactor(modelRouter,
+                repository, chatMemory, promptRegistry, properties, meterRegistry, Schedulers.immediate());
+    }
+
+    @Test
+    void historyWithinBudgetIsSentAsIs() {
+        List<Message> history = turns(2, 5);
+        repository.saveAll("s1", history);
+
+        assertSame(history, compactor.fit("s1", history));
+        assertEquals(0, summaryCalls.get());
+        assertEquals(0, meterRegistry.get("ai.chat.memory.compaction.saved.tokens").summary().totalAmount());
+    }
+
+    @Test
+    void overBudgetTrimsThisTurnAndCompactsOlderTurnsForTheNext() {
+        List<Message> history = turns(6, 10);
+        repository.saveAll("s1", history);
+
+        List<Message> fitted = compactor.fit("s1", history);
+
+        assertTrue(fitted.size() < history.size());
+        assertEquals(MessageType.USER, fitted.get(0).getMessageType());
+        assertEquals(history.subList(history.size() - fitted.size(), history.size()), fitted);
+        assertEquals(1, summaryCalls.get());
+        assertTrue(summaryPrompt.get().contains("问题0"));
+
+        // 较早的 5 轮被一条摘要替换，最近一轮原样保留
+        List<Message> compacted = repository.findByConversationId("s1");
+        assertEquals(3, compacted.size());
+        assertTrue(ConversationCompactor.isSummary(compacted.get(0)));
+        assertEquals(history.subList(10, 12), compacted.subList(1, 3));
+        assertEquals(1, meterRegistry.get("ai.chat.memory.compaction.runs").tag("outcome", "success").counter().count());
+        // 摘要调用经过模型路由
+        assertEquals(1, meterRegistry.get("ai.model.router.routes")
+                .tags("requested", "qwen", "model", "qwen", "reason", "primary").counter().count());
+
+        // 下一轮直接发送摘要，节省的 token 计入指标
+        List<Message> next = compactor.fit("s1", compacted);
+        assertSame(compacted, next);
+        assertEquals(1, summaryCalls.get());
+        assertEquals(2, meterRegistry.get("ai.chat.memory.compaction.saved.tokens").summary().count());
+        assertTrue(meterRegistry.get("ai.chat.memory.compaction.saved.tokens").summary().max() > 0);
+    }
+
+    @Test
+    void summaryIsDroppedWhenConversationChangedMeanwhile() {
+        List<Message> history = turns(6, 10);
+        repository.saveAll("s1", turns(1, 5));
+
+        compactor.compact("s1", history);
+
+        assertEquals(2, repository.findByConversationId("s1").size());
+        assertEquals(1, meterRegistry.get("ai.chat.memory.compaction.runs").tag("outcome", "stale").counter().count());
+    }
+
+    @Test
+    void turnWrittenWhileSummaryIsSavedIsKept() throws InterruptedException {
+        List<Message> history = turns(6, 10);
+        repository.saveAll("s1", history);
+        // 压缩重新读出会话、写回摘要之前，另一线程写入新的一轮
+        Thread writer = new Thread(() -> chatMemory.add("s1",
+                List.of(new UserMessage("新问题"), new AssistantMessage("新回答"))));
+        afterRead.set(() -> {
+            writer.start();
+            try {
+                writer.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        compactor.compact("s1", history);
+        writer.join(5000);
+
+        List<Message> messages = repository.findByConversationId("s1");
+        assertTrue(ConversationCompactor.isSummary(messages.get(0)));
+        assertEquals("新回答", messages.get(messages.size() - 1).getText());
+        assertEquals(5, messages.size());
+    }
+
+    private static List<Message> turns(int count, int repeat) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new UserMessage("问题" + i + "：红烧肉怎么做".repeat(repeat)));
+            messages.add(new AssistantMessage("回答" + i + "：先焯水再炒糖色".repeat(repeat)));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,251 @@
+package com.xurx.springai.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xurx.springai.configuration.ChatMemoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TieredChatMemoryRepositoryTest {
+
+    private final CountingRepository coldStore = new CountingRepository();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TieredChatMemoryRepository repository;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        repository.close();
+    }
+
+    @Test
+    void readsColdStoreOnceThenServesFromHotTier() {
+        coldStore.delegate.saveAll("s1", List.of(new UserMessage("你好"), new AssistantMessage("你好呀")));
+        repository = repository(true);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(2, repository.findByConversationId("s1").size());
+        }
+
+        assertEquals(1, coldStore.reads.get());
+        assertEquals(1, meterRegistry.get("ai.chat.memory.reads").tag("tier", "jdbc").counter().count());
+        assertEquals(4, meterRegistry.get("ai.chat.memory.reads").tag("tier", "hot").counter().count());
+    }
+
+    @Test
+    void coalescesTurnsIntoOneColdWritePerFlush() throws InterruptedException {
+        repository = repository(true);
+
+        for (int turn = 1; turn <= 5; turn++) {
+            repository.saveAll("s1", messages(turn));
+            assertEquals(turn * 2, repository.findByConversationId("s1").size());
+        }
+        assertEquals(0, coldStore.writes.get());
+
+        repository.close();
+        assertEquals(1, coldStore.writes.get());
+        assertEquals(10, coldStore.delegate.findByConversationId("s1").size());
+        assertEquals(0, coldStore.reads.get());
+    }
+
+    @Test
+    void writesSynchronouslyWhenPendingLimitReached() {
+        ChatMemoryProperties properties = properties(true);
+        properties.getWriteBehind().setMaxPending(1);
+        repository = repository(properties);
+
+        repository.saveAll("s1", messages(1));
+        repository.saveAll("s2", messages(1));
+
+        assertEquals(1, coldStore.writes.get());
+        assertEquals(1, meterRegistry.get("ai.chat.memory.caller.runs").counter().count());
+        assertTrue(repository.findConversationIds().containsAll(List.of("s1", "s2")));
+    }
+
+    @Test
+    void deleteDropsPendingSnapshot() throws InterruptedException {
+        repository = repository(true);
+        repository.saveAll("s1", messages(1));
+
+        repository.deleteByConversationId("s1");
+        repository.close();
+
+        assertEquals(0, coldStore.writes.get());
+        assertTrue(repository.findByConversationId("s1").isEmpty());
+    }
+
+    @Test
+    void writesThroughWhenWriteBehindDisabled() {
+        repository = repository(false);
+
+        repository.saveAll("s1", messages(1));
+
+        assertEquals(1, coldStore.writes.get());
+    }
+
+    @Test
+    void instancesSharingRedisDoNotOverwriteEachOthersTurns() throws InterruptedException {
+        Map<String, String> redis = new ConcurrentHashMap<>();
+        JedisPooled jedis = sharedRedis(redis);
+        ChatMemoryProperties properties = properties(true);
+        properties.getRedis().setEnabled(true);
+        repository = repository(properties, jedis);
+        TieredChatMemoryRepository other = repository(properties, jedis);
+        ChatMemory nodeA = MessageWindowChatMemory.builder().chatMemoryRepository(repository).build();
+        ChatMemory nodeB = MessageWindowChatMemory.builder().chatMemoryRepository(other).build();
+
+        // 同一会话的轮次交替由两个实例处理，两个实例的进程内层都已缓存该会话
+        nodeA.add("s1", List.of(new UserMessage("问题0"), new AssistantMessage("回答0")));
+        assertEquals(2, nodeB.get("s1").size());
+        nodeB.add("s1", List.of(new UserMessage("问题1"), new AssistantMessage("回答1")));
+        nodeA.add("s1", List.of(new UserMessage("问题2"), new AssistantMessage("回答2")));
+        nodeB.add("s1", List.of(new UserMessage("问题3"), new AssistantMessage("回答3")));
+
+        assertEquals(8, nodeA.get("s1").size());
+        assertEquals(8, nodeB.get("s1").size());
+        assertEquals("回答3", nodeA.get("s1").get(7).getText());
+
+        repository.close();
+        other.close();
+        assertEquals(8, coldStore.delegate.findByConversationId("s1").size());
+    }
+
+    @Test
+    void fallsBackToHotTierWhenRedisUnavailable() {
+        JedisPooled jedis = sharedRedis(new ConcurrentHashMap<>());
+        ChatMemoryProperties properties = properties(true);
+        properties.getRedis().setEnabled(true);
+        repository = repository(properties, jedis);
+        repository.saveAll("s1", messages(1));
+
+        when(jedis.get(anyString())).thenThrow(new JedisConnectionException("down"));
+
+        assertEquals(2, repository.findByConversationId("s1").size());
+        assertEquals(1, meterRegistry.get("ai.chat.memory.redis.failures").counter().count());
+        assertEquals(0, coldStore.reads.get());
+    }
+
+    @Test
+    void dropsToolExchangesThatCannotBeRestored() throws InterruptedException {
+        JedisPooled jedis = sharedRedis(new ConcurrentHashMap<>());
+        ChatMemoryProperties properties = properties(true);
+        properties.getRedis().setEnabled(true);
+        repository = repository(properties, jedis);
+
+        repository.saveAll("s1", List.of(
+                new UserMessage("现在几点了"),
+                AssistantMessage.builder().toolCalls(List.of(
+                        new AssistantMessage.ToolCall("call-1", "function", "currentTime", "{}"))).build(),
+                ToolResponseMessage.builder().responses(List.of(
+                        new ToolResponseMessage.ToolResponse("call-1", "currentTime", "12:00"))).build(),
+                new AssistantMessage("现在是 12:00")));
+
+        List<MessageType> expected = List.of(MessageType.USER, MessageType.ASSISTANT);
+        assertEquals(expected, types(repository.findByConversationId("s1")));
+        repository.close();
+        assertEquals(expected, types(coldStore.delegate.findByConversationId("s1")));
+    }
+
+    private static List<MessageType> types(List<Message> messages) {
+        return messages.stream().map(Message::getMessageType).toList();
+    }
+
+    /**
+     * 以 Map 模拟多个实例共享的 Redis
+     */
+    private static JedisPooled sharedRedis(Map<String, String> redis) {
+        JedisPooled jedis = mock(JedisPooled.class);
+        when(jedis.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        when(jedis.setex(anyString(), anyLong(), anyString())).thenAnswer(invocation -> {
+            redis.put(invocation.getArgument(0), invocation.getArgument(2));
+            return "OK";
+        });
+        when(jedis.del(anyString())).thenAnswer(invocation -> redis.remove(invocation.<String>getArgument(0)) != null ? 1L : 0L);
+        return jedis;
+    }
+
+    private TieredChatMemoryRepository repository(boolean writeBehind) {
+        return repository(properties(writeBehind));
+    }
+
+    private TieredChatMemoryRepository repository(ChatMemoryProperties properties) {
+        return repository(properties, null);
+    }
+
+    private TieredChatMemoryRepository repository(ChatMemoryProperties properties, JedisPooled jedis) {
+        TieredChatMemoryRepository repository = new TieredChatMemoryRepository(
+                coldStore, properties, jedis, new ObjectMapper(), meterRegistry);
+        repository.init();
+        return repository;
+    }
+
+    private static ChatMemoryProperties properties(boolean writeBehind) {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.getWriteBehind().setEnabled(writeBehind);
+        // 刷盘间隔设得足够长，测试中只在 close() 时刷盘
+        properties.getWriteBehind().setFlushInterval(Duration.ofMinutes(1));
+        return properties;
+    }
+
+    private static List<Message> messages(int turns) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            messages.add(new UserMessage("问题" + i));
+            messages.add(new AssistantMessage("回答" + i));
+        }
+        return messages;
+    }
+
+    private static class CountingRepository implements ChatMemoryRepository {
+
+        private final InMemoryChatMemoryRepository delegate = new InMemoryChatMemoryRepository();
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public List<String> findConversationIds() {
+            return delegate.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            reads.incrementAndGet();
+            return delegate.findByConversationId(conversationId);
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            writes.incrementAndGet();
+            delegate.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            delegate.deleteByConversationId(conversationId);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.xurx.springai.prompt;
+
+import com.xurx.springai.configuration.PromptProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptRegistryTest {
+
+    private final List<Object> events = new ArrayList<>();
+    private PromptRegistry registry;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Test
+    void rendersLikePromptTemplate() throws IOException {
+        registry = newRegistry(null);
+
+        Map<String, Object> values = Map.of("message", "1+1等于几");
+        String text = new ClassPathResource("prompts/intent-classification.txt").getContentAsString(StandardCharsets.UTF_8);
+        String expected = new PromptTemplate(text).render(values);
+
+        assertEquals(expected, registry.render("intent-classification", values));
+        assertTrue(registry.names().contains("system-default"));
+        assertThrows(IllegalStateException.class, () -> registry.render("intent-classification", Map.of()));
+    }
+
+    @Test
+    void externalDirectoryOverridesAndReloads(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("intent-classification.txt");
+        Files.writeString(file, "v1 {message}", StandardCharsets.UTF_8);
+        registry = newRegistry(dir);
+        assertEquals("v1 hi", registry.render("intent-classification", Map.of("message", "hi")));
+
+        Files.writeString(file, "v2 {message}", StandardCharsets.UTF_8);
+        registry.reload(file);
+
+        assertEquals("v2 hi", registry.render("intent-classification", Map.of("message", "hi")));
+        assertEquals(List.of(new PromptReloadedEvent("intent-classification")), events);
+    }
+
+    private PromptRegistry newRegistry(Path externalDir) throws IOException {
+        PromptProperties properties = new PromptProperties();
+        properties.setExternalDir(externalDir == null ? null : externalDir.toString());
+        properties.setWatch(false);
+        PromptRegistry promptRegistry = new PromptRegistry(properties, events::add);
+        promptRegistry.init();
+        return promptRegistry;
+    }
+}
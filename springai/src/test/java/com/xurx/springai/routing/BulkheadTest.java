@@ -0,0 +1,103 @@
+package com.xurx.springai.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void queuedStreamStartsWhenPermitIsReleased() {
+        Bulkhead bulkhead = new Bulkhead("qwen", 1, 2, Duration.ofSeconds(5), meterRegistry);
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger secondStarted = new AtomicInteger();
+        List<Integer> positions = new ArrayList<>();
+
+        Disposable running = bulkhead.stream(first::asFlux, positions::add).subscribe();
+        CompletableFuture<List<String>> second = bulkhead.stream(() -> {
+            secondStarted.incrementAndGet();
+            return Flux.just("b");
+        }, positions::add).collectList().toFuture();
+
+        assertEquals(List.of(1), positions);
+        assertEquals(0, secondStarted.get());
+        assertEquals(1, bulkhead.inFlight());
+        assertEquals(1, bulkhead.queued());
+
+        first.tryEmitComplete();
+
+        assertEquals(List.of("b"), second.join());
+        assertEquals(0, bulkhead.inFlight());
+        assertEquals(0, bulkhead.queued());
+        running.dispose();
+    }
+
+    @Test
+    void timedOutAndCancelledWaitersLeaveTheQueue() {
+        Bulkhead bulkhead = new Bulkhead("qwen", 1, 2, Duration.ofMillis(100), meterRegistry);
+        Disposable running = bulkhead.stream(Flux::<String>never, null).subscribe();
+
+        Disposable cancelled = bulkhead.stream(() -> Flux.just("cancelled"), null).subscribe();
+        assertEquals(1, bulkhead.queued());
+        cancelled.dispose();
+        assertEquals(0, bulkhead.queued());
+
+        assertThrows(BulkheadFullException.class, () -> bulkhead.stream(() -> Flux.just("late"), null).blockLast());
+        assertEquals(0, bulkhead.queued());
+        assertEquals(1, meterRegistry.get("ai.model.bulkhead.rejected").tags("model", "qwen", "reason", "timeout").counter().count());
+
+        // 取消正在执行的流归还名额
+        running.dispose();
+        assertEquals(0, bulkhead.inFlight());
+        assertEquals("next", bulkhead.stream(() -> Flux.just("next"), null).blockLast());
+    }
+
+    @Test
+    void blockingCallsWaitForPermitAndRejectWhenQueueIsFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("zhipuai-embed", 1, 1, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = Thread.ofVirtual().start(() -> bulkhead.call(() -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> bulkhead.call(() -> "done"));
+        while (bulkhead.queued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "rejected"));
+
+        release.countDown();
+        assertEquals("done", waiter.get(5, TimeUnit.SECONDS));
+        holder.join();
+        assertEquals(0, bulkhead.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
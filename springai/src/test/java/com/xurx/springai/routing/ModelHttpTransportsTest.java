@@ -0,0 +1,38 @@
+package com.xurx.springai.routing;
+
+import com.xurx.springai.configuration.ModelArgsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelHttpTransportsTest {
+
+    @Test
+    void transportWithoutBaseUrlFailsAtStartup() {
+        ModelArgsProperties.ModelCfg cfg = new ModelArgsProperties.ModelCfg();
+        cfg.setTransport(new ModelArgsProperties.Transport());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new ModelHttpTransports(properties(Map.of("deepseek", cfg)), new SimpleMeterRegistry()));
+        assertTrue(e.getMessage().contains("model-args.models.deepseek.base-url"));
+    }
+
+    @Test
+    void modelWithoutTransportUsesDefaultClient() {
+        ModelArgsProperties.ModelCfg cfg = new ModelArgsProperties.ModelCfg();
+
+        assertDoesNotThrow(() -> new ModelHttpTransports(properties(Map.of("zhipuai-embed", cfg)), new SimpleMeterRegistry())
+                .dispose());
+    }
+
+    private static ModelArgsProperties properties(Map<String, ModelArgsProperties.ModelCfg> models) {
+        ModelArgsProperties properties = new ModelArgsProperties();
+        properties.setModels(models);
+        return properties;
+    }
+}
@@ -0,0 +1,328 @@
+package com.xurx.springai.routing;
+
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.configuration.ModelArgsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelRouterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubModel qwen = new StubModel("qwen");
+    private final StubModel deepseek = new StubModel("deepseek");
+    private final ChatPipelineProperties properties = new ChatPipelineProperties();
+    private final ModelArgsProperties modelArgs = new ModelArgsProperties();
+    private ModelRouter router;
+
+    @BeforeEach
+    void setUp() {
+        ChatPipelineProperties.Routing routing = properties.getRouting();
+        routing.setFallbacks(Map.of("qwen", List.of("deepseek")));
+        routing.getCircuitBreaker().setWindowSize(4);
+        routing.getCircuitBreaker().setMinimumCalls(2);
+        routing.getCircuitBreaker().setSlowCallThreshold(Duration.ofSeconds(5));
+        routing.getCircuitBreaker().setOpenDuration(Duration.ofSeconds(30));
+        router = router();
+    }
+
+    private ModelRouter router() {
+        return new ModelRouter(Map.of(
+                "qwen", ChatClient.builder(qwen).build(),
+                "deepseek", ChatClient.builder(deepseek).build()), properties,
+                new ModelBulkheads(modelArgs, meterRegistry), meterRegistry, clock::get);
+    }
+
+    @Test
+    void failsOverBeforeFirstTokenAndTripsCircuit() {
+        qwen.failing.set(true);
+
+        assertEquals("deepseek", ask("qwen"));
+        assertEquals("deepseek", ask("qwen"));
+        assertEquals(ModelHealth.State.OPEN, router.health("qwen").state());
+        assertEquals(2, qwen.calls.get());
+
+        // 熔断期间不再调用 qwen
+        assertEquals("deepseek", ask("qwen"));
+        assertEquals(2, qwen.calls.get());
+        assertEquals(1, meterRegistry.get("ai.model.router.rejected").tag("model", "qwen").counter().count());
+        assertEquals(3, meterRegistry.get("ai.model.router.routes")
+                .tags("requested", "qwen", "model", "deepseek", "reason", "fallback").counter().count());
+        assertEquals(2, meterRegistry.get("ai.model.router.circuit.state").tag("model", "qwen").gauge().value());
+
+        // 熔断到期后放行探测请求，成功则恢复
+        qwen.failing.set(false);
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals("qwen", ask("qwen"));
+        assertEquals(ModelHealth.State.CLOSED, router.health("qwen").state());
+    }
+
+    @Test
+    void slowCallsCountTowardsTheCircuit() {
+        qwen.latency.set(Duration.ofSeconds(6).toNanos());
+
+        ask("qwen");
+        ask("qwen");
+
+        assertEquals(ModelHealth.State.OPEN, router.health("qwen").state());
+        assertEquals(0, router.health("qwen").errorRate());
+        assertEquals(6.0, meterRegistry.get("ai.model.router.latency").tag("model", "qwen").gauge().value());
+    }
+
+    @Test
+    void errorAfterFirstTokenIsNotRetried() {
+        qwen.failAfterFirstToken.set(true);
+
+        assertThrows(IllegalStateException.class, () -> router.stream("qwen", this::stream).blockLast());
+        assertEquals(0, deepseek.calls.get());
+        assertEquals(1.0, router.health("qwen").errorRate());
+    }
+
+    @Test
+    void unroutedCallLeavesRoutingStatisticsUntouched() {
+        qwen.latency.set(Duration.ofSeconds(10).toNanos());
+
+        assertEquals("qwen", router.callUnrouted("qwen", chatClient -> chatClient.prompt().user("你好").call().content()));
+
+        assertEquals(1, qwen.calls.get());
+        assertEquals(-1, router.health("qwen").averageLatencyNanos());
+        assertTrue(meterRegistry.find("ai.model.router.routes").counters().isEmpty());
+    }
+
+    @Test
+    void autoRoutesToFastestHealthyModel() {
+        qwen.latency.set(Duration.ofMillis(800).toNanos());
+        deepseek.latency.set(Duration.ofMillis(200).toNanos());
+        ask("qwen");
+        ask("deepseek");
+
+        assertTrue(router.isRoutable(ModelRouter.AUTO));
+        assertEquals("deepseek", router.resolve(ModelRouter.AUTO));
+
+        // deepseek 没有备用模型，失败直接抛出并熔断
+        deepseek.failing.set(true);
+        assertThrows(IllegalStateException.class, () -> ask("deepseek"));
+        assertEquals(ModelHealth.State.OPEN, router.health("deepseek").state());
+        assertEquals("qwen", router.resolve(ModelRouter.AUTO));
+        assertEquals(1, meterRegistry.get("ai.model.router.routes")
+                .tags("requested", "auto", "model", "qwen", "reason", "auto").counter().count());
+    }
+
+    @Test
+    void blockingCallFailsOverAndReportsUnavailableWhenChainIsOpen() {
+        qwen.failing.set(true);
+        deepseek.failing.set(true);
+
+        assertThrows(IllegalStateException.class, () -> call("qwen"));
+        assertThrows(IllegalStateException.class, () -> call("qwen"));
+
+        assertThrows(ModelUnavailableException.class, () -> call("qwen"));
+        assertEquals(2, qwen.calls.get());
+        assertEquals(2, deepseek.calls.get());
+    }
+
+    @Test
+    void hedgeWinsWhenPrimaryStallsAndLoserIsCancelled() {
+        router = hedgingRouter(10);
+        qwen.stall.set(Duration.ofSeconds(2));
+
+        assertEquals("deepseek", hedged("qwen"));
+        assertTrue(qwen.cancelled.get());
+        assertEquals(1, meterRegistry.get("ai.model.hedge.fired").tags("model", "qwen", "hedge", "deepseek").counter().count());
+        assertEquals(1, meterRegistry.get("ai.model.hedge.won").tags("model", "qwen", "hedge", "deepseek").counter().count());
+        assertEquals(1, meterRegistry.get("ai.model.router.routes")
+                .tags("requested", "qwen", "model", "deepseek", "reason", "hedge").counter().count());
+        // 被取消的一路没有首 token，不计入健康统计
+        assertEquals(0, router.health("qwen").errorRate());
+    }
+
+    @Test
+    void noHedgeWhenPrimaryAnswersWithinDelay() {
+        router = hedgingRouter(10);
+
+        assertEquals("qwen", hedged("qwen"));
+        assertEquals(0, deepseek.calls.get());
+        assertEquals(0, meterRegistry.get("ai.model.hedge.fired").tags("model", "qwen", "hedge", "deepseek").counter().count());
+    }
+
+    @Test
+    void hedgesAreBoundedByBudget() {
+        router = hedgingRouter(1);
+        qwen.stall.set(Duration.ofMillis(300));
+
+        assertEquals("deepseek", hedged("qwen"));
+        assertEquals("qwen", hedged("qwen"));
+        assertEquals(1, deepseek.calls.get());
+        assertEquals(1, meterRegistry.get("ai.model.hedge.budget.exhausted")
+                .tags("model", "qwen", "hedge", "deepseek").counter().count());
+    }
+
+    @Test
+    void primaryDoesNotFailOverToModelAlreadyHedged() {
+        router = hedgingRouter(10);
+        qwen.failing.set(true);
+        qwen.stall.set(Duration.ofMillis(300));
+        deepseek.stall.set(Duration.ofMillis(500));
+
+        assertEquals("deepseek", hedged("qwen"));
+        assertEquals(1, deepseek.calls.get());
+        assertEquals(1, meterRegistry.get("ai.model.hedge.fired").tags("model", "qwen", "hedge", "deepseek").counter().count());
+    }
+
+    @Test
+    void noHedgeToModelPrimaryAlreadyFailedOverTo() {
+        router = hedgingRouter(10);
+        qwen.failing.set(true);
+        deepseek.stall.set(Duration.ofMillis(300));
+
+        assertEquals("deepseek", hedged("qwen"));
+        assertEquals(1, deepseek.calls.get());
+        assertEquals(0, meterRegistry.get("ai.model.hedge.fired").tags("model", "qwen", "hedge", "deepseek").counter().count());
+        assertEquals(1, meterRegistry.get("ai.model.router.routes")
+                .tags("requested", "qwen", "model", "deepseek", "reason", "fallback").counter().count());
+    }
+
+    @Test
+    void hedgeDelayFollowsRecentFirstTokenPercentile() {
+        properties.getHedging().setMinimumSamples(4);
+        properties.getHedging().setMinDelay(Duration.ofMillis(100));
+        assertEquals(properties.getHedging().getInitialDelay(), router.hedgeDelay("qwen"));
+
+        for (long millis : new long[]{200, 400, 600, 3000}) {
+            qwen.latency.set(Duration.ofMillis(millis).toNanos());
+            ask("qwen");
+        }
+        assertEquals(Duration.ofMillis(3000), router.hedgeDelay("qwen"));
+
+        properties.getHedging().setPercentile(0.5);
+        assertEquals(Duration.ofMillis(400), router.hedgeDelay("qwen"));
+    }
+
+    @Test
+    void fullBulkheadRejectsWithoutFailoverAndReportsQueuePosition() {
+        ModelArgsProperties.ModelCfg cfg = new ModelArgsProperties.ModelCfg();
+        cfg.setMaxConcurrent(1);
+        cfg.setQueueSize(1);
+        modelArgs.setModels(Map.of("qwen", cfg));
+        router = router();
+        qwen.stall.set(Duration.ofMillis(200));
+
+        List<String> queued = new CopyOnWriteArrayList<>();
+        ModelRouter.QueueListener listener = (model, position) -> queued.add(model + "#" + position);
+        Disposable first = router.stream("qwen", this::stream, listener).subscribe();
+        Disposable waiting = router.stream("qwen", this::stream, listener).subscribe();
+
+        assertThrows(BulkheadFullException.class, () -> router.stream("qwen", this::stream, listener).blockLast());
+        assertEquals(List.of("qwen#1"), queued);
+        assertEquals(0, deepseek.calls.get());
+        assertEquals(0, router.health("qwen").errorRate());
+        assertEquals(1, meterRegistry.get("ai.model.bulkhead.rejected").tags("model", "qwen", "reason", "full").counter().count());
+        assertEquals(1, meterRegistry.get("ai.model.bulkhead.inflight").tag("model", "qwen").gauge().value());
+        assertEquals(1, meterRegistry.get("ai.model.bulkhead.queued").tag("model", "qwen").gauge().value());
+
+        first.dispose();
+        waiting.dispose();
+    }
+
+    private ModelRouter hedgingRouter(int budgetBurst) {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setInitialDelay(Duration.ofMillis(100));
+        properties.getHedging().setBudgetRatio(0);
+        properties.getHedging().setBudgetBurst(budgetBurst);
+        return router();
+    }
+
+    private String hedged(String model) {
+        return firstToken(router.hedgedStream(model, this::stream));
+    }
+
+    private String ask(String model) {
+        return firstToken(router.stream(model, this::stream));
+    }
+
+    private static String firstToken(Flux<ChatResponse> responses) {
+        return responses
+                .map(response -> response.getResult().getOutput().getText())
+                .collectList()
+                .map(tokens -> tokens.get(0))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private String call(String model) {
+        return router.call(model, chatClient -> chatClient.prompt().user("你好").call().content());
+    }
+
+    private Flux<ChatResponse> stream(ChatClient chatClient) {
+        return chatClient.prompt().user("你好").stream().chatResponse();
+    }
+
+    /**
+     * 返回自身名称的模型替身，可注入失败、首 token 耗时（推进测试时钟）与真实的停顿
+     */
+    private class StubModel implements ChatModel {
+
+        private final String name;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicBoolean failing = new AtomicBoolean();
+        private final AtomicBoolean failAfterFirstToken = new AtomicBoolean();
+        private final AtomicLong latency = new AtomicLong();
+        private final AtomicReference<Duration> stall = new AtomicReference<>(Duration.ZERO);
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        StubModel(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                throw new IllegalStateException(name + " 不可用");
+            }
+            clock.addAndGet(latency.get());
+            return response(name);
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return Flux.defer(() -> {
+                calls.incrementAndGet();
+                if (failing.get()) {
+                    return Flux.<ChatResponse>error(new IllegalStateException(name + " 不可用")).delaySubscription(stall.get());
+                }
+                clock.addAndGet(latency.get());
+                Flux<ChatResponse> tokens = Flux.just(response(name), response("。"));
+                if (failAfterFirstToken.get()) {
+                    tokens = tokens.take(1).concatWith(Flux.error(new IllegalStateException(name + " 连接中断")));
+                }
+                return tokens.delaySubscription(stall.get()).doOnCancel(() -> cancelled.set(true));
+            });
+        }
+
+        private static ChatResponse response(String text) {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+        }
+    }
+}
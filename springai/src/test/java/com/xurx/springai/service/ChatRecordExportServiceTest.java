@@ -0,0 +1,219 @@
+package com.xurx.springai.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xurx.springai.dto.ChatRecordCursor;
+import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class ChatRecordExportServiceTest {
+
+    // 与 Spring Boot 默认配置一致：日期按 ISO 字符串输出
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void writesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChatRecordExportService service = service(new SeededMapper(3, 16, null));
+
+        assertEquals(3, service.export("u", null, null, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(0, first.get("id").asLong());
+        assertEquals("u", first.get("userId").asText());
+        assertEquals("2025-01-01T00:00:00", first.get("createTime").asText());
+    }
+
+    /**
+     * 模拟大表：游标逐行生成 20 万条约 1KB 的记录（全部留在堆里约 200MB+），
+     * 导出中途与结束时各测一次 GC 后的堆占用，两者差值应远小于结果集本身
+     */
+    @Test
+    void heapStaysFlatWhileExportingLargeTable() throws Exception {
+        int rows = 200_000;
+        SeededMapper mapper = new SeededMapper(rows, 1024, rows / 10);
+        ChatRecordExportService service = service(mapper);
+        CountingOutputStream sink = new CountingOutputStream();
+
+        try (OutputStream out = new GZIPOutputStream(sink, 64 * 1024)) {
+            assertEquals(rows, service.export(null, LocalDateTime.MIN, null, out));
+        }
+
+        long growth = mapper.heapAtEnd - mapper.heapAtCheckpoint;
+        log.info("导出 {} 条，gzip 后 {} KB，堆增长 {} KB", rows, sink.count / 1024, growth / 1024);
+        assertTrue(growth < 32L * 1024 * 1024, "heap grew by " + growth + " bytes");
+    }
+
+    private ChatRecordExportService service(ChatRecordMapper mapper) {
+        return new ChatRecordExportService(mapper, TransactionOperations.withoutTransaction(), objectMapper);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * 按需逐行生成记录的游标，行为与 MySQL 流式读取一致：已返回的行不再被持有
+     */
+    private static class SeededMapper implements ChatRecordMapper {
+
+        private final int rows;
+        private final int contentLength;
+        private final Integer checkpoint;
+        long heapAtCheckpoint;
+        long heapAtEnd;
+
+        SeededMapper(int rows, int contentLength, Integer checkpoint) {
+            this.rows = rows;
+            this.contentLength = contentLength;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public Cursor<ChatRecord> selectForExport(String userId, LocalDateTime from, LocalDateTime to) {
+            return new Cursor<>() {
+                private int index = -1;
+
+                @Override
+                public boolean isOpen() {
+                    return index < rows - 1;
+                }
+
+                @Override
+                public boolean isConsumed() {
+                    return index == rows - 1;
+                }
+
+                @Override
+                public int getCurrentIndex() {
+                    return index;
+                }
+
+                @Override
+                public void close() {
+                }
+
+                @Override
+                public Iterator<ChatRecord> iterator() {
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return index < rows - 1;
+                        }
+
+                        @Override
+                        public ChatRecord next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            index++;
+                            if (checkpoint != null && index == checkpoint) {
+                                heapAtCheckpoint = usedHeapAfterGc();
+                            }
+                            if (checkpoint != null && index == rows - 1) {
+                                heapAtEnd = usedHeapAfterGc();
+                            }
+                            return row(index, userId == null ? "user-" + index % 100 : userId);
+                        }
+                    };
+                }
+            };
+        }
+
+        private ChatRecord row(int i, String userId) {
+            ChatRecord chatRecord = new ChatRecord();
+            chatRecord.setId((long) i);
+            chatRecord.setUserId(userId);
+            chatRecord.setSessionId(userId + "-s" + i % 20);
+            chatRecord.setRole(i % 2 == 0 ? "user" : "assistant");
+            chatRecord.setContent(String.valueOf((char) ('a' + i % 26)).repeat(contentLength));
+            chatRecord.setModel("qwen");
+            chatRecord.setTokens(120);
+            chatRecord.setCreateTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(i));
+            return chatRecord;
+        }
+
+        @Override
+        public int insert(ChatRecord chatRecord) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int insertBatch(List<ChatRecord> records) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ChatRecord> selectPageByUserId(String userId, ChatRecordCursor cursor, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ChatRecord> selectBySessionId(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ChatRecord> selectPageByUserIdAndSessionId(String userId, String sessionId,
+                                                               ChatRecordCursor cursor, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkByUserId(String userId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkBySessionId(String sessionId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkBefore(LocalDateTime before, int limit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
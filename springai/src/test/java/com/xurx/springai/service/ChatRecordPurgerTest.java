@@ -0,0 +1,80 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatRecordProperties;
+import com.xurx.springai.entity.ChatRecordPurge;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import com.xurx.springai.mapper.ChatRecordPurgeMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatRecordPurgerTest {
+
+    private final ChatRecordMapper chatRecordMapper = mock(ChatRecordMapper.class);
+    private final ChatRecordPurgeMapper chatRecordPurgeMapper = mock(ChatRecordPurgeMapper.class);
+    private final ChatRecordProperties properties = new ChatRecordProperties();
+    private ChatRecordPurger purger;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        purger.close();
+    }
+
+    @Test
+    void registersPurgeBeforeDeletingAndMarksItFinished() {
+        purger = purger();
+        when(chatRecordMapper.deleteChunkBySessionId("s1", 2)).thenReturn(2, 1);
+
+        purger.purgeSession("s1");
+
+        verify(chatRecordPurgeMapper, timeout(1000)).finish(ChatRecordPurger.SESSION, "s1");
+        InOrder inOrder = inOrder(chatRecordPurgeMapper, chatRecordMapper);
+        inOrder.verify(chatRecordPurgeMapper).insert(ChatRecordPurger.SESSION, "s1");
+        inOrder.verify(chatRecordMapper, times(2)).deleteChunkBySessionId("s1", 2);
+        inOrder.verify(chatRecordPurgeMapper).finish(ChatRecordPurger.SESSION, "s1");
+    }
+
+    @Test
+    void resumesPendingPurgesOnStartup() {
+        when(chatRecordPurgeMapper.selectPending()).thenReturn(List.of(
+                pending(ChatRecordPurger.SESSION, "s1"), pending(ChatRecordPurger.USER, "u1")));
+        when(chatRecordMapper.deleteChunkBySessionId("s1", 2)).thenReturn(0);
+        when(chatRecordMapper.deleteChunkByUserId("u1", 2)).thenReturn(1);
+
+        purger = purger();
+
+        verify(chatRecordPurgeMapper, timeout(1000)).finish(ChatRecordPurger.SESSION, "s1");
+        verify(chatRecordPurgeMapper, timeout(1000)).finish(ChatRecordPurger.USER, "u1");
+        verify(chatRecordMapper).deleteChunkBySessionId("s1", 2);
+        verify(chatRecordMapper).deleteChunkByUserId("u1", 2);
+        verify(chatRecordPurgeMapper, never()).insert(ChatRecordPurger.SESSION, "s1");
+    }
+
+    private ChatRecordPurger purger() {
+        properties.getPurge().setChunkSize(2);
+        properties.getPurge().setPause(Duration.ZERO);
+        ChatRecordPurger purger = new ChatRecordPurger(chatRecordMapper, chatRecordPurgeMapper,
+                properties, new SimpleMeterRegistry());
+        purger.init();
+        return purger;
+    }
+
+    private static ChatRecordPurge pending(String scope, String targetId) {
+        ChatRecordPurge purge = new ChatRecordPurge();
+        purge.setScope(scope);
+        purge.setTargetId(targetId);
+        return purge;
+    }
+}
@@ -0,0 +1,302 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatRecordProperties;
+import com.xurx.springai.dto.ChatRecordCursor;
+import com.xurx.springai.dto.ChatSessionCursor;
+import com.xurx.springai.entity.ChatRecord;
+import com.xurx.springai.entity.ChatSession;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import com.xurx.springai.mapper.ChatRecordPurgeMapper;
+import com.xurx.springai.mapper.ChatSessionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatRecordWriterTest {
+
+    private final RecordingMapper mapper = new RecordingMapper();
+    private final RecordingSessionMapper sessionMapper = new RecordingSessionMapper();
+    private final ChatRecordPurgeMapper purgeMapper = mock(ChatRecordPurgeMapper.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChatRecordWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.close();
+    }
+
+    @Test
+    void flushesFullBatchesAsMultiRowInserts() throws InterruptedException {
+        writer = writer(10, 5, Duration.ofSeconds(30));
+
+        for (int i = 0; i < 10; i++) {
+            writer.write(record(i));
+        }
+
+        assertTrue(mapper.awaitRows(10));
+        assertEquals(List.of(5, 5), mapper.batchSizes);
+        assertEquals(0, mapper.singleInserts.get());
+    }
+
+    @Test
+    void flushesPartialBatchAfterInterval() throws InterruptedException {
+        writer = writer(10, 100, Duration.ofMillis(50));
+
+        writer.write(record(1));
+        writer.write(record(2));
+
+        assertTrue(mapper.awaitRows(2));
+        writer.close();
+        assertEquals(List.of(2), mapper.batchSizes);
+        assertEquals(1, meterRegistry.get("ai.chat.record.flush.latency").timer().count());
+    }
+
+    @Test
+    void shutdownFlushesQueuedRecords() throws InterruptedException {
+        writer = writer(100, 100, Duration.ofSeconds(30));
+
+        for (int i = 0; i < 30; i++) {
+            writer.write(record(i));
+        }
+        writer.close();
+
+        assertEquals(30, mapper.rows.get());
+        assertEquals(0, meterRegistry.get("ai.chat.record.queue.depth").gauge().value());
+    }
+
+    @Test
+    void callerWritesSynchronouslyWhenQueueIsFull() throws InterruptedException {
+        mapper.blockBatches = new CountDownLatch(1);
+        writer = writer(1, 1, Duration.ofMillis(1));
+
+        // 第一条被后台线程取走并阻塞在刷盘上，第二条占满队列，第三条只能由调用方写入
+        writer.write(record(1));
+        assertTrue(mapper.batchStarted.await(5, TimeUnit.SECONDS));
+        writer.write(record(2));
+        writer.write(record(3));
+        mapper.blockBatches.countDown();
+
+        assertEquals(1, mapper.singleInserts.get());
+        assertEquals(1, meterRegistry.get("ai.chat.record.caller.runs").counter().count());
+        assertTrue(mapper.awaitRows(3));
+    }
+
+    @Test
+    void summarizesEachSessionOncePerBatch() throws InterruptedException {
+        writer = writer(10, 4, Duration.ofSeconds(30));
+
+        writer.write(record("s2", "assistant", "你好", 30));
+        writer.write(record("s1", "user", "  第一个\n问题  ", 10));
+        writer.write(record("s2", "user", "第二个问题", 5));
+        writer.write(record("s1", "assistant", "回答", 20));
+
+        writer.close();
+        assertEquals(1, sessionMapper.upserts.size());
+        List<ChatSession> sessions = sessionMapper.upserts.get(0);
+        assertEquals(List.of("s1", "s2"), sessions.stream().map(ChatSession::getSessionId).toList());
+
+        ChatSession s1 = sessions.get(0);
+        assertEquals("第一个 问题", s1.getTitle());
+        assertEquals("回答", s1.getLastMessage());
+        assertEquals(2, s1.getMessageCount());
+        assertEquals(30L, s1.getTotalTokens());
+        assertEquals("qwen", s1.getLastModel());
+        // 会话先写入助手消息时，标题仍取第一条用户消息
+        assertEquals("第二个问题", sessions.get(1).getTitle());
+    }
+
+    @Test
+    void dropsQueuedRecordsOfDeletedSessions() throws InterruptedException {
+        writer = writer(10, 10, Duration.ofSeconds(30));
+        writer.write(record("s1", "user", "问题", 0));
+        writer.write(record("s2", "user", "问题", 0));
+        writer.write(record("s1", "assistant", "回答", 20));
+
+        // 记录仍在队列中时会话被删除，刷盘时不能重新插入记录或重建会话摘要
+        when(purgeMapper.selectPurgedSessionIds(any())).thenReturn(List.of("s1"));
+        writer.close();
+
+        assertEquals(List.of(1), mapper.batchSizes);
+        assertEquals(List.of("s2"), sessionMapper.upserts.get(0).stream().map(ChatSession::getSessionId).toList());
+        assertEquals(2, meterRegistry.get("ai.chat.record.purged.skipped").counter().count());
+    }
+
+    @Test
+    void shutdownTimeoutFlushesRemainingRecordsOnShutdownThread() throws InterruptedException {
+        writer = writer(10, 1, Duration.ofMillis(10), Duration.ofMillis(100));
+        CountDownLatch stuck = new CountDownLatch(1);
+        mapper.blockBatches = stuck;
+        try {
+            writer.write(record(1));
+            assertTrue(mapper.batchStarted.await(5, TimeUnit.SECONDS));
+            // 后台线程卡在第一批写入上，之后的写入不再阻塞
+            mapper.blockBatches = null;
+            writer.write(record(2));
+            writer.write(record(3));
+
+            writer.close();
+
+            assertEquals(3, mapper.rows.get());
+            assertEquals(0, meterRegistry.get("ai.chat.record.dropped").counter().count());
+        } finally {
+            stuck.countDown();
+        }
+    }
+
+    private ChatRecordWriter writer(int queueCapacity, int batchSize, Duration flushInterval) {
+        return writer(queueCapacity, batchSize, flushInterval, Duration.ofSeconds(10));
+    }
+
+    private ChatRecordWriter writer(int queueCapacity, int batchSize, Duration flushInterval,
+                                    Duration shutdownTimeout) {
+        ChatRecordProperties properties = new ChatRecordProperties();
+        properties.getWriteBehind().setShutdownTimeout(shutdownTimeout);
+        properties.getWriteBehind().setQueueCapacity(queueCapacity);
+        properties.getWriteBehind().setBatchSize(batchSize);
+        properties.getWriteBehind().setFlushInterval(flushInterval);
+        properties.getWriteBehind().setOfferTimeout(Duration.ofMillis(10));
+        ChatRecordWriter chatRecordWriter = new ChatRecordWriter(mapper, sessionMapper, purgeMapper,
+                TransactionOperations.withoutTransaction(), properties, meterRegistry);
+        chatRecordWriter.init();
+        return chatRecordWriter;
+    }
+
+    private static ChatRecord record(int i) {
+        ChatRecord chatRecord = new ChatRecord();
+        chatRecord.setUserId("u");
+        chatRecord.setSessionId("s");
+        chatRecord.setRole("user");
+        chatRecord.setContent("消息" + i);
+        return chatRecord;
+    }
+
+    private static ChatRecord record(String sessionId, String role, String content, int tokens) {
+        ChatRecord chatRecord = new ChatRecord();
+        chatRecord.setUserId("u");
+        chatRecord.setSessionId(sessionId);
+        chatRecord.setRole(role);
+        chatRecord.setContent(content);
+        chatRecord.setModel("qwen");
+        chatRecord.setTokens(tokens);
+        return chatRecord;
+    }
+
+    private static class RecordingSessionMapper implements ChatSessionMapper {
+
+        final List<List<ChatSession>> upserts = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public int upsertBatch(List<ChatSession> sessions) {
+            upserts.add(sessions);
+            return sessions.size();
+        }
+
+        @Override
+        public List<ChatSession> selectPageByUserId(String userId, ChatSessionCursor cursor, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteBySessionId(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkBefore(LocalDateTime before, int limit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class RecordingMapper implements ChatRecordMapper {
+
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger singleInserts = new AtomicInteger();
+        final AtomicInteger rows = new AtomicInteger();
+        final CountDownLatch batchStarted = new CountDownLatch(1);
+        volatile CountDownLatch blockBatches;
+
+        @Override
+        public int insert(ChatRecord chatRecord) {
+            singleInserts.incrementAndGet();
+            rows.incrementAndGet();
+            return 1;
+        }
+
+        @Override
+        public int insertBatch(List<ChatRecord> records) {
+            CountDownLatch block = blockBatches;
+            batchStarted.countDown();
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(records.size());
+            rows.addAndGet(records.size());
+            return records.size();
+        }
+
+        boolean awaitRows(int expected) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (rows.get() < expected && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return rows.get() == expected;
+        }
+
+        @Override
+        public List<ChatRecord> selectPageByUserId(String userId, ChatRecordCursor cursor, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ChatRecord> selectBySessionId(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ChatRecord> selectPageByUserIdAndSessionId(String userId, String sessionId,
+                                                               ChatRecordCursor cursor, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Cursor<ChatRecord> selectForExport(String userId, LocalDateTime from, LocalDateTime to) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkByUserId(String userId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkBySessionId(String sessionId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteChunkBefore(LocalDateTime before, int limit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
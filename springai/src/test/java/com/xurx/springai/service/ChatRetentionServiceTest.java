@@ -0,0 +1,143 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatRecordProperties;
+import com.xurx.springai.entity.TablePartition;
+import com.xurx.springai.mapper.ChatRecordMapper;
+import com.xurx.springai.mapper.ChatRecordPurgeMapper;
+import com.xurx.springai.mapper.ChatSessionMapper;
+import com.xurx.springai.mapper.PartitionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatRetentionServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 3, 30);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PartitionMapper partitionMapper = mock(PartitionMapper.class);
+    private final ChatRecordMapper chatRecordMapper = mock(ChatRecordMapper.class);
+    private final ChatSessionMapper chatSessionMapper = mock(ChatSessionMapper.class);
+    private final PartitionMapper lockMapper = mock(PartitionMapper.class);
+    private final SqlSessionFactory sqlSessionFactory = mock(SqlSessionFactory.class);
+    private final ChatRecordProperties properties = new ChatRecordProperties();
+
+    @BeforeEach
+    void setUp() {
+        SqlSession session = mock(SqlSession.class);
+        when(sqlSessionFactory.openSession()).thenReturn(session);
+        when(session.getMapper(PartitionMapper.class)).thenReturn(lockMapper);
+        when(lockMapper.tryLock(ChatRetentionService.LOCK_NAME)).thenReturn(1);
+        properties.getPurge().setChunkSize(2);
+        properties.getPurge().setPause(Duration.ZERO);
+        properties.getRetention().setDryRun(false);
+    }
+
+    @Test
+    void createsFutureMonthsAndDropsExpiredPartitions() {
+        when(partitionMapper.selectPartitions(anyString())).thenReturn(List.of(
+                partition("p202509", "2025-10-01T00:00"),
+                partition("p202510", "2025-11-01T00:00"),
+                partition("p202610", "2026-11-01T00:00"),
+                partition("pmax", null)));
+
+        service().run(NOW);
+
+        for (String table : List.of(ChatRetentionService.CHAT_RECORD, ChatRetentionService.CHAT_MEMORY)) {
+            // 保留 12 个月：只有整月都早于 2025-10-18 的 p202509 被删除
+            verify(partitionMapper).dropPartition(table, "p202509");
+            verify(partitionMapper, never()).dropPartition(table, "p202510");
+            // 当前月之后预建 3 个月
+            verify(partitionMapper).splitMaxPartition(table, "p202611", epoch("2026-12-01T00:00"));
+            verify(partitionMapper).splitMaxPartition(table, "p202612", epoch("2027-01-01T00:00"));
+            verify(partitionMapper).splitMaxPartition(table, "p202701", epoch("2027-02-01T00:00"));
+        }
+        verify(chatSessionMapper).deleteChunkBefore(NOW.minusMonths(12), 2);
+        assertEquals(3, meterRegistry.get("ai.retention.partitions.created")
+                .tag("table", ChatRetentionService.CHAT_RECORD).counter().count());
+    }
+
+    @Test
+    void dryRunOnlyReportsExpiredPartitions() {
+        properties.getRetention().setDryRun(true);
+        when(partitionMapper.selectPartitions(anyString())).thenReturn(List.of(
+                partition("p_init", "2025-01-01T00:00"),
+                partition("p202612", "2027-01-01T00:00"),
+                partition("pmax", null)));
+
+        service().run(NOW);
+
+        verify(partitionMapper, never()).dropPartition(anyString(), anyString());
+        // 预建分区不删除数据，dry-run 下照常执行
+        verify(partitionMapper).splitMaxPartition(ChatRetentionService.CHAT_RECORD, "p202701", epoch("2027-02-01T00:00"));
+        verify(chatSessionMapper, never()).deleteChunkBefore(any(), anyInt());
+        assertEquals(1, meterRegistry.get("ai.retention.partitions.dropped")
+                .tag("table", ChatRetentionService.CHAT_RECORD).tag("dry_run", "true").counter().count());
+    }
+
+    @Test
+    void unpartitionedTableFallsBackToChunkedDeletes() {
+        when(partitionMapper.selectPartitions(anyString())).thenReturn(new ArrayList<>());
+        when(chatRecordMapper.deleteChunkBefore(any(), eq(2))).thenReturn(2, 2, 1);
+
+        service().run(NOW);
+
+        verify(chatRecordMapper, times(3)).deleteChunkBefore(NOW.minusMonths(12), 2);
+        assertEquals(5, meterRegistry.get("ai.chat.record.purge.rows").tag("scope", "retention").counter().count());
+        assertEquals(1, meterRegistry.get("ai.retention.run").tag("outcome", "success").timer().count());
+        verify(lockMapper).releaseLock(ChatRetentionService.LOCK_NAME);
+    }
+
+    @Test
+    void skipsWhenAnotherInstanceHoldsTheLock() {
+        when(lockMapper.tryLock(ChatRetentionService.LOCK_NAME)).thenReturn(0);
+
+        service().run(NOW);
+
+        verify(partitionMapper, never()).selectPartitions(anyString());
+        verify(chatSessionMapper, never()).deleteChunkBefore(any(), anyInt());
+        verify(lockMapper, never()).releaseLock(anyString());
+        assertEquals(1, meterRegistry.get("ai.retention.run.skipped").counter().count());
+        assertEquals(0, meterRegistry.get("ai.retention.run").tag("outcome", "success").timer().count());
+    }
+
+    private ChatRetentionService service() {
+        ChatRecordPurger purger = new ChatRecordPurger(chatRecordMapper, mock(ChatRecordPurgeMapper.class),
+                properties, meterRegistry);
+        purger.init();
+        return new ChatRetentionService(partitionMapper, chatRecordMapper, chatSessionMapper, purger,
+                sqlSessionFactory, properties, meterRegistry);
+    }
+
+    private static TablePartition partition(String name, String lessThan) {
+        TablePartition partition = new TablePartition();
+        partition.setName(name);
+        partition.setLessThan(lessThan == null ? null : epoch(lessThan));
+        partition.setTableRows(10L);
+        return partition;
+    }
+
+    private static long epoch(String time) {
+        return LocalDateTime.parse(time).atZone(ZONE).toEpochSecond();
+    }
+}
@@ -0,0 +1,266 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.advisor.ConversationMemoryAdvisor;
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.configuration.ModelArgsProperties;
+import com.xurx.springai.dto.ChatStreamEvent;
+import com.xurx.springai.intent.IntentRecognitionService;
+import com.xurx.springai.intent.IntentResult;
+import com.xurx.springai.routing.ModelBulkheads;
+import com.xurx.springai.routing.ModelRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IntentGraphServiceTest {
+
+    private static final String RECIPE = "红烧肉：五花肉切块焯水，炒糖色后加入冰糖和调料小火慢炖";
+
+    private final AtomicInteger streamCalls = new AtomicInteger();
+    private Duration tokenDelay = Duration.ZERO;
+    private final ChatMemory chatMemory = MessageWindowChatMemory.builder().build();
+    private final SemanticCacheService semanticCacheService = mock(SemanticCacheService.class);
+    private SimpleMeterRegistry meterRegistry;
+    private IntentRecognitionService intentRecognitionService;
+    private IntentGraphService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = service(true);
+    }
+
+    private IntentGraphService service(boolean speculation) throws Exception {
+        ChatPipelineProperties properties = new ChatPipelineProperties();
+        properties.getSpeculation().setEnabled(speculation);
+        return service(properties);
+    }
+
+    private IntentGraphService service(ChatPipelineProperties properties) throws Exception {
+        ChatModel chatModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                streamCalls.incrementAndGet();
+                // 带上检索到的菜谱时按菜谱回答，否则闲聊
+                Flux<String> tokens = prompt.getContents().contains(RECIPE) ? Flux.just("五花肉", "冰糖") : Flux.just("你", "好");
+                Flux<ChatResponse> responses = tokens
+                        .map(token -> new ChatResponse(List.of(new Generation(new AssistantMessage(token)))));
+                return tokenDelay.isZero() ? responses : responses.delayElements(tokenDelay);
+            }
+        };
+        Map<String, ChatClient> chatClientMap = Map.of("qwen", ChatClient.builder(chatModel)
+                .defaultAdvisors(new ConversationMemoryAdvisor(chatMemory)).build());
+
+        meterRegistry = new SimpleMeterRegistry();
+        intentRecognitionService = mock(IntentRecognitionService.class);
+        IntentGraphService service = new IntentGraphService(new ModelRouter(chatClientMap, properties,
+                new ModelBulkheads(new ModelArgsProperties(), meterRegistry), meterRegistry),
+                RetrievalAugmentationAdvisor.builder().documentRetriever(query -> List.of(new Document(RECIPE))).build(),
+                null, intentRecognitionService,
+                properties, new SpeculationMetrics(meterRegistry, chatClientMap), semanticCacheService,
+                new RequestCoalescer(properties, meterRegistry), new GraphNodeMetrics(meterRegistry), chatMemory,
+                Schedulers.boundedElastic());
+        service.init();
+        return service;
+    }
+
+    @Test
+    void speculationHitReusesBufferedTokens() {
+        when(intentRecognitionService.recognize(anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return new IntentResult("chitchat", 1.0, "llm");
+        });
+
+        List<ChatStreamEvent> events = service.executeWithSteps("你好", "qwen").collectList().block(Duration.ofSeconds(5));
+
+        assertEquals("你好", tokens(events));
+        assertEquals(List.of("intent_recognition:processing", "intent_recognition:complete",
+                "chitchat:processing", "chitchat:complete"), steps(events));
+        assertEquals(ChatStreamEvent.Type.DONE, events.get(events.size() - 1).getType());
+        assertEquals(1, streamCalls.get());
+        assertEquals(1, meterRegistry.get("ai.speculation").tag("outcome", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("ai.speculation.ttft.saved").timer().count());
+        for (String node : List.of("intent_recognition", "chitchat", GraphNodeMetrics.GRAPH)) {
+            assertEquals(1, meterRegistry.get("ai.graph.node.latency").tag("node", node).timer().count());
+            assertEquals(0, meterRegistry.get("ai.graph.node.active").tag("node", node).gauge().value());
+        }
+        // 节点耗时包含流式输出，至少覆盖意图识别的 50ms
+        assertTrue(meterRegistry.get("ai.graph.node.latency").tag("node", GraphNodeMetrics.GRAPH).timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void speculationMissRestartsWithActualIntent() {
+        when(intentRecognitionService.recognize(anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return new IntentResult("rag", 1.0, "llm");
+        });
+
+        List<ChatStreamEvent> events = service.executeWithSteps("红烧肉怎么做", "qwen").collectList().block(Duration.ofSeconds(5));
+
+        // 预生成的闲聊回答被丢弃，只输出按实际意图检索后重新生成的回答
+        assertEquals("五花肉冰糖", tokens(events));
+        assertEquals(List.of("intent_recognition:processing", "intent_recognition:complete",
+                "rag:processing", "rag:complete"), steps(events));
+        assertEquals(ChatStreamEvent.Type.DONE, events.get(events.size() - 1).getType());
+        assertEquals(2, streamCalls.get());
+        assertEquals(1, meterRegistry.get("ai.speculation").tag("outcome", "miss").counter().count());
+        assertEquals(2, meterRegistry.get("ai.speculation.wasted.tokens").summary().totalAmount());
+        assertEquals(0, meterRegistry.get("ai.graph.node.errors").tag("node", "rag").counter().count());
+        assertEquals(0, meterRegistry.get("ai.graph.node.active").tag("node", "rag").gauge().value());
+    }
+
+    @Test
+    void unsupportedPredictedIntentDisablesSpeculationWithoutTouchingProperties() throws Exception {
+        ChatPipelineProperties properties = new ChatPipelineProperties();
+        properties.getSpeculation().setEnabled(true);
+        properties.getSpeculation().setPredictedIntent("tool_call");
+        service = service(properties);
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+
+        List<ChatStreamEvent> events = service.executeWithSteps("你好", "qwen").collectList().block(Duration.ofSeconds(5));
+
+        assertEquals("你好", tokens(events));
+        assertEquals(1, streamCalls.get());
+        assertTrue(properties.getSpeculation().isEnabled());
+        assertTrue(meterRegistry.find("ai.speculation").counters().stream().allMatch(counter -> counter.count() == 0));
+    }
+
+    @Test
+    void blockingExecutionAggregatesStreamedResponse() {
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+
+        assertEquals("你好", service.execute("你好", "qwen"));
+    }
+
+    @Test
+    void semanticCacheHitIsWrittenToConversationMemory() throws Exception {
+        service = service(false);
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+        when(semanticCacheService.isEnabledFor("chitchat")).thenReturn(true);
+        when(semanticCacheService.lookup("你好", "qwen", "chitchat")).thenReturn(Mono.just("缓存的回答"));
+        when(semanticCacheService.replay("缓存的回答")).thenReturn(Flux.just("缓存的", "回答"));
+
+        List<ChatStreamEvent> events = service.executeWithSteps("你好", "qwen", "s1").collectList().block(Duration.ofSeconds(5));
+
+        assertEquals("缓存的回答", tokens(events));
+        assertEquals(0, streamCalls.get());
+        assertEquals(List.of("你好", "缓存的回答"), chatMemory.get("s1").stream().map(Message::getText).toList());
+    }
+
+    @Test
+    void semanticCacheBypassedWhenConversationHasHistory() throws Exception {
+        service = service(false);
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+        when(semanticCacheService.isEnabledFor("chitchat")).thenReturn(true);
+        chatMemory.add("s1", List.of(new UserMessage("我叫小明"), new AssistantMessage("你好，小明")));
+
+        List<ChatStreamEvent> events = service.executeWithSteps("我叫什么", "qwen", "s1").collectList().block(Duration.ofSeconds(5));
+
+        // 回答依赖会话历史，不能回放也不能写入全局缓存
+        assertEquals("你好", tokens(events));
+        assertEquals(1, streamCalls.get());
+        verify(semanticCacheService, never()).lookup(anyString(), anyString(), anyString());
+        verify(semanticCacheService, never()).store(anyString(), anyString(), anyString(), anyString());
+        assertEquals(4, chatMemory.get("s1").size());
+    }
+
+    @Test
+    void speculationHitWithHistoryIsNotStoredInSemanticCache() {
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+        chatMemory.add("s1", List.of(new UserMessage("我叫小明"), new AssistantMessage("你好，小明")));
+
+        List<ChatStreamEvent> events = service.executeWithSteps("我叫什么", "qwen", "s1").collectList().block(Duration.ofSeconds(5));
+
+        assertEquals("你好", tokens(events));
+        assertEquals(1, meterRegistry.get("ai.speculation").tag("outcome", "hit").counter().count());
+        verify(semanticCacheService, never()).store(anyString(), anyString(), anyString(), anyString());
+        assertEquals(4, chatMemory.get("s1").size());
+    }
+
+    @Test
+    void speculationHitOnFirstTurnIsStoredAndRemembered() {
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+
+        List<ChatStreamEvent> events = service.executeWithSteps("你好", "qwen", "s1").collectList().block(Duration.ofSeconds(5));
+
+        assertEquals("你好", tokens(events));
+        verify(semanticCacheService).store("你好", "qwen", "chitchat", "你好");
+        assertEquals(List.of("你好", "你好"), chatMemory.get("s1").stream().map(Message::getText).toList());
+    }
+
+    @Test
+    void firstTurnsOfDifferentConversationsShareOneModelCall() throws Exception {
+        service = service(false);
+        tokenDelay = Duration.ofMillis(200);
+        when(intentRecognitionService.recognize(anyString(), anyString()))
+                .thenReturn(new IntentResult("chitchat", 1.0, "rule"));
+
+        List<List<ChatStreamEvent>> results = Flux.merge(
+                        service.executeWithSteps("你好", "qwen", "s1").collectList(),
+                        service.executeWithSteps("你好", "qwen", "s2").collectList())
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(1, streamCalls.get());
+        for (List<ChatStreamEvent> events : results) {
+            assertEquals("你好", tokens(events));
+        }
+        // 合并调用不经过会话记忆顾问，每个会话各自写入本轮问答
+        for (String conversationId : List.of("s1", "s2")) {
+            assertEquals(List.of("你好", "你好"), chatMemory.get(conversationId).stream().map(Message::getText).toList());
+        }
+    }
+
+    private static List<String> steps(List<ChatStreamEvent> events) {
+        return events.stream()
+                .filter(e -> e.getType() == ChatStreamEvent.Type.STEP)
+                .map(e -> e.getNode() + ":" + e.getStatus())
+                .toList();
+    }
+
+    private static String tokens(List<ChatStreamEvent> events) {
+        StringBuilder builder = new StringBuilder();
+        events.stream().filter(ChatStreamEvent::isToken).forEach(e -> builder.append(e.getContent()));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.xurx.springai.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryEmbeddingReuseTest {
+
+    private final CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+    private final QueryEmbeddingReuse embeddingModel = new QueryEmbeddingReuse(delegate);
+
+    @Test
+    void storeReusesEmbeddingOfMissedLookup() {
+        float[] query = embeddingModel.embed("红烧肉怎么做");
+
+        List<float[]> stored = store("红烧肉怎么做");
+
+        assertArrayEquals(query, stored.get(0));
+        assertEquals(List.of("红烧肉怎么做"), delegate.texts);
+
+        // 复用后即移除，再次写入重新向量化
+        store("红烧肉怎么做");
+        assertEquals(2, delegate.texts.size());
+    }
+
+    @Test
+    void embedsWhenNoLookupEmbeddingIsCarried() {
+        embeddingModel.embed("你好");
+        embeddingModel.discard("你好");
+
+        store("你好");
+        store("红烧肉怎么做");
+
+        assertEquals(List.of("你好", "你好", "红烧肉怎么做"), delegate.texts);
+    }
+
+    private List<float[]> store(String message) {
+        return embeddingModel.embed(List.of(new Document(message)), EmbeddingOptions.builder().build(),
+                new TokenCountBatchingStrategy());
+    }
+
+    /**
+     * 以文本长度为向量、记录每次被向量化文本的模型替身
+     */
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final List<String> texts = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                texts.add(text);
+                embeddings.add(new Embedding(new float[]{text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
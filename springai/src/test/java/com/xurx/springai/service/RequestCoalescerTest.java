@@ -0,0 +1,135 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.ChatPipelineProperties;
+import com.xurx.springai.dto.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(new ChatPipelineProperties(), meterRegistry);
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+    private Sinks.Many<ChatResponse> upstream;
+
+    @Test
+    void identicalRequestsShareOneCallAndReplayEarlierTokens() {
+        TokenUsage tokenUsage = new TokenUsage(10, 5);
+        AtomicReference<TokenUsage> firstUsage = new AtomicReference<>();
+        AtomicReference<TokenUsage> secondUsage = new AtomicReference<>();
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+
+        coalescer.coalesce("chitchat", "qwen", "你好", null, call(tokenUsage), firstUsage::set)
+                .map(RequestCoalescerTest::text).subscribe(first::add);
+        upstream.tryEmitNext(response("你"));
+        // 首尾空白不同的相同问题在调用途中加入，先收到已输出的 token
+        coalescer.coalesce("chitchat", "qwen", "  你好 ", null, call(tokenUsage), secondUsage::set)
+                .map(RequestCoalescerTest::text).subscribe(second::add);
+        upstream.tryEmitNext(response("好"));
+        upstream.tryEmitComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(List.of("你", "好"), first);
+        assertEquals(List.of("你", "好"), second);
+        assertEquals(tokenUsage, firstUsage.get());
+        assertEquals(tokenUsage, secondUsage.get());
+        assertEquals(1, meterRegistry.get("ai.chat.coalesced").tag("intent", "chitchat").counter().count());
+        assertEquals(0, coalescer.inFlight());
+
+        // 调用结束后的相同请求重新调用
+        coalescer.coalesce("chitchat", "qwen", "你好", null, call(tokenUsage), usage -> {
+        }).subscribe();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void cancellingOneSubscriberKeepsTheCallUntilAllHaveLeft() {
+        List<String> remaining = new CopyOnWriteArrayList<>();
+        Disposable leader = coalescer.coalesce("rag", "qwen", "红烧肉怎么做", null, call(null), usage -> {
+        }).subscribe();
+        coalescer.coalesce("rag", "qwen", "红烧肉怎么做", null, call(null), usage -> {
+        }).map(RequestCoalescerTest::text).subscribe(remaining::add);
+
+        leader.dispose();
+        upstream.tryEmitNext(response("五花肉"));
+        assertFalse(upstreamCancelled.get());
+        assertEquals(List.of("五花肉"), remaining);
+
+        Disposable last = coalescer.coalesce("rag", "qwen", "红烧肉怎么做", null, call(null), usage -> {
+        }).subscribe();
+        assertEquals(1, calls.get());
+        last.dispose();
+        assertFalse(upstreamCancelled.get());
+        assertEquals(1, coalescer.inFlight());
+    }
+
+    @Test
+    void lastSubscriberCancellingCancelsTheCall() {
+        Disposable only = coalescer.coalesce("chitchat", "qwen", "你好", null, call(null), usage -> {
+        }).subscribe();
+        only.dispose();
+
+        assertTrue(upstreamCancelled.get());
+        assertEquals(0, coalescer.inFlight());
+    }
+
+    @Test
+    void toolCallsAndDifferentConversationsAreNotCoalesced() {
+        coalescer.coalesce("tool_call", "qwen", "现在几点", null, call(null), usage -> {
+        }).subscribe();
+        coalescer.coalesce("tool_call", "qwen", "现在几点", null, call(null), usage -> {
+        }).subscribe();
+        assertEquals(2, calls.get());
+
+        coalescer.coalesce("chitchat", "qwen", "你好", "session-a", call(null), usage -> {
+        }).subscribe();
+        coalescer.coalesce("chitchat", "qwen", "你好", "session-b", call(null), usage -> {
+        }).subscribe();
+        assertEquals(4, calls.get());
+        assertNotEquals(RequestCoalescer.key("chitchat", "qwen", "你好", "session-a"),
+                RequestCoalescer.key("chitchat", "deepseek", "你好", "session-a"));
+    }
+
+    /**
+     * 模拟模型调用：每次调用新建一个上游，完成时回调 token 用量
+     */
+    private Function<Consumer<TokenUsage>, Flux<ChatResponse>> call(TokenUsage tokenUsage) {
+        return usageListener -> {
+            calls.incrementAndGet();
+            upstream = Sinks.many().unicast().onBackpressureBuffer();
+            return upstream.asFlux()
+                    .doOnComplete(() -> usageListener.accept(tokenUsage))
+                    .doOnCancel(() -> upstreamCancelled.set(true));
+        };
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static String text(ChatResponse response) {
+        return response.getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,122 @@
+package com.xurx.springai.service;
+
+import com.xurx.springai.configuration.UserProperties;
+import com.xurx.springai.entity.User;
+import com.xurx.springai.mapper.UserMapper;
+import com.xurx.springai.utils.PasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserServiceTest {
+
+    private final UpsertCountingMapper mapper = new UpsertCountingMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(mapper, new PasswordEncoder(), new UserProperties(), meterRegistry);
+    }
+
+    @Test
+    void concurrentRequestsForNewUserRunOneUpsert() throws Exception {
+        int threads = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 100; j++) {
+                        userService.ensureUserExists("new-user");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, mapper.upserts.get());
+        assertEquals(Set.of("new-user"), mapper.userIds);
+        assertEquals(threads * 100 - 1, meterRegistry.get("cache.gets").tag("cache", "user").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void upsertFailureIsNotCached() {
+        mapper.failNext = true;
+        try {
+            userService.ensureUserExists("u1");
+        } catch (IllegalStateException expected) {
+            // 数据库异常直接抛给调用方
+        }
+        userService.ensureUserExists("u1");
+
+        assertEquals(2, mapper.upserts.get());
+        assertEquals(Set.of("u1"), mapper.userIds);
+    }
+
+    /**
+     * 模拟 user_id 唯一索引：并发插入同一用户ID只会成功一次
+     */
+    private static class UpsertCountingMapper implements UserMapper {
+
+        final AtomicInteger upserts = new AtomicInteger();
+        final Set<String> userIds = ConcurrentHashMap.newKeySet();
+        volatile boolean failNext;
+
+        @Override
+        public int insertIfAbsent(User user) {
+            upserts.incrementAndGet();
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("connection reset");
+            }
+            return userIds.add(user.getUserId()) ? 1 : 0;
+        }
+
+        @Override
+        public User selectByUserId(String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User selectByUsername(String username) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int insert(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int update(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteByUserId(String userId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
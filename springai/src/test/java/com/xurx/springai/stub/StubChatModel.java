@@ -0,0 +1,121 @@
+package com.xurx.springai.stub;
+
+import com.xurx.springai.intent.IntentClassifier;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 桩对话模型：不访问网络，按配置的首 token 耗时、输出速度与失败率返回确定的回答
+ * <p>
+ * 回答由提示词的哈希决定，相同提示词总是得到相同的回答；意图分类提示词（包含全部意图标签）按用户消息的哈希返回一个意图
+ */
+public class StubChatModel implements ChatModel {
+
+    private static final String[] VOCABULARY = {
+            "好的", "我们", "可以", "先", "把", "食材", "准备", "好", "，", "然后", "小火", "慢慢", "炖", "。",
+            "这个", "问题", "需要", "结合", "具体", "情况", "来看", "一般", "建议", "注意", "火候", "和", "时间", "！"
+    };
+    private static final List<String> INTENTS = IntentClassifier.VALID_INTENTS.stream().sorted().toList();
+
+    private final String model;
+    private final StubModelProperties properties;
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * @param model 模型键（qwen / deepseek / zhipu），用于查找按模型覆盖的行为
+     */
+    public StubChatModel(String model, StubModelProperties properties) {
+        this.model = model;
+        this.properties = properties;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        StubModelProperties.Behavior behavior = properties.behavior(model);
+        failIfUnlucky(behavior);
+        List<String> tokens = answer(prompt, behavior);
+        sleep(behavior.getTtft().plus(interval(behavior).multipliedBy(Math.max(0, tokens.size() - 1))));
+        return response(String.join("", tokens), prompt, tokens.size());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            StubModelProperties.Behavior behavior = properties.behavior(model);
+            failIfUnlucky(behavior);
+            List<String> tokens = answer(prompt, behavior);
+            // 末尾片段带上 token 用量，与真实模型的流式返回一致
+            return Flux.interval(behavior.getTtft(), interval(behavior))
+                    .take(tokens.size())
+                    .map(i -> i == tokens.size() - 1
+                            ? response(tokens.get(i.intValue()), prompt, tokens.size())
+                            : new ChatResponse(List.of(new Generation(new AssistantMessage(tokens.get(i.intValue()))))));
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().model("stub-" + model).build();
+    }
+
+    private void failIfUnlucky(StubModelProperties.Behavior behavior) {
+        long call = calls.getAndIncrement();
+        if (behavior.getErrorRate() > 0
+                && new SplittableRandom(properties.getSeed() ^ (call * 0x9E3779B97F4A7C15L)).nextDouble() < behavior.getErrorRate()) {
+            throw new TransientAiException("stub model " + model + " failed on call " + call);
+        }
+    }
+
+    private static List<String> answer(Prompt prompt, StubModelProperties.Behavior behavior) {
+        String text = prompt.getContents();
+        if (INTENTS.stream().allMatch(text::contains)) {
+            String userMessage = prompt.getUserMessage().getText();
+            return List.of(INTENTS.get(Math.floorMod(userMessage.hashCode(), INTENTS.size())));
+        }
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        List<String> tokens = new ArrayList<>(behavior.getCompletionTokens());
+        for (int i = 0; i < Math.max(1, behavior.getCompletionTokens()); i++) {
+            tokens.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return tokens;
+    }
+
+    private ChatResponse response(String text, Prompt prompt, int completionTokens) {
+        int promptTokens = prompt.getInstructions().stream()
+                .map(Message::getText)
+                .mapToInt(messageText -> messageText == null ? 0 : messageText.length())
+                .sum();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))),
+                ChatResponseMetadata.builder()
+                        .model("stub-" + model)
+                        .usage(new DefaultUsage(promptTokens, completionTokens))
+                        .build());
+    }
+
+    private static Duration interval(StubModelProperties.Behavior behavior) {
+        return Duration.ofNanos((long) (1_000_000_000L / Math.max(0.001, behavior.getTokensPerSecond())));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.xurx.springai.stub;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 桩 Embedding 模型：字符二元组按哈希投影到固定维度（带符号的特征哈希）后归一化
+ * <p>
+ * 相同文本得到相同向量，字面相近的文本余弦相似度较高，足以驱动语义缓存与向量检索的压测
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+
+    public StubEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        for (int i = 0; i < request.getInstructions().size(); i++) {
+            embeddings.add(new Embedding(embed(request.getInstructions().get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        String normalized = text == null ? "" : text.strip();
+        if (normalized.length() == 1) {
+            add(vector, normalized.charAt(0));
+        }
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            add(vector, normalized.charAt(i) * 31 + normalized.charAt(i + 1));
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private void add(float[] vector, int feature) {
+        int hash = mix(feature);
+        vector[Math.floorMod(hash, dimensions)] += (hash & 0x8000_0000) == 0 ? 1 : -1;
+    }
+
+    /**
+     * murmur3 的 fmix32，打散相邻字符的哈希
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
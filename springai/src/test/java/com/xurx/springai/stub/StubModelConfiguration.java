@@ -0,0 +1,48 @@
+package com.xurx.springai.stub;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+
+/**
+ * stub profile：以自动配置的 Bean 名称注册桩模型，替换需要密钥与网络的模型（模型自动配置在 application-stub.yaml 中关闭）
+ */
+@Configuration
+@Profile("stub")
+@EnableConfigurationProperties(StubModelProperties.class)
+public class StubModelConfiguration {
+
+    @Bean
+    public ChatModel dashScopeChatModel(StubModelProperties stubModelProperties) {
+        return new StubChatModel("qwen", stubModelProperties);
+    }
+
+    @Bean
+    public ChatModel deepSeekChatModel(StubModelProperties stubModelProperties) {
+        return new StubChatModel("deepseek", stubModelProperties);
+    }
+
+    @Bean
+    public ChatModel zhiPuAiChatModel(StubModelProperties stubModelProperties) {
+        return new StubChatModel("zhipu", stubModelProperties);
+    }
+
+    @Bean
+    public EmbeddingModel zhiPuAiEmbeddingModel(StubModelProperties stubModelProperties) {
+        return new StubEmbeddingModel(stubModelProperties.getEmbeddingDimensions());
+    }
+
+    /**
+     * MCP 客户端关闭后没有工具，tool_call 意图按普通对话回答
+     */
+    @Bean
+    public ToolCallbackProvider mcpToolCallbackProvider() {
+        return ToolCallbackProvider.from(List.of());
+    }
+}
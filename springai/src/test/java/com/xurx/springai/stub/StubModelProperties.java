@@ -0,0 +1,61 @@
+package com.xurx.springai.stub;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 桩模型配置（stub profile），缺省行为可按模型覆盖
+ */
+@Data
+@ConfigurationProperties(prefix = "stub-models")
+public class StubModelProperties {
+
+    /**
+     * 决定哪些调用失败的随机种子，相同种子下第 N 次调用的成败固定
+     */
+    private long seed = 42;
+
+    /**
+     * 桩 Embedding 模型的向量维度
+     */
+    private int embeddingDimensions = 1024;
+
+    private Behavior defaults = new Behavior();
+
+    /**
+     * 按模型（qwen / deepseek / zhipu）覆盖的行为，整体替换 defaults
+     */
+    private Map<String, Behavior> models = new LinkedHashMap<>();
+
+    public Behavior behavior(String model) {
+        return models.getOrDefault(model, defaults);
+    }
+
+    @Data
+    public static class Behavior {
+
+        /**
+         * 首 token 耗时
+         */
+        private Duration ttft = Duration.ofMillis(300);
+
+        /**
+         * 首 token 之后的输出速度
+         */
+        private double tokensPerSecond = 40;
+
+        /**
+         * 每次回答的 token 数
+         */
+        private int completionTokens = 60;
+
+        /**
+         * 调用失败的比例，失败在首 token 之前发生
+         */
+        private double errorRate = 0;
+    }
+}
@@ -0,0 +1,118 @@
+package com.xurx.springai.stub;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StubModelsTest {
+
+    @Test
+    void streamIsDeterministicAndPacedByTtftAndTokenRate() {
+        StubModelProperties properties = properties(Duration.ofMillis(100), 200, 10, 0);
+        StubChatModel model = new StubChatModel("qwen", properties);
+
+        long start = System.nanoTime();
+        List<ChatResponse> chunks = model.stream(new Prompt("红烧肉怎么做")).collectList().block(Duration.ofSeconds(5));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(10, chunks.size());
+        // 100ms 首 token + 9 个间隔 * 5ms
+        assertTrue(elapsedMillis >= 140, "elapsed " + elapsedMillis);
+        assertEquals(10, chunks.get(9).getMetadata().getUsage().getCompletionTokens());
+        assertEquals(text(chunks), model.call(new Prompt("红烧肉怎么做")).getResult().getOutput().getText());
+        assertNotEquals(text(chunks), model.call(new Prompt("番茄炒蛋怎么做")).getResult().getOutput().getText());
+    }
+
+    @Test
+    void intentPromptsAreAnsweredWithAnIntent() {
+        StubChatModel model = new StubChatModel("qwen", properties(Duration.ZERO, 1000, 10, 0));
+        Prompt prompt = new Prompt(List.of(new SystemMessage("从 chitchat、rag、tool_call 中选择一个意图"),
+                new UserMessage("你好")));
+
+        String intent = model.call(prompt).getResult().getOutput().getText();
+
+        assertTrue(List.of("chitchat", "rag", "tool_call").contains(intent));
+        assertEquals(intent, model.call(prompt).getResult().getOutput().getText());
+    }
+
+    @Test
+    void failuresFollowTheSeededErrorRate() {
+        StubModelProperties properties = properties(Duration.ZERO, 100_000, 1, 0.2);
+        StubChatModel model = new StubChatModel("qwen", properties);
+        long failures = IntStream.range(0, 1000).filter(i -> failsNext(model)).count();
+        // 相同种子下失败的调用序号固定
+        StubChatModel first = new StubChatModel("qwen", properties);
+        StubChatModel second = new StubChatModel("qwen", properties);
+        List<Boolean> firstOutcomes = IntStream.range(0, 50).mapToObj(i -> failsNext(first)).toList();
+        List<Boolean> secondOutcomes = IntStream.range(0, 50).mapToObj(i -> failsNext(second)).toList();
+
+        assertTrue(failures > 150 && failures < 250, "failures " + failures);
+        assertEquals(firstOutcomes, secondOutcomes);
+        assertThrows(TransientAiException.class, () -> {
+            StubChatModel alwaysFailing = new StubChatModel("qwen", properties(Duration.ZERO, 1000, 1, 1));
+            alwaysFailing.stream(new Prompt("你好")).blockLast();
+        });
+    }
+
+    @Test
+    void embeddingsAreNormalizedAndSimilarForSimilarText() {
+        StubEmbeddingModel model = new StubEmbeddingModel(256);
+
+        float[] question = model.embed("红烧肉怎么做");
+        float[] paraphrase = model.embed("红烧肉要怎么做");
+        float[] unrelated = model.embed("今天天气如何");
+
+        assertEquals(256, question.length);
+        assertEquals(1.0, dot(question, question), 1e-4);
+        assertEquals(dot(question, model.embed("红烧肉怎么做")), 1.0, 1e-4);
+        assertTrue(dot(question, paraphrase) > 0.5);
+        assertTrue(dot(question, paraphrase) > dot(question, unrelated));
+    }
+
+    private static boolean failsNext(StubChatModel model) {
+        try {
+            model.call(new Prompt("你好"));
+            return false;
+        } catch (TransientAiException e) {
+            return true;
+        }
+    }
+
+    private static StubModelProperties properties(Duration ttft, double tokensPerSecond, int completionTokens,
+                                                  double errorRate) {
+        StubModelProperties.Behavior behavior = new StubModelProperties.Behavior();
+        behavior.setTtft(ttft);
+        behavior.setTokensPerSecond(tokensPerSecond);
+        behavior.setCompletionTokens(completionTokens);
+        behavior.setErrorRate(errorRate);
+        StubModelProperties properties = new StubModelProperties();
+        properties.setDefaults(behavior);
+        return properties;
+    }
+
+    private static String text(List<ChatResponse> chunks) {
+        StringBuilder text = new StringBuilder();
+        chunks.forEach(chunk -> text.append(chunk.getResult().getOutput().getText()));
+        return text.toString();
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,21 @@
+package com.xurx.springai.stub;
+
+import com.xurx.springai.SpringaiApplication;
+import org.springframework.boot.SpringApplication;
+
+/**
+ * 以桩模型启动应用（stub profile），不需要模型密钥与 MCP Server，MySQL 与 Redis 使用 docker-compose 启动的本地容器
+ * <pre>
+ * docker compose up -d mysql redis
+ * mvn spring-boot:test-run -Dspring-boot.run.main-class=com.xurx.springai.stub.StubSpringaiApplication
+ * </pre>
+ * 压测见 {@link com.xurx.springai.benchmark.ChatLoadGenerator}
+ */
+public class StubSpringaiApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.from(SpringaiApplication::main)
+                .withAdditionalProfiles("stub")
+                .run(args);
+    }
+}